@@ -0,0 +1,55 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Duration lookup on the {@code stopRecording} path for recordings of {@code minutes} length,
+ * written as 44.1 kHz ADTS frames of the size a 96 kbps encoder produces.
+ */
+@State(Scope.Benchmark)
+public class AdtsParserBenchmark {
+
+    private static final int FRAME_LENGTH = 278;
+    private static final int FRAMES_PER_MINUTE = 44100 * 60 / 1024;
+
+    @Param({ "1", "30" })
+    public int minutes;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("adts-benchmark", ".aac");
+        byte[] frame = new byte[FRAME_LENGTH];
+        frame[0] = (byte) 0xff;
+        frame[1] = (byte) 0xf1;
+        frame[2] = (byte) 0x50; // AAC LC, 44100 Hz
+        frame[3] = (byte) 0x80; // two channels
+        frame[4] = (byte) (FRAME_LENGTH >> 3);
+        frame[5] = (byte) (((FRAME_LENGTH & 0x07) << 5) | 0x1f);
+        frame[6] = (byte) 0xfc;
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int i = 0; i < minutes * FRAMES_PER_MINUTE; i++) {
+                out.write(frame);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public long scanDuration() throws IOException {
+        return AdtsParser.scan(file).getDurationMs();
+    }
+}
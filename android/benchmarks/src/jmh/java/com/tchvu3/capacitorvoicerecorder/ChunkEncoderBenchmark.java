@@ -0,0 +1,44 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-chunk cost of the sample codecs applied on the delivery thread, for a 100 ms mono chunk.
+ */
+@State(Scope.Benchmark)
+public class ChunkEncoderBenchmark {
+
+    @Param({ "16000", "48000" })
+    public int sampleRate;
+
+    private byte[] pcm;
+    private int frames;
+    private MuLawEncoder muLaw;
+    private ImaAdpcmEncoder adpcm;
+    private byte[] target;
+
+    @Setup
+    public void setUp() {
+        frames = sampleRate / 10;
+        pcm = new byte[frames * 2];
+        new Random(42).nextBytes(pcm);
+        muLaw = new MuLawEncoder(1);
+        adpcm = new ImaAdpcmEncoder(1);
+        target = new byte[Math.max(muLaw.getMaxEncodedLength(frames), adpcm.getMaxEncodedLength(frames))];
+    }
+
+    @Benchmark
+    public int muLaw() {
+        return muLaw.encode(pcm, 0, frames, target);
+    }
+
+    @Benchmark
+    public int imaAdpcm() {
+        return adpcm.encode(pcm, 0, frames, target);
+    }
+}
@@ -0,0 +1,36 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Uncontended per-chunk overhead of the pooled buffers and the capture-to-delivery hand-off.
+ */
+@State(Scope.Thread)
+public class ChunkHandoffBenchmark {
+
+    @Param({ "BLOCK", "DROP_OLDEST" })
+    public ChunkHandoffQueue.Policy policy;
+
+    private ChunkBufferPool pool;
+    private ChunkHandoffQueue queue;
+
+    @Setup
+    public void setUp() {
+        pool = new ChunkBufferPool(18, 3200);
+        queue = new ChunkHandoffQueue(16, policy);
+    }
+
+    @Benchmark
+    public ChunkBufferPool.Chunk acquireOfferTakeRelease() throws InterruptedException {
+        ChunkBufferPool.Chunk chunk = pool.acquire();
+        chunk.set(3200, 0, 100, System.nanoTime());
+        queue.offer(chunk);
+        ChunkBufferPool.Chunk taken = queue.take();
+        taken.release();
+        return taken;
+    }
+}
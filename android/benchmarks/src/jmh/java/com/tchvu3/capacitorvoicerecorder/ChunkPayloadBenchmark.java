@@ -0,0 +1,72 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Base64;
+import java.util.Random;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of turning one chunk into its {@code audioChunk} event, mirroring
+ * {@link AudioChunkDispatcher#onAudioData}. {@code java.util.Base64} and the reference
+ * {@code org.json} stand in for {@code android.util.Base64} and the framework's {@code JSONObject}
+ * that {@code JSObject} extends, so absolute numbers differ from a device; relative changes do not.
+ */
+@State(Scope.Thread)
+public class ChunkPayloadBenchmark {
+
+    /** 100 ms of 16 kHz mono pcm16, and of 48 kHz stereo float32. */
+    @Param({ "3200", "38400" })
+    public int chunkBytes;
+
+    private byte[] data;
+    private JSONObject format;
+    private PcmRingStore ringStore;
+    private final Base64.Encoder encoder = Base64.getEncoder();
+
+    @Setup
+    public void setUp() {
+        data = new byte[chunkBytes];
+        new Random(42).nextBytes(data);
+        format = new JSONObject();
+        format.put("sampleRate", 16000);
+        format.put("channelCount", 1);
+        format.put("encoding", "pcm16");
+        ringStore = new PcmRingStore(chunkBytes * 100);
+    }
+
+    @Benchmark
+    public String base64() {
+        return encoder.encodeToString(data);
+    }
+
+    @Benchmark
+    public String base64Payload() {
+        JSONObject chunk = new JSONObject();
+        chunk.put("data", encoder.encodeToString(data));
+        putChunkFields(chunk);
+        // the bridge serializes the payload before handing it to the WebView
+        return chunk.toString();
+    }
+
+    @Benchmark
+    public String binaryPayload() {
+        JSONObject chunk = new JSONObject();
+        chunk.put("offset", ringStore.write(data, 0, data.length));
+        chunk.put("length", data.length);
+        putChunkFields(chunk);
+        return chunk.toString();
+    }
+
+    private void putChunkFields(JSONObject chunk) {
+        chunk.put("timestamp", 123456L);
+        chunk.put("duration", 100);
+        chunk.put("frameCount", 1600);
+        chunk.put("framePosition", 197_532_800L);
+        chunk.put("monotonicTimeNs", 8_123_456_789_012L);
+        chunk.put("format", format);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-chunk sample format conversion cost. {@code samples} of 1600 is a 100 ms mono chunk at
+ * 16 kHz, 9600 a 100 ms stereo chunk at 48 kHz.
+ */
+@State(Scope.Thread)
+public class PcmConverterBenchmark {
+
+    @Param({ "1600", "9600" })
+    public int samples;
+
+    private short[] pcm16;
+    private byte[] pcm16Bytes;
+    private float[] floats;
+    private byte[] float32Bytes;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pcm16 = new short[samples];
+        for (int i = 0; i < samples; i++) {
+            pcm16[i] = (short) random.nextInt();
+        }
+        pcm16Bytes = new byte[samples * 2];
+        random.nextBytes(pcm16Bytes);
+        floats = new float[samples];
+        PcmConverter.toFloat(PcmConverter.SampleFormat.PCM16, pcm16Bytes, 0, samples, floats, 0);
+        float32Bytes = new byte[samples * 4];
+    }
+
+    /** The float32 capture fallback: AudioRecord fills pcm16 and the chunk carries float32 bytes. */
+    @Benchmark
+    public byte[] pcm16ToFloat32Bytes() {
+        PcmConverter.pcm16ToFloat32Bytes(pcm16, 0, samples, float32Bytes, 0);
+        return float32Bytes;
+    }
+
+    @Benchmark
+    public byte[] convertPcm16BytesToFloat32() {
+        PcmConverter.convert(
+            PcmConverter.SampleFormat.PCM16,
+            pcm16Bytes,
+            0,
+            samples,
+            PcmConverter.SampleFormat.FLOAT32,
+            float32Bytes,
+            0,
+            floats
+        );
+        return float32Bytes;
+    }
+
+    @Benchmark
+    public float[] pcm16BytesToFloat() {
+        PcmConverter.toFloat(PcmConverter.SampleFormat.PCM16, pcm16Bytes, 0, samples, floats, 0);
+        return floats;
+    }
+
+    @Benchmark
+    public byte[] floatToPcm16Bytes() {
+        PcmConverter.fromFloat(PcmConverter.SampleFormat.PCM16, floats, 0, samples, pcm16Bytes, 0);
+        return pcm16Bytes;
+    }
+
+    @Benchmark
+    public byte[] writeFloat32() {
+        PcmConverter.writeFloat32(floats, 0, samples, float32Bytes, 0);
+        return float32Bytes;
+    }
+}
@@ -0,0 +1,49 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of resampling one 100 ms chunk captured at {@code inputRate} down to 16 kHz.
+ */
+@State(Scope.Thread)
+public class PolyphaseResamplerBenchmark {
+
+    private static final int OUTPUT_RATE = 16000;
+    private static final int CHUNK_MS = 100;
+
+    @Param({ "48000", "44100" })
+    public int inputRate;
+
+    @Param({ "LOW", "MEDIUM", "HIGH" })
+    public PolyphaseResampler.Quality quality;
+
+    @Param({ "1", "2" })
+    public int channelCount;
+
+    private PolyphaseResampler resampler;
+    private float[] input;
+    private float[] output;
+    private int frames;
+
+    @Setup
+    public void setUp() {
+        frames = inputRate * CHUNK_MS / 1000;
+        resampler = new PolyphaseResampler(inputRate, OUTPUT_RATE, channelCount, quality, frames);
+        input = new float[frames * channelCount];
+        Random random = new Random(42);
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextFloat() * 2 - 1;
+        }
+        output = new float[resampler.getMaxOutputFrames() * channelCount];
+    }
+
+    @Benchmark
+    public int process() {
+        return resampler.process(input, 0, frames, output, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Capture-thread cost of spectrum analysis for a 100 ms mono chunk at 16 kHz with one analysis
+ * per 50 ms, and of the bare real FFT.
+ */
+@State(Scope.Benchmark)
+public class SpectrumAnalyzerBenchmark {
+
+    private static final int RATE = 16000;
+    private static final int FRAMES = 1600;
+
+    @Param({ "256", "512", "2048" })
+    public int fftSize;
+
+    @Param({ "LOG", "MEL" })
+    public SpectrumAnalyzer.Scale scale;
+
+    private byte[] pcm;
+    private SpectrumAnalyzer analyzer;
+    private RealFft fft;
+    private float[] signal;
+    private float[] power;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        pcm = new byte[FRAMES * 2];
+        random.nextBytes(pcm);
+        analyzer = new SpectrumAnalyzer(RATE, 1, PcmConverter.SampleFormat.PCM16, fftSize, 32, scale, RATE / 20);
+        fft = new RealFft(fftSize);
+        signal = new float[fftSize];
+        for (int i = 0; i < fftSize; i++) {
+            signal[i] = random.nextFloat() * 2 - 1;
+        }
+        power = new float[fftSize / 2 + 1];
+    }
+
+    @Benchmark
+    public float[] analyseChunk() {
+        analyzer.process(pcm, 0, FRAMES);
+        return analyzer.getBands();
+    }
+
+    @Benchmark
+    public float[] realFft() {
+        fft.powerSpectrum(signal, power);
+        return power;
+    }
+}
@@ -0,0 +1,54 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Base64 encoding of a finished recording of {@code minutes} length at 96 kbps, into a single
+ * string and as 256 KiB chunks.
+ */
+@State(Scope.Benchmark)
+public class StreamingBase64Benchmark {
+
+    @Param({ "1", "10" })
+    public int minutes;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("base64-benchmark", ".aac");
+        byte[] block = new byte[12000]; // one second at 96 kbps
+        Random random = new Random(42);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int i = 0; i < minutes * 60; i++) {
+                random.nextBytes(block);
+                out.write(block);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public String encodeFile() throws IOException {
+        return StreamingBase64.encodeFile(file);
+    }
+
+    @Benchmark
+    public void encodeFileInChunks(Blackhole blackhole) throws IOException {
+        StreamingBase64.encodeFile(file, 256 * 1024, (base64, offset, last) -> blackhole.consume(base64));
+    }
+}
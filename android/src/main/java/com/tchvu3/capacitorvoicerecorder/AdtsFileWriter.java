@@ -0,0 +1,61 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the raw AAC access units of an {@link EncoderSink} to a file as an ADTS stream, the same
+ * container {@code MediaRecorder} produces for {@code AAC_ADTS}, so {@link AdtsParser} and
+ * {@link RecordingStore} read both alike.
+ */
+public class AdtsFileWriter implements EncodedAudioSink {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private AdtsHeader header;
+    private OutputStream output;
+    private long framesWritten;
+
+    public AdtsFileWriter(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void start(String mimeType, int sampleRate, int channelCount, int profile) throws IOException {
+        header = new AdtsHeader(sampleRate, channelCount, profile);
+        framesWritten = 0;
+        output = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length, long presentationTimeUs) throws IOException {
+        output.write(header.forPayload(length));
+        output.write(data, offset, length);
+        framesWritten++;
+    }
+
+    @Override
+    public void stop() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.close();
+        } catch (IOException ignored) {
+            // a failed flush leaves a truncated file, which the parser already tolerates
+        }
+        output = null;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getFramesWritten() {
+        return framesWritten;
+    }
+}
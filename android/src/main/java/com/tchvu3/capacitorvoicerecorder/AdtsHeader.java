@@ -0,0 +1,54 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.IOException;
+
+/**
+ * Builds the 7 byte ADTS header that turns a raw AAC access unit into a self-delimiting frame.
+ * <p>
+ * HE-AAC is described with implicit SBR signalling: the header names the AAC-LC core at half the
+ * output rate, which every ADTS decoder plays and SBR-aware decoders upsample.
+ */
+final class AdtsHeader {
+
+    static final int AOT_AAC_LC = 2;
+    static final int AOT_HE_AAC = 5;
+    private static final int MAX_FRAME_LENGTH = 0x1fff;
+
+    private final byte[] header = new byte[AdtsParser.HEADER_LENGTH];
+
+    /**
+     * @param profile MPEG-4 audio object type of the encoder output
+     */
+    AdtsHeader(int sampleRate, int channelCount, int profile) throws IOException {
+        int coreRate = profile == AOT_HE_AAC ? sampleRate / 2 : sampleRate;
+        int rateIndex = AdtsParser.sampleRateIndex(coreRate);
+        if (rateIndex < 0) {
+            throw new IOException("No ADTS sampling index for " + coreRate + " Hz");
+        }
+        if (channelCount < 1 || channelCount > 7) {
+            throw new IOException("ADTS cannot describe " + channelCount + " channels");
+        }
+        // the two bit profile field holds the object type minus one
+        int objectType = profile == AOT_HE_AAC || profile <= 0 ? AOT_AAC_LC : profile;
+        header[0] = (byte) 0xff;
+        header[1] = (byte) 0xf1;
+        header[2] = (byte) ((((objectType - 1) & 0x03) << 6) | (rateIndex << 2) | ((channelCount >> 2) & 0x01));
+        header[3] = (byte) ((channelCount & 0x03) << 6);
+        // buffer fullness 0x7ff (variable bit rate), one raw data block per frame
+        header[6] = (byte) 0xfc;
+    }
+
+    /**
+     * Returns the header for a frame carrying {@code payloadLength} bytes. The array is reused.
+     */
+    byte[] forPayload(int payloadLength) throws IOException {
+        int frameLength = payloadLength + AdtsParser.HEADER_LENGTH;
+        if (frameLength > MAX_FRAME_LENGTH) {
+            throw new IOException("AAC frame of " + payloadLength + " bytes does not fit an ADTS header");
+        }
+        header[3] = (byte) ((header[3] & 0xc0) | (frameLength >> 11));
+        header[4] = (byte) (frameLength >> 3);
+        header[5] = (byte) (((frameLength & 0x07) << 5) | 0x1f);
+        return header;
+    }
+}
@@ -0,0 +1,246 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the duration and frame layout of an AAC ADTS stream from its frame headers.
+ * <p>
+ * Every ADTS frame starts with a 7 byte header carrying the frame length, the sampling frequency
+ * and the number of raw data blocks (1024 samples each). The scanner reads just those headers and
+ * jumps from frame to frame, so the cost grows with the number of frames rather than the file size,
+ * and no decoder or player is involved. A trailing partial frame, as left by an interrupted
+ * recording, is not counted.
+ */
+public final class AdtsParser {
+
+    public static final class Info {
+
+        private final long frameCount;
+        private final long sampleCount;
+        private final int sampleRate;
+        private final int channelCount;
+
+        Info(long frameCount, long sampleCount, int sampleRate, int channelCount) {
+            this.frameCount = frameCount;
+            this.sampleCount = sampleCount;
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+        }
+
+        public long getFrameCount() {
+            return frameCount;
+        }
+
+        /**
+         * Number of samples per channel in the stream.
+         */
+        public long getSampleCount() {
+            return sampleCount;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannelCount() {
+            return channelCount;
+        }
+
+        public long getDurationMs() {
+            return sampleRate > 0 ? sampleCount * 1000 / sampleRate : 0;
+        }
+    }
+
+    /**
+     * Byte offsets and first sample positions of every frame, for seeking by byte or time.
+     */
+    public static final class Index {
+
+        private long[] offsets = new long[256];
+        private long[] sampleStarts = new long[256];
+        private int frameCount = 0;
+        private long endOffset = 0;
+        private long sampleCount = 0;
+        private int sampleRate;
+        private int channelCount;
+
+        void add(long offset, long sampleStart) {
+            if (frameCount == offsets.length) {
+                offsets = Arrays.copyOf(offsets, frameCount * 2);
+                sampleStarts = Arrays.copyOf(sampleStarts, frameCount * 2);
+            }
+            offsets[frameCount] = offset;
+            sampleStarts[frameCount] = sampleStart;
+            frameCount++;
+        }
+
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public int getChannelCount() {
+            return channelCount;
+        }
+
+        /**
+         * Byte offset of {@code frame}; {@code getFrameCount()} gives the end of the last complete frame.
+         */
+        public long getOffset(int frame) {
+            return frame < frameCount ? offsets[frame] : endOffset;
+        }
+
+        /**
+         * Position of the first sample of {@code frame}; {@code getFrameCount()} gives the total sample count.
+         */
+        public long getSampleStart(int frame) {
+            return frame < frameCount ? sampleStarts[frame] : sampleCount;
+        }
+
+        public long getTimeMs(int frame) {
+            return sampleRate > 0 ? getSampleStart(frame) * 1000 / sampleRate : 0;
+        }
+
+        /**
+         * Index of the frame containing byte {@code offset}, clamped to {@code [0, getFrameCount()]}.
+         */
+        public int frameAtOffset(long offset) {
+            return floor(offsets, offset, endOffset);
+        }
+
+        /**
+         * Index of the frame playing at {@code timeMs}, clamped to {@code [0, getFrameCount()]}.
+         */
+        public int frameAtTime(long timeMs) {
+            // sample rates stay below one million, so only absurd times can overflow
+            long sample = timeMs < Long.MAX_VALUE / 1_000_000 ? timeMs * sampleRate / 1000 : Long.MAX_VALUE;
+            return floor(sampleStarts, sample, sampleCount);
+        }
+
+        private int floor(long[] values, long key, long end) {
+            if (key >= end) {
+                return frameCount;
+            }
+            if (key <= 0) {
+                return 0;
+            }
+            int index = Arrays.binarySearch(values, 0, frameCount, key);
+            return index >= 0 ? index : -index - 2;
+        }
+    }
+
+    static final int HEADER_LENGTH = 7;
+    static final int SAMPLES_PER_BLOCK = 1024;
+    private static final int[] SAMPLE_RATES = {
+        96000,
+        88200,
+        64000,
+        48000,
+        44100,
+        32000,
+        24000,
+        22050,
+        16000,
+        12000,
+        11025,
+        8000,
+        7350
+    };
+
+    private AdtsParser() {}
+
+    /**
+     * ADTS sampling frequency index of {@code sampleRate}, or {@code -1} if it has none.
+     */
+    static int sampleRateIndex(int sampleRate) {
+        for (int i = 0; i < SAMPLE_RATES.length; i++) {
+            if (SAMPLE_RATES[i] == sampleRate) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static Info scan(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return scan(input.getChannel());
+        }
+    }
+
+    /**
+     * Scans {@code channel} from position zero using positional reads; the channel position is not
+     * modified. Stops at the first byte that does not start a valid frame header.
+     */
+    public static Info scan(FileChannel channel) throws IOException {
+        return scan(channel, null);
+    }
+
+    public static Index index(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            return index(input.getChannel());
+        }
+    }
+
+    /**
+     * Like {@link #scan(FileChannel)}, additionally recording where every frame starts.
+     */
+    public static Index index(FileChannel channel) throws IOException {
+        Index index = new Index();
+        Info info = scan(channel, index);
+        index.sampleCount = info.getSampleCount();
+        index.sampleRate = info.getSampleRate();
+        index.channelCount = info.getChannelCount();
+        return index;
+    }
+
+    private static Info scan(FileChannel channel, Index index) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        long size = channel.size();
+        long position = 0;
+        long frames = 0;
+        long samples = 0;
+        int sampleRate = 0;
+        int channelCount = 0;
+        while (position + HEADER_LENGTH <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (channel.read(header, position + header.position()) < 0) {
+                    break;
+                }
+            }
+            if (header.hasRemaining()) {
+                break;
+            }
+            byte[] bytes = header.array();
+            if ((bytes[0] & 0xff) != 0xff || (bytes[1] & 0xf6) != 0xf0) {
+                // lost sync: not an ADTS frame (or layer bits set)
+                break;
+            }
+            int rateIndex = (bytes[2] >> 2) & 0x0f;
+            int frameLength = ((bytes[3] & 0x03) << 11) | ((bytes[4] & 0xff) << 3) | ((bytes[5] & 0xe0) >> 5);
+            if (rateIndex >= SAMPLE_RATES.length || frameLength < HEADER_LENGTH || position + frameLength > size) {
+                break;
+            }
+            if (frames == 0) {
+                sampleRate = SAMPLE_RATES[rateIndex];
+                channelCount = ((bytes[2] & 0x01) << 2) | ((bytes[3] & 0xc0) >> 6);
+            }
+            if (index != null) {
+                index.add(position, samples);
+                index.endOffset = position + frameLength;
+            }
+            frames++;
+            samples += (long) ((bytes[6] & 0x03) + 1) * SAMPLES_PER_BLOCK;
+            position += frameLength;
+        }
+        return new Info(frames, samples, sampleRate, channelCount);
+    }
+}
@@ -0,0 +1,321 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.media.MediaFormat;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Base64;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Delivery stage between {@link AudioStreamer} and the plugin's event listeners.
+ * <p>
+ * Each chunk is turned into an {@code audioChunk} payload and its pooled buffer released right away.
+ * With a batch size above one, payloads are collected and emitted together as a single
+ * {@code audioChunkBatch} event once the batch is full or its oldest chunk has waited
+ * {@code batchMaxDelayMs}, whichever comes first.
+ * <p>
+ * Compressed encodings reach the dispatcher in one of two ways. Cheap sample codecs are applied to
+ * each PCM chunk through a {@link ChunkEncoder}. Frame codecs (AAC, Opus) run in an
+ * {@link EncoderSink} that feeds the dispatcher as an {@link EncodedAudioSink}. In that case the
+ * PCM chunks are dropped, and the encoded frames are grouped into chunks of about
+ * {@code chunkDurationMs}. AAC frames carry ADTS headers. Opus packets are concatenated, and
+ * {@code packetSizes} lists their lengths.
+ */
+public class AudioChunkDispatcher implements AudioStreamer.AudioStreamerListener, EncodedAudioSink {
+
+    public static final String AUDIO_CHUNK_EVENT = "audioChunk";
+    public static final String AUDIO_CHUNK_BATCH_EVENT = "audioChunkBatch";
+    public static final String STREAM_ERROR_EVENT = "streamError";
+    public static final String SPEECH_START_EVENT = "speechStart";
+    public static final String SPEECH_END_EVENT = "speechEnd";
+
+    public interface EventSink {
+        void notify(String eventName, JSObject data);
+    }
+
+    private final EventSink sink;
+    private final PcmRingStore binaryStore;
+    private final StreamingStats stats;
+    private final int batchSize;
+    private final int batchMaxDelayMs;
+    private final Runnable flushRunnable = this::flush;
+    private final Object emitLock = new Object();
+    private HandlerThread flushThread;
+    private Handler flushHandler;
+    private JSArray pendingChunks;
+    private int pendingCount = 0;
+    private AudioStreamer.AudioStreamFormat lastFormat;
+    private JSObject lastFormatData;
+    private byte[] coalesceBuffer;
+    private ChunkEncoder chunkEncoder;
+    private byte[] encodeBuffer;
+    private int encodedChunkDurationMs = 100;
+    private AudioStreamer.AudioStreamFormat encodedFormat;
+    private AdtsHeader adtsHeader;
+    private byte[] pendingFrames = new byte[4096];
+    private int pendingLength = 0;
+    private int[] pendingPacketSizes = new int[16];
+    private int pendingPackets = 0;
+    private long pendingStartUs = -1;
+    private long lastFrameUs = 0;
+    private long lastFrameDurationUs = 0;
+
+    public AudioChunkDispatcher(
+        EventSink sink,
+        PcmRingStore binaryStore,
+        StreamingStats stats,
+        int batchSize,
+        int batchMaxDelayMs
+    ) {
+        this.sink = sink;
+        this.binaryStore = binaryStore;
+        this.stats = stats;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchMaxDelayMs = Math.max(0, batchMaxDelayMs);
+        if (this.batchSize > 1) {
+            flushThread = new HandlerThread("AudioChunkDispatcher");
+            flushThread.start();
+            flushHandler = new Handler(flushThread.getLooper());
+        }
+    }
+
+    /**
+     * Compresses every PCM16 chunk with {@code encoder} before it is emitted. Set before streaming starts.
+     */
+    public void setChunkEncoder(ChunkEncoder encoder) {
+        this.chunkEncoder = encoder;
+    }
+
+    /**
+     * Target duration of the chunks emitted for frames received as an {@link EncodedAudioSink}.
+     */
+    public void setEncodedChunkDurationMs(int chunkDurationMs) {
+        this.encodedChunkDurationMs = Math.max(1, chunkDurationMs);
+    }
+
+    @Override
+    public void onAudioData(ChunkBufferPool.Chunk chunk, AudioStreamer.AudioStreamFormat format) {
+        if (encodedFormat != null) {
+            // an EncoderSink delivers the stream; the raw PCM is not emitted
+            chunk.release();
+            return;
+        }
+        long encodeStart = System.nanoTime();
+        JSObject chunkData = new JSObject();
+        try {
+            byte[] data = chunk.getData();
+            int length = chunk.getLength();
+            int duration = chunk.getDuration();
+            int frameCount = chunk.getFrameCount();
+            if (chunk.getNext() != null) {
+                // coalesced by the hand-off queue: deliver the continuations as one contiguous chunk
+                length = 0;
+                frameCount = 0;
+                for (ChunkBufferPool.Chunk part = chunk; part != null; part = part.getNext()) {
+                    length += part.getLength();
+                    frameCount += part.getFrameCount();
+                }
+                duration = (int) Math.round(frameCount * 1000.0 / format.sampleRate);
+                if (coalesceBuffer == null || coalesceBuffer.length < length) {
+                    coalesceBuffer = new byte[length];
+                }
+                int offset = 0;
+                for (ChunkBufferPool.Chunk part = chunk; part != null; part = part.getNext()) {
+                    System.arraycopy(part.getData(), 0, coalesceBuffer, offset, part.getLength());
+                    offset += part.getLength();
+                }
+                data = coalesceBuffer;
+            }
+            if (chunkEncoder != null) {
+                int maxLength = chunkEncoder.getMaxEncodedLength(frameCount);
+                if (encodeBuffer == null || encodeBuffer.length < maxLength) {
+                    encodeBuffer = new byte[maxLength];
+                }
+                length = chunkEncoder.encode(data, 0, frameCount, encodeBuffer);
+                data = encodeBuffer;
+            }
+            if (binaryStore != null) {
+                chunkData.put("offset", binaryStore.write(data, 0, length));
+                chunkData.put("length", length);
+            } else {
+                chunkData.put("data", Base64.encodeToString(data, 0, length, Base64.NO_WRAP));
+            }
+            chunkData.put("timestamp", chunk.getTimestamp());
+            chunkData.put("duration", duration);
+            chunkData.put("frameCount", frameCount);
+            chunkData.put("framePosition", chunk.getFramePosition());
+            chunkData.put("monotonicTimeNs", chunk.getTimeNanos());
+        } finally {
+            chunk.release();
+        }
+        chunkData.put("format", getFormatData(format));
+        stats.recordEncode(System.nanoTime() - encodeStart);
+        emit(chunkData);
+    }
+
+    @Override
+    public void start(String mimeType, int sampleRate, int channelCount, int profile) throws IOException {
+        boolean aac = MediaFormat.MIMETYPE_AUDIO_AAC.equals(mimeType);
+        adtsHeader = aac ? new AdtsHeader(sampleRate, channelCount, profile) : null;
+        encodedFormat = new AudioStreamer.AudioStreamFormat(sampleRate, channelCount, aac ? "aac" : "opus");
+        pendingLength = 0;
+        pendingPackets = 0;
+        pendingStartUs = -1;
+        lastFrameUs = 0;
+        lastFrameDurationUs = 0;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length, long presentationTimeUs) throws IOException {
+        if (pendingStartUs >= 0 && presentationTimeUs - pendingStartUs >= encodedChunkDurationMs * 1000L) {
+            emitEncoded(presentationTimeUs);
+        }
+        if (pendingStartUs < 0) {
+            pendingStartUs = presentationTimeUs;
+        }
+        lastFrameDurationUs = presentationTimeUs - lastFrameUs;
+        lastFrameUs = presentationTimeUs;
+        if (adtsHeader != null) {
+            appendPending(adtsHeader.forPayload(length), 0, AdtsParser.HEADER_LENGTH);
+        }
+        appendPending(data, offset, length);
+        if (pendingPackets == pendingPacketSizes.length) {
+            pendingPacketSizes = Arrays.copyOf(pendingPacketSizes, pendingPackets * 2);
+        }
+        pendingPacketSizes[pendingPackets++] = length;
+    }
+
+    private void appendPending(byte[] data, int offset, int length) {
+        if (pendingLength + length > pendingFrames.length) {
+            pendingFrames = Arrays.copyOf(pendingFrames, Math.max(pendingFrames.length * 2, pendingLength + length));
+        }
+        System.arraycopy(data, offset, pendingFrames, pendingLength, length);
+        pendingLength += length;
+    }
+
+    /**
+     * Emits the frames collected so far as one chunk ending at {@code endUs}.
+     */
+    private void emitEncoded(long endUs) {
+        AudioStreamer.AudioStreamFormat format = encodedFormat;
+        JSObject chunkData = new JSObject();
+        if (binaryStore != null) {
+            chunkData.put("offset", binaryStore.write(pendingFrames, 0, pendingLength));
+            chunkData.put("length", pendingLength);
+        } else {
+            chunkData.put("data", Base64.encodeToString(pendingFrames, 0, pendingLength, Base64.NO_WRAP));
+        }
+        long framePosition = pendingStartUs * format.sampleRate / 1_000_000;
+        chunkData.put("timestamp", pendingStartUs / 1000);
+        chunkData.put("duration", (endUs - pendingStartUs + 500) / 1000);
+        chunkData.put("frameCount", endUs * format.sampleRate / 1_000_000 - framePosition);
+        chunkData.put("framePosition", framePosition);
+        if (adtsHeader == null) {
+            JSArray packetSizes = new JSArray();
+            for (int i = 0; i < pendingPackets; i++) {
+                packetSizes.put(pendingPacketSizes[i]);
+            }
+            chunkData.put("packetSizes", packetSizes);
+        }
+        chunkData.put("format", getFormatData(format));
+        pendingLength = 0;
+        pendingPackets = 0;
+        pendingStartUs = -1;
+        emit(chunkData);
+    }
+
+    private void emit(JSObject chunkData) {
+        if (batchSize == 1) {
+            sink.notify(AUDIO_CHUNK_EVENT, chunkData);
+            return;
+        }
+
+        boolean full;
+        synchronized (this) {
+            if (pendingChunks == null) {
+                pendingChunks = new JSArray();
+                flushHandler.postDelayed(flushRunnable, batchMaxDelayMs);
+            }
+            pendingChunks.put(chunkData);
+            pendingCount++;
+            full = pendingCount >= batchSize;
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void onError(String message, String code) {
+        JSObject errorData = new JSObject();
+        errorData.put("message", message);
+        errorData.put("code", code);
+        sink.notify(STREAM_ERROR_EVENT, errorData);
+    }
+
+    @Override
+    public void onVoiceActivity(boolean speaking, long timestampMs) {
+        // batched chunks go out first so the event keeps its place in the stream
+        flush();
+        JSObject data = new JSObject();
+        data.put("timestamp", timestampMs);
+        sink.notify(speaking ? SPEECH_START_EVENT : SPEECH_END_EVENT, data);
+    }
+
+    /**
+     * Emits whatever is still pending or batched and stops the flush timer. Call after the streamer
+     * stopped; calling it again is harmless.
+     */
+    @Override
+    public void stop() {
+        if (encodedFormat != null && pendingStartUs >= 0) {
+            // the last frame lasts as long as the one before it
+            emitEncoded(lastFrameUs + lastFrameDurationUs);
+        }
+        if (flushHandler != null) {
+            flushHandler.removeCallbacks(flushRunnable);
+        }
+        flush();
+        if (flushThread != null) {
+            flushThread.quitSafely();
+            flushThread = null;
+            flushHandler = null;
+        }
+    }
+
+    private void flush() {
+        // serialized so a timer flush and a full-batch flush can never overtake each other
+        synchronized (emitLock) {
+            JSArray chunks;
+            synchronized (this) {
+                if (pendingChunks == null) {
+                    return;
+                }
+                chunks = pendingChunks;
+                pendingChunks = null;
+                pendingCount = 0;
+                if (flushHandler != null) {
+                    flushHandler.removeCallbacks(flushRunnable);
+                }
+            }
+            JSObject batchData = new JSObject();
+            batchData.put("chunks", chunks);
+            sink.notify(AUDIO_CHUNK_BATCH_EVENT, batchData);
+        }
+    }
+
+    private synchronized JSObject getFormatData(AudioStreamer.AudioStreamFormat format) {
+        if (format != lastFormat) {
+            JSObject formatData = new JSObject();
+            formatData.put("sampleRate", format.sampleRate);
+            formatData.put("channelCount", format.channelCount);
+            formatData.put("encoding", chunkEncoder != null ? chunkEncoder.getEncoding() : format.encoding);
+            lastFormat = format;
+            lastFormatData = formatData;
+        }
+        return lastFormatData;
+    }
+}
@@ -0,0 +1,29 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.IOException;
+
+/**
+ * Consumer of the PCM produced by an {@link AudioStreamer}, next to its chunk listener.
+ * <p>
+ * Sinks see every frame that was read, including chunks the hand-off queue later drops, because
+ * {@link #write} is called on the capture thread right after each read. Implementations must
+ * therefore copy what they need and return immediately; anything slow belongs on a thread of the
+ * sink's own.
+ */
+public interface AudioSink {
+    /**
+     * Called before capture starts, with the format of the data passed to {@link #write}.
+     */
+    void start(AudioStreamer.AudioStreamFormat format) throws IOException;
+
+    /**
+     * Receives {@code length} bytes of interleaved PCM starting at frame {@code framePosition}.
+     * {@code data} is reused after the call returns.
+     */
+    void write(byte[] data, int length, long framePosition);
+
+    /**
+     * Called after the capture thread has exited; no further writes follow.
+     */
+    void stop();
+}
@@ -4,20 +4,37 @@ import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
 import android.os.Build;
-import android.os.Handler;
-import android.os.HandlerThread;
-import android.util.Base64;
+import android.os.Process;
 import android.util.Log;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
 public class AudioStreamer {
     private static final String TAG = "AudioStreamer";
+    private static final long CAPTURE_THREAD_JOIN_TIMEOUT_MS = 1000;
+    // chunks held outside the queue: one being filled, one being delivered
+    private static final int IN_FLIGHT_CHUNKS = 2;
+    private static final int COALESCE_POOL_FACTOR = 4;
+    /** Passed as pre-roll to take everything buffered while armed. */
+    public static final int PRE_ROLL_ALL = Integer.MAX_VALUE;
     
     public interface AudioStreamerListener {
-        void onAudioData(byte[] data, long timestamp, int duration, AudioStreamFormat format);
+        /**
+         * Receives a filled chunk from the pool on the delivery thread. The listener owns the chunk
+         * until it calls {@link ChunkBufferPool.Chunk#release()}; only the first {@code getLength()}
+         * bytes are valid, and coalesced continuations follow through {@code getNext()}.
+         */
+        void onAudioData(ChunkBufferPool.Chunk chunk, AudioStreamFormat format);
         void onError(String message, String code);
+        
+        /**
+         * Called on the delivery thread in order with the chunks when voice activity detection is
+         * on: a start with the timestamp of the first chunk of an utterance, before it is delivered,
+         * and an end with the end time of its last chunk, after that one.
+         */
+        default void onVoiceActivity(boolean speaking, long timestampMs) {}
     }
     
     public static class AudioStreamFormat {
@@ -37,12 +54,159 @@ public class AudioStreamer {
         public final int channelCount;
         public final String encoding;
         public final int chunkDurationMs;
+        private int queueCapacity = 16;
+        private ChunkHandoffQueue.Policy backpressurePolicy = ChunkHandoffQueue.Policy.DROP_OLDEST;
+        private int captureSampleRate;
+        private PolyphaseResampler.Quality resampleQuality = PolyphaseResampler.Quality.MEDIUM;
+        private boolean voiceActivityDetection = false;
+        private boolean suppressSilence = false;
+        private float vadThresholdDb = VoiceActivityDetector.DEFAULT_THRESHOLD_DB;
+        private int vadHangoverMs = VoiceActivityDetector.DEFAULT_HANGOVER_MS;
+        private int vadPaddingMs = 200;
         
         public StreamingOptions(int sampleRate, int channelCount, String encoding, int chunkDurationMs) {
             this.sampleRate = sampleRate;
             this.channelCount = channelCount;
             this.encoding = encoding;
             this.chunkDurationMs = chunkDurationMs;
+            this.captureSampleRate = sampleRate;
+        }
+        
+        /**
+         * Rate the {@link AudioRecord} is opened at. When it differs from {@code sampleRate} the
+         * captured audio is resampled to {@code sampleRate}.
+         */
+        public int getCaptureSampleRate() {
+            return captureSampleRate;
+        }
+        
+        public void setCaptureSampleRate(int captureSampleRate) {
+            this.captureSampleRate = captureSampleRate;
+        }
+        
+        public PolyphaseResampler.Quality getResampleQuality() {
+            return resampleQuality;
+        }
+        
+        public void setResampleQuality(PolyphaseResampler.Quality resampleQuality) {
+            this.resampleQuality = resampleQuality;
+        }
+        
+        public boolean isVoiceActivityDetection() {
+            return voiceActivityDetection;
+        }
+        
+        public void setVoiceActivityDetection(boolean voiceActivityDetection) {
+            this.voiceActivityDetection = voiceActivityDetection;
+        }
+        
+        /**
+         * Whether chunks outside speech are withheld from delivery. Sinks still receive everything.
+         */
+        public boolean isSuppressSilence() {
+            return suppressSilence;
+        }
+        
+        public void setSuppressSilence(boolean suppressSilence) {
+            this.suppressSilence = suppressSilence;
+        }
+        
+        public float getVadThresholdDb() {
+            return vadThresholdDb;
+        }
+        
+        public void setVadThresholdDb(float vadThresholdDb) {
+            this.vadThresholdDb = vadThresholdDb;
+        }
+        
+        public int getVadHangoverMs() {
+            return vadHangoverMs;
+        }
+        
+        public void setVadHangoverMs(int vadHangoverMs) {
+            this.vadHangoverMs = vadHangoverMs;
+        }
+        
+        /**
+         * Silence delivered ahead of each utterance when suppressing, so speech onsets are not clipped.
+         */
+        public int getVadPaddingMs() {
+            return vadPaddingMs;
+        }
+        
+        public void setVadPaddingMs(int vadPaddingMs) {
+            this.vadPaddingMs = vadPaddingMs;
+        }
+        
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public ChunkHandoffQueue.Policy getBackpressurePolicy() {
+            return backpressurePolicy;
+        }
+        
+        public void setBackpressurePolicy(ChunkHandoffQueue.Policy backpressurePolicy) {
+            this.backpressurePolicy = backpressurePolicy;
+        }
+        
+        public int getBytesPerSample() {
+            switch (encoding) {
+                case "pcm8":
+                    return 1;
+                case "float32":
+                    return 4;
+                case "pcm16":
+                default:
+                    return 2;
+            }
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof StreamingOptions)) {
+                return false;
+            }
+            StreamingOptions that = (StreamingOptions) other;
+            return sampleRate == that.sampleRate &&
+                channelCount == that.channelCount &&
+                encoding.equals(that.encoding) &&
+                chunkDurationMs == that.chunkDurationMs &&
+                queueCapacity == that.queueCapacity &&
+                backpressurePolicy == that.backpressurePolicy &&
+                captureSampleRate == that.captureSampleRate &&
+                resampleQuality == that.resampleQuality &&
+                voiceActivityDetection == that.voiceActivityDetection &&
+                suppressSilence == that.suppressSilence &&
+                vadThresholdDb == that.vadThresholdDb &&
+                vadHangoverMs == that.vadHangoverMs &&
+                vadPaddingMs == that.vadPaddingMs;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(
+                sampleRate,
+                channelCount,
+                encoding,
+                chunkDurationMs,
+                queueCapacity,
+                backpressurePolicy,
+                captureSampleRate,
+                resampleQuality,
+                voiceActivityDetection,
+                suppressSilence,
+                vadThresholdDb,
+                vadHangoverMs,
+                vadPaddingMs
+            );
         }
         
         public static StreamingOptions getDefault() {
@@ -53,10 +217,39 @@ public class AudioStreamer {
     private AudioStreamerListener listener;
     private AudioRecord audioRecord;
     private StreamingOptions options;
-    private HandlerThread recordingThread;
-    private Handler recordingHandler;
-    private boolean isStreaming = false;
-    private long startTime;
+    private Thread captureThread;
+    private Thread deliveryThread;
+    private ChunkHandoffQueue handoffQueue;
+    private volatile boolean isStreaming = false;
+    private volatile boolean armed = false;
+    private boolean prepared = false;
+    private CaptureClock captureClock;
+    private long framesRead;
+    private long captureFramesRead;
+    private int lastCaptureFrames;
+    private long firstFrameNanos;
+    private PolyphaseResampler resampler;
+    private float[] resampleInput;
+    private float[] resampleOutput;
+    private PcmConverter.SampleFormat outputFormat;
+    private int captureBytesPerSample;
+    private AudioStreamFormat streamFormat;
+    private ChunkBufferPool chunkPool;
+    private byte[] overflowBuffer;
+    private short[] pcm16ReadBuffer;
+    private float[] floatReadBuffer;
+    private int readSizeInSamples;
+    private VoiceActivityDetector voiceActivityDetector;
+    private ChunkBufferPool.Chunk[] paddingChunks;
+    private int paddingHead;
+    private int paddingCount;
+    private PreRollBuffer preRoll;
+    private volatile int armedFrames;
+    private long lastReadNanos;
+    private int pendingPreRollFrames;
+    private int preRollFrames;
+    private final StreamingStats stats = new StreamingStats();
+    private final List<AudioSink> sinks = new ArrayList<>();
     
     public AudioStreamer(StreamingOptions options) {
         this.options = options;
@@ -66,18 +259,39 @@ public class AudioStreamer {
         this.listener = listener;
     }
     
-    public void startStreaming() throws Exception {
+    /**
+     * Adds a sink that receives every captured frame on the capture thread, in the output format.
+     * Sinks must be added before {@link #startStreaming()} and are started and stopped with it.
+     */
+    public void addSink(AudioSink sink) {
+        sinks.add(sink);
+    }
+    
+    public List<AudioSink> getSinks() {
+        return sinks;
+    }
+    
+    /**
+     * Creates the {@link AudioRecord} and all capture buffers without starting capture, so a later
+     * {@link #startStreaming()} only has to start the record session and the threads.
+     */
+    public void prepare() throws Exception {
         if (isStreaming) {
             throw new Exception("Already streaming");
         }
+        if (prepared) {
+            return;
+        }
         
         int channelConfig = options.channelCount == 1 ? 
             AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
         
-        int audioFormat = getAudioFormat();
+        int captureRate = options.getCaptureSampleRate();
+        boolean resampling = captureRate != options.sampleRate;
+        int audioFormat = getCaptureAudioFormat(resampling);
         
         int minBufferSize = AudioRecord.getMinBufferSize(
-            options.sampleRate,
+            captureRate,
             channelConfig,
             audioFormat
         );
@@ -87,13 +301,14 @@ public class AudioStreamer {
         }
         
         // Calculate buffer size for chunk duration
-        int bytesPerSample = getBytesPerSample();
-        int samplesPerChunk = (options.sampleRate * options.chunkDurationMs) / 1000;
+        int bytesPerSample = audioFormat == AudioFormat.ENCODING_PCM_FLOAT ? 4 : getBytesPerSample();
+        int samplesPerChunk = (captureRate * options.chunkDurationMs) / 1000;
+        captureBytesPerSample = bytesPerSample;
         int bufferSize = Math.max(minBufferSize, samplesPerChunk * bytesPerSample * options.channelCount);
         
         audioRecord = new AudioRecord(
             MediaRecorder.AudioSource.MIC,
-            options.sampleRate,
+            captureRate,
             channelConfig,
             audioFormat,
             bufferSize
@@ -101,19 +316,130 @@ public class AudioStreamer {
         
         if (audioRecord.getState() != AudioRecord.STATE_INITIALIZED) {
             audioRecord.release();
+            audioRecord = null;
             throw new Exception("Failed to initialize AudioRecord");
         }
         
-        startTime = System.currentTimeMillis();
+        try {
+            allocateBuffers(samplesPerChunk, audioFormat, resampling);
+        } catch (IllegalArgumentException e) {
+            audioRecord.release();
+            audioRecord = null;
+            throw new Exception(e.getMessage(), e);
+        }
+        prepared = true;
+    }
+    
+    /**
+     * Prepares and starts capturing into a ring that keeps the last {@code preRollMs} of audio, so
+     * that {@link #startStreaming(int)} can begin with audio from before it was called. Nothing is
+     * delivered or written to sinks while armed, but the microphone is open.
+     */
+    public void arm(int preRollMs) throws Exception {
+        if (isStreaming) {
+            throw new Exception("Already streaming");
+        }
+        if (armed) {
+            return;
+        }
+        prepare();
+        long requestedFrames = (long) options.sampleRate * preRollMs / 1000;
+        int capacityFrames = (int) Math.max(1, Math.min(Integer.MAX_VALUE / 8, requestedFrames));
+        preRoll = new PreRollBuffer(capacityFrames, getBytesPerSample() * options.channelCount);
+        armedFrames = 0;
+        captureClock = new CaptureClock(audioRecord, options.getCaptureSampleRate());
+        captureFramesRead = 0;
+        try {
+            audioRecord.startRecording();
+        } catch (IllegalStateException e) {
+            release();
+            throw new Exception("Failed to start recording: " + e.getMessage(), e);
+        }
+        armed = true;
+        captureThread = new Thread(this::captureLoop, "AudioStreamerCapture");
+        captureThread.start();
+    }
+    
+    /**
+     * Releases the {@link AudioRecord} of a session that was prepared or armed but never started.
+     */
+    public void release() {
+        if (isStreaming) {
+            return;
+        }
+        if (armed) {
+            armed = false;
+            try {
+                audioRecord.stop();
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Error stopping audio record", e);
+            }
+            joinThread(captureThread);
+            captureThread = null;
+            preRoll = null;
+        }
+        if (!prepared) {
+            return;
+        }
+        audioRecord.release();
+        audioRecord = null;
+        prepared = false;
+    }
+    
+    public void startStreaming() throws Exception {
+        startStreaming(PRE_ROLL_ALL);
+    }
+    
+    /**
+     * Starts streaming. When armed, the stream begins with up to {@code preRollMs} of the audio
+     * captured before this call; the pre-roll is handed off ahead of live audio as fast as the
+     * queue takes it, with times and frame positions that continue seamlessly into the live chunks.
+     */
+    public void startStreaming(int preRollMs) throws Exception {
+        if (isStreaming) {
+            throw new Exception("Already streaming");
+        }
+        if (armed && !captureThread.isAlive()) {
+            // the record session died while armed
+            release();
+        }
         
-        recordingThread = new HandlerThread("AudioStreamerThread");
-        recordingThread.start();
-        recordingHandler = new Handler(recordingThread.getLooper());
+        boolean warm = armed;
+        prepare();
+        streamFormat = new AudioStreamFormat(options.sampleRate, options.channelCount, options.encoding);
+        startSinks();
+        stats.onStart();
+        framesRead = 0;
+        preRollFrames = 0;
+        if (warm) {
+            long requested = (long) options.sampleRate * Math.max(0, preRollMs) / 1000;
+            // only ever grows, so the capture thread will find at least this much
+            preRollFrames = (int) Math.min(requested, armedFrames);
+            pendingPreRollFrames = preRollFrames;
+        } else {
+            captureClock = new CaptureClock(audioRecord, options.getCaptureSampleRate());
+            captureFramesRead = 0;
+            try {
+                audioRecord.startRecording();
+            } catch (IllegalStateException e) {
+                for (AudioSink sink : sinks) {
+                    sink.stop();
+                }
+                release();
+                throw new Exception("Failed to start recording: " + e.getMessage(), e);
+            }
+        }
         
-        audioRecord.startRecording();
+        prepared = false;
         isStreaming = true;
+        armed = false;
         
-        recordingHandler.post(recordingRunnable);
+        deliveryThread = new Thread(this::deliveryLoop, "AudioStreamerDelivery");
+        deliveryThread.start();
+        if (!warm) {
+            captureThread = new Thread(this::captureLoop, "AudioStreamerCapture");
+            captureThread.start();
+        }
     }
     
     public void stopStreaming() {
@@ -123,68 +449,357 @@ public class AudioStreamer {
         
         isStreaming = false;
         
-        if (recordingHandler != null) {
-            recordingHandler.removeCallbacks(recordingRunnable);
-        }
-        
         if (audioRecord != null) {
             try {
+                // Unblocks a pending read() so the capture loop can observe the stop flag
                 audioRecord.stop();
             } catch (IllegalStateException e) {
                 Log.e(TAG, "Error stopping audio record", e);
             }
+        }
+        
+        // wakes a capture thread blocked on a full queue; queued chunks are still delivered
+        handoffQueue.close();
+        joinThread(captureThread);
+        captureThread = null;
+        preRoll = null;
+        if (paddingChunks != null) {
+            releasePadding();
+        }
+        joinThread(deliveryThread);
+        deliveryThread = null;
+        
+        if (audioRecord != null) {
             audioRecord.release();
             audioRecord = null;
         }
         
-        if (recordingThread != null) {
-            recordingThread.quitSafely();
-            recordingThread = null;
+        // the capture thread has exited, so no sink sees another write
+        for (AudioSink sink : sinks) {
+            sink.stop();
+        }
+        stats.onStop();
+        if (stats.getDroppedNoBuffer() > 0) {
+            Log.w(TAG, "Dropped " + stats.getDroppedNoBuffer() + " chunks because no chunk buffer was free");
         }
     }
     
-    private final Runnable recordingRunnable = new Runnable() {
-        @Override
-        public void run() {
-            if (!isStreaming || audioRecord == null) {
-                return;
-            }
-            
-            int bytesPerSample = getBytesPerSample();
-            int samplesPerChunk = (options.sampleRate * options.chunkDurationMs) / 1000;
-            int bufferSize = samplesPerChunk * bytesPerSample * options.channelCount;
-            
-            byte[] buffer = new byte[bufferSize];
-            
-            int bytesRead = audioRecord.read(buffer, 0, bufferSize);
-            
-            if (bytesRead > 0) {
-                byte[] processedData = processAudioData(buffer, bytesRead);
-                long timestamp = System.currentTimeMillis() - startTime;
-                
-                AudioStreamFormat format = new AudioStreamFormat(
-                    options.sampleRate,
-                    options.channelCount,
-                    options.encoding
-                );
-                
-                if (listener != null) {
-                    listener.onAudioData(processedData, timestamp, options.chunkDurationMs, format);
-                }
-            } else if (bytesRead < 0) {
-                if (listener != null) {
-                    listener.onError("Error reading audio data", String.valueOf(bytesRead));
+    private void startSinks() throws Exception {
+        for (int i = 0; i < sinks.size(); i++) {
+            try {
+                sinks.get(i).start(streamFormat);
+            } catch (IOException | RuntimeException e) {
+                for (int j = 0; j < i; j++) {
+                    sinks.get(j).stop();
                 }
+                release();
+                throw new Exception(e.getMessage(), e);
+            }
+        }
+    }
+    
+    /**
+     * Waits for {@code thread} to exit. The AudioRecord and the sinks are released right after, so a
+     * thread that is slow to notice the stop is waited for rather than left running on them.
+     */
+    private static void joinThread(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        boolean interrupted = false;
+        boolean warned = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join(CAPTURE_THREAD_JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (thread.isAlive() && !warned) {
+                Log.w(TAG, thread.getName() + " did not exit in time, still waiting");
+                warned = true;
             }
-            
-            if (isStreaming) {
-                recordingHandler.post(this);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void allocateBuffers(int framesPerRead, int audioFormat, boolean resampling) {
+        int samplesPerRead = framesPerRead * options.channelCount;
+        readSizeInSamples = samplesPerRead;
+        int outputSamples = samplesPerRead;
+        resampler = null;
+        resampleInput = null;
+        resampleOutput = null;
+        if (resampling) {
+            resampler = new PolyphaseResampler(
+                options.getCaptureSampleRate(),
+                options.sampleRate,
+                options.channelCount,
+                options.getResampleQuality(),
+                framesPerRead
+            );
+            outputSamples = resampler.getMaxOutputFrames() * options.channelCount;
+            resampleInput = new float[samplesPerRead];
+            resampleOutput = new float[outputSamples];
+            outputFormat = PcmConverter.SampleFormat.fromEncoding(options.encoding);
+        }
+        
+        int queueCapacity = Math.max(1, options.getQueueCapacity());
+        int poolSize = queueCapacity + IN_FLIGHT_CHUNKS;
+        if (options.getBackpressurePolicy() == ChunkHandoffQueue.Policy.COALESCE) {
+            poolSize = queueCapacity * COALESCE_POOL_FACTOR + IN_FLIGHT_CHUNKS;
+        }
+        voiceActivityDetector = null;
+        paddingChunks = null;
+        if (options.isVoiceActivityDetection()) {
+            voiceActivityDetector = new VoiceActivityDetector(
+                options.sampleRate,
+                options.channelCount,
+                PcmConverter.SampleFormat.fromEncoding(options.encoding),
+                options.getVadThresholdDb(),
+                options.getVadHangoverMs()
+            );
+            if (options.isSuppressSilence()) {
+                int chunkMs = Math.max(1, options.chunkDurationMs);
+                int paddingCapacity = Math.max(0, (options.getVadPaddingMs() + chunkMs - 1) / chunkMs);
+                paddingChunks = new ChunkBufferPool.Chunk[paddingCapacity];
+                // held silence must not starve capture of buffers
+                poolSize += paddingChunks.length;
+            }
+        }
+        paddingHead = 0;
+        paddingCount = 0;
+        handoffQueue = new ChunkHandoffQueue(queueCapacity, options.getBackpressurePolicy());
+        chunkPool = new ChunkBufferPool(poolSize, outputSamples * getBytesPerSample());
+        overflowBuffer = new byte[chunkPool.getChunkCapacity()];
+        pcm16ReadBuffer = null;
+        floatReadBuffer = null;
+        if (audioFormat == AudioFormat.ENCODING_PCM_FLOAT) {
+            floatReadBuffer = resampling ? resampleInput : new float[samplesPerRead];
+        } else if (resampling || options.encoding.equals("float32")) {
+            pcm16ReadBuffer = new short[samplesPerRead];
+        }
+    }
+    
+    private void captureLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        while ((isStreaming || armed) && captureChunk()) {
+            // keep reading until stopped or the record session dies
+        }
+    }
+    
+    /**
+     * Reads and delivers one chunk. Returns {@code false} once the AudioRecord can no longer be read.
+     */
+    private boolean captureChunk() {
+        if (!isStreaming) {
+            return captureArmed();
+        }
+        if (pendingPreRollFrames > 0) {
+            emitPreRoll();
+        }
+        ChunkBufferPool.Chunk chunk = chunkPool.acquire();
+        byte[] target = chunk != null ? chunk.getData() : overflowBuffer;
+        
+        lastCaptureFrames = 0;
+        int bytesRead = readAudioData(target);
+        long captureNanos = System.nanoTime();
+        
+        int frameCount = 0;
+        long framePosition = framesRead;
+        long captureFramePosition = captureFramesRead;
+        captureFramesRead += lastCaptureFrames;
+        if (bytesRead > 0) {
+            stats.recordRead(
+                lastCaptureFrames * options.channelCount * captureBytesPerSample,
+                readSizeInSamples * captureBytesPerSample
+            );
+            frameCount = bytesRead / (getBytesPerSample() * options.channelCount);
+            framesRead += frameCount;
+            // sinks see the data even when no chunk was free for delivery
+            for (int i = 0; i < sinks.size(); i++) {
+                sinks.get(i).write(target, bytesRead, framePosition);
+            }
+        } else if (bytesRead < 0) {
+            stats.recordReadError(bytesRead);
+        }
+        
+        if (bytesRead > 0 && isStreaming) {
+            long timeNanos = captureClock.frameTimeNanos(captureFramePosition, captureFramesRead, captureNanos);
+            publish(chunk, target, bytesRead, frameCount, framePosition, timeNanos, captureNanos);
+        } else {
+            if (chunk != null) {
+                chunk.release();
+            }
+            if (bytesRead < 0 && isStreaming && listener != null) {
+                listener.onError("Error reading audio data", String.valueOf(bytesRead));
+            }
+        }
+        return bytesRead != AudioRecord.ERROR_DEAD_OBJECT;
+    }
+    
+    /**
+     * Timestamps one chunk, runs voice activity detection on it and hands it off, or counts it as
+     * dropped when {@code chunk} is {@code null} and the data was read into the overflow buffer.
+     */
+    private void publish(
+        ChunkBufferPool.Chunk chunk,
+        byte[] data,
+        int length,
+        int frameCount,
+        long framePosition,
+        long timeNanos,
+        long captureNanos
+    ) {
+        if (framePosition == 0) {
+            firstFrameNanos = timeNanos;
+        }
+        long timestamp = (timeNanos - firstFrameNanos) / 1_000_000;
+        int duration = (int) Math.round(frameCount * 1000.0 / options.sampleRate);
+        boolean speech = true;
+        long speechStartMs = -1;
+        long speechEndMs = -1;
+        if (voiceActivityDetector != null) {
+            speech = voiceActivityDetector.process(data, 0, frameCount);
+            VoiceActivityDetector.Transition transition = voiceActivityDetector.getTransition();
+            if (transition == VoiceActivityDetector.Transition.SPEECH_START) {
+                speechStartMs = timestamp;
+            } else if (transition == VoiceActivityDetector.Transition.SPEECH_END) {
+                speechEndMs = timestamp + duration;
+            }
+            stats.recordVoiceActivity(frameCount, speechStartMs >= 0);
+        }
+        if (chunk == null) {
+            stats.recordDroppedNoBuffer();
+            // the next chunk queued reports the boundary, so events keep their order with the audio
+            handoffQueue.carrySpeechBoundaries(speechStartMs, speechEndMs);
+            return;
+        }
+        chunk.set(length, timestamp, duration, captureNanos);
+        chunk.setFrames(frameCount, framePosition, timeNanos);
+        chunk.setSpeechBoundaries(speechStartMs, speechEndMs);
+        if (paddingChunks == null || speech || speechEndMs >= 0) {
+            // the chunk that ends an utterance is delivered so the end follows the speech
+            offerAfterPadding(chunk);
+        } else {
+            holdSilence(chunk);
+        }
+    }
+    
+    /**
+     * Reads one chunk while armed and keeps it in the pre-roll ring only.
+     */
+    private boolean captureArmed() {
+        lastCaptureFrames = 0;
+        int bytesRead = readAudioData(overflowBuffer);
+        lastReadNanos = System.nanoTime();
+        captureFramesRead += lastCaptureFrames;
+        if (bytesRead > 0) {
+            preRoll.write(overflowBuffer, 0, bytesRead);
+            armedFrames = preRoll.getAvailableFrames();
+        }
+        return bytesRead != AudioRecord.ERROR_DEAD_OBJECT;
+    }
+    
+    /**
+     * Publishes the requested tail of the pre-roll ring as the first chunks of the stream, timed
+     * backwards from the last armed read.
+     */
+    private void emitPreRoll() {
+        int frameBytes = getBytesPerSample() * options.channelCount;
+        int chunkFrames = chunkPool.getChunkCapacity() / frameBytes;
+        double captureFramesPerFrame = (double) options.getCaptureSampleRate() / options.sampleRate;
+        int framesBack = pendingPreRollFrames;
+        pendingPreRollFrames = 0;
+        while (framesBack > 0 && isStreaming) {
+            ChunkBufferPool.Chunk chunk = chunkPool.acquire();
+            byte[] target = chunk != null ? chunk.getData() : overflowBuffer;
+            int frameCount = preRoll.read(framesBack, target, 0, Math.min(framesBack, chunkFrames));
+            int length = frameCount * frameBytes;
+            long framePosition = framesRead;
+            framesRead += frameCount;
+            for (int i = 0; i < sinks.size(); i++) {
+                sinks.get(i).write(target, length, framePosition);
+            }
+            long captureFramePosition = captureFramesRead - Math.round(framesBack * captureFramesPerFrame);
+            long timeNanos = captureClock.frameTimeNanos(captureFramePosition, captureFramesRead, lastReadNanos);
+            publish(chunk, target, length, frameCount, framePosition, timeNanos, lastReadNanos);
+            framesBack -= frameCount;
+        }
+    }
+    
+    /**
+     * Keeps a silent chunk as padding for the next utterance, suppressing the oldest one held.
+     */
+    private void holdSilence(ChunkBufferPool.Chunk chunk) {
+        if (paddingChunks.length == 0) {
+            suppress(chunk);
+            return;
+        }
+        if (paddingCount == paddingChunks.length) {
+            suppress(paddingChunks[paddingHead]);
+            paddingChunks[paddingHead] = null;
+            paddingHead = (paddingHead + 1) % paddingChunks.length;
+            paddingCount--;
+        }
+        paddingChunks[(paddingHead + paddingCount) % paddingChunks.length] = chunk;
+        paddingCount++;
+    }
+    
+    /**
+     * Delivers the held padding ahead of {@code chunk}, moving a speech start onto the first of them.
+     */
+    private void offerAfterPadding(ChunkBufferPool.Chunk chunk) {
+        if (paddingCount > 0 && chunk.getSpeechStartMs() >= 0) {
+            ChunkBufferPool.Chunk first = paddingChunks[paddingHead];
+            first.setSpeechBoundaries(first.getTimestamp(), -1);
+            chunk.setSpeechBoundaries(-1, chunk.getSpeechEndMs());
+            while (paddingCount > 0) {
+                handoffQueue.offer(paddingChunks[paddingHead]);
+                paddingChunks[paddingHead] = null;
+                paddingHead = (paddingHead + 1) % paddingChunks.length;
+                paddingCount--;
             }
         }
-    };
+        handoffQueue.offer(chunk);
+    }
+    
+    private void suppress(ChunkBufferPool.Chunk chunk) {
+        stats.recordSuppressed(chunk.getFrameCount());
+        chunk.release();
+    }
+    
+    private void releasePadding() {
+        while (paddingCount > 0) {
+            suppress(paddingChunks[paddingHead]);
+            paddingChunks[paddingHead] = null;
+            paddingHead = (paddingHead + 1) % paddingChunks.length;
+            paddingCount--;
+        }
+    }
     
-    private int getAudioFormat() {
-        switch (options.encoding) {
+    private int getCaptureAudioFormat(boolean resampling) {
+        if (resampling) {
+            // the resampler works on floats, so capture with the most headroom the output can use
+            return options.encoding.equals("float32")
+                ? getAudioFormat(options.encoding)
+                : AudioFormat.ENCODING_PCM_16BIT;
+        }
+        return getAudioFormat(options.encoding);
+    }
+    
+    /**
+     * Whether {@link AudioRecord} accepts {@code options.sampleRate} with the requested channels
+     * and encoding, so the stream can be captured without resampling.
+     */
+    public static boolean isCaptureSupported(StreamingOptions options) {
+        int channelConfig = options.channelCount == 1 ? AudioFormat.CHANNEL_IN_MONO : AudioFormat.CHANNEL_IN_STEREO;
+        return AudioRecord.getMinBufferSize(options.sampleRate, channelConfig, getAudioFormat(options.encoding)) > 0;
+    }
+    
+    private static int getAudioFormat(String encoding) {
+        switch (encoding) {
             case "pcm8":
                 return AudioFormat.ENCODING_PCM_8BIT;
             case "float32":
@@ -199,54 +814,153 @@ public class AudioStreamer {
     }
     
     private int getBytesPerSample() {
-        switch (options.encoding) {
-            case "pcm8":
-                return 1;
-            case "float32":
-                return 4;
-            case "pcm16":
-            default:
-                return 2;
+        return options.getBytesPerSample();
+    }
+    
+    private void deliveryLoop() {
+        try {
+            ChunkBufferPool.Chunk chunk;
+            while ((chunk = handoffQueue.take()) != null) {
+                long captureNanos = chunk.getCaptureNanos();
+                if (listener != null) {
+                    deliver(chunk);
+                } else {
+                    chunk.release();
+                }
+                stats.recordDeliveryLatency(System.nanoTime() - captureNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
     
-    private byte[] processAudioData(byte[] buffer, int bytesRead) {
-        // If encoding matches native format, return as-is
-        if (options.encoding.equals("pcm16") && getAudioFormat() == AudioFormat.ENCODING_PCM_16BIT) {
-            byte[] result = new byte[bytesRead];
-            System.arraycopy(buffer, 0, result, 0, bytesRead);
-            return result;
+    private void deliver(ChunkBufferPool.Chunk chunk) {
+        // a coalesced chain may hold several boundaries: report one start before and one end after
+        long startTimestamp = -1;
+        long endTimestamp = -1;
+        for (ChunkBufferPool.Chunk part = chunk; part != null; part = part.getNext()) {
+            long start = ChunkBufferPool.Chunk.combinedStart(
+                startTimestamp,
+                endTimestamp,
+                part.getSpeechStartMs(),
+                part.getSpeechEndMs()
+            );
+            endTimestamp = ChunkBufferPool.Chunk.combinedEnd(
+                startTimestamp,
+                endTimestamp,
+                part.getSpeechStartMs(),
+                part.getSpeechEndMs()
+            );
+            startTimestamp = start;
         }
-        
-        // Convert between formats if needed
-        if (options.encoding.equals("float32") && Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
-            // Convert PCM16 to Float32
-            return convertPCM16ToFloat32(buffer, bytesRead);
+        if (startTimestamp >= 0) {
+            listener.onVoiceActivity(true, startTimestamp);
+        }
+        listener.onAudioData(chunk, streamFormat);
+        if (endTimestamp >= 0) {
+            listener.onVoiceActivity(false, endTimestamp);
         }
-        
-        // Return original data for other cases
-        byte[] result = new byte[bytesRead];
-        System.arraycopy(buffer, 0, result, 0, bytesRead);
-        return result;
     }
     
-    private byte[] convertPCM16ToFloat32(byte[] pcm16Data, int length) {
-        ByteBuffer pcm16Buffer = ByteBuffer.wrap(pcm16Data, 0, length);
-        pcm16Buffer.order(ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Reads one chunk from the {@link AudioRecord} into {@code target}, converting to the
+     * requested encoding in place. Returns the number of valid bytes or an AudioRecord error code.
+     */
+    private int readAudioData(byte[] target) {
+        if (resampler != null) {
+            int samplesRead;
+            if (floatReadBuffer != null) {
+                samplesRead = audioRecord.read(floatReadBuffer, 0, readSizeInSamples, AudioRecord.READ_BLOCKING);
+            } else {
+                samplesRead = audioRecord.read(pcm16ReadBuffer, 0, readSizeInSamples);
+                if (samplesRead > 0) {
+                    PcmConverter.pcm16ToFloat(pcm16ReadBuffer, 0, resampleInput, 0, samplesRead);
+                }
+            }
+            if (samplesRead <= 0) {
+                return samplesRead;
+            }
+            lastCaptureFrames = samplesRead / options.channelCount;
+            int outputFrames = resampler.process(resampleInput, 0, lastCaptureFrames, resampleOutput, 0);
+            int outputSamples = outputFrames * options.channelCount;
+            PcmConverter.fromFloat(outputFormat, resampleOutput, 0, outputSamples, target, 0);
+            return outputSamples * getBytesPerSample();
+        }
         
-        ByteBuffer floatBuffer = ByteBuffer.allocate(length * 2);
-        floatBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (floatReadBuffer != null) {
+            int floatsRead = audioRecord.read(floatReadBuffer, 0, readSizeInSamples, AudioRecord.READ_BLOCKING);
+            if (floatsRead <= 0) {
+                return floatsRead;
+            }
+            lastCaptureFrames = floatsRead / options.channelCount;
+            PcmConverter.writeFloat32(floatReadBuffer, 0, floatsRead, target, 0);
+            return floatsRead * 4;
+        }
         
-        while (pcm16Buffer.hasRemaining()) {
-            short sample = pcm16Buffer.getShort();
-            float floatSample = sample / 32768.0f;
-            floatBuffer.putFloat(floatSample);
+        if (pcm16ReadBuffer != null) {
+            // float32 requested but the device only captures PCM16
+            int shortsRead = audioRecord.read(pcm16ReadBuffer, 0, readSizeInSamples);
+            if (shortsRead <= 0) {
+                return shortsRead;
+            }
+            lastCaptureFrames = shortsRead / options.channelCount;
+            PcmConverter.pcm16ToFloat32Bytes(pcm16ReadBuffer, 0, shortsRead, target, 0);
+            return shortsRead * 4;
         }
         
-        return floatBuffer.array();
+        int bytesRead = audioRecord.read(target, 0, readSizeInSamples * getBytesPerSample());
+        if (bytesRead > 0) {
+            lastCaptureFrames = bytesRead / (getBytesPerSample() * options.channelCount);
+        }
+        return bytesRead;
+    }
+    
+    /**
+     * Returns the hand-off queue of the current session, or {@code null} before the first start.
+     */
+    public ChunkHandoffQueue getHandoffQueue() {
+        return handoffQueue;
+    }
+    
+    /**
+     * Whether chunk times of the current session come from {@link AudioRecord#getTimestamp}
+     * rather than the frame-count fallback.
+     */
+    public boolean usesHardwareTimestamps() {
+        return captureClock != null && captureClock.usesHardwareTimestamps();
+    }
+    
+    public StreamingStats getStats() {
+        return stats;
     }
     
     public boolean isStreaming() {
         return isStreaming;
     }
+    
+    public boolean isPrepared() {
+        return prepared;
+    }
+    
+    public boolean isArmed() {
+        return armed;
+    }
+    
+    /**
+     * Audio buffered so far while armed, up to the ring's capacity.
+     */
+    public int getAvailablePreRollMs() {
+        return (int) ((long) armedFrames * 1000 / options.sampleRate);
+    }
+    
+    /**
+     * Pre-roll the current session started with.
+     */
+    public int getPreRollMs() {
+        return (int) ((long) preRollFrames * 1000 / options.sampleRate);
+    }
+    
+    public StreamingOptions getOptions() {
+        return options;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.media.AudioRecord;
+import android.media.AudioTimestamp;
+import android.os.Build;
+
+/**
+ * Maps frame positions of an {@link AudioRecord} to {@link System#nanoTime()} (CLOCK_MONOTONIC).
+ * <p>
+ * When the device reports {@link AudioRecord#getTimestamp} the hardware frame/time pair is used,
+ * so chunk times follow the audio clock instead of when the read happened to return. Otherwise the
+ * clock is anchored once at the first read and advanced by frame count. Returned times never go
+ * backwards.
+ */
+class CaptureClock {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final AudioRecord audioRecord;
+    private final int sampleRate;
+    private final AudioTimestamp timestamp;
+    private boolean anchored = false;
+    private long anchorFrame;
+    private long anchorNanos;
+    private long lastNanos = Long.MIN_VALUE;
+    private boolean hardwareTimestamps = false;
+
+    CaptureClock(AudioRecord audioRecord, int sampleRate) {
+        this.audioRecord = audioRecord;
+        this.sampleRate = sampleRate;
+        this.timestamp = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N ? new AudioTimestamp() : null;
+    }
+
+    /**
+     * Returns the monotonic time in nanoseconds at which {@code framePosition} was captured.
+     * {@code endFrame} is the position just after the latest read, which returned at {@code readReturnNanos}.
+     */
+    long frameTimeNanos(long framePosition, long endFrame, long readReturnNanos) {
+        long nanos;
+        if (
+            timestamp != null &&
+            audioRecord.getTimestamp(timestamp, AudioTimestamp.TIMEBASE_MONOTONIC) == AudioRecord.SUCCESS
+        ) {
+            hardwareTimestamps = true;
+            nanos = timestamp.nanoTime + framesToNanos(framePosition - timestamp.framePosition);
+        } else {
+            if (!anchored) {
+                anchorFrame = endFrame;
+                anchorNanos = readReturnNanos;
+                anchored = true;
+            }
+            nanos = anchorNanos + framesToNanos(framePosition - anchorFrame);
+        }
+        if (nanos <= lastNanos) {
+            nanos = lastNanos + 1;
+        }
+        lastNanos = nanos;
+        return nanos;
+    }
+
+    boolean usesHardwareTimestamps() {
+        return hardwareTimestamps;
+    }
+
+    long framesToNanos(long frames) {
+        return frames * NANOS_PER_SECOND / sampleRate;
+    }
+}
@@ -0,0 +1,217 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Fixed-size ring of reusable chunk buffers.
+ * <p>
+ * The capture thread {@link #acquire() acquires} a chunk, fills it and hands it to the
+ * {@link AudioStreamer.AudioStreamerListener}, which owns it until it calls {@link Chunk#release()}.
+ * All buffers are allocated up front, so steady-state streaming allocates nothing per chunk.
+ */
+public class ChunkBufferPool {
+
+    public static class Chunk {
+
+        private final ChunkBufferPool owner;
+        private final byte[] data;
+        private int length;
+        private long timestamp;
+        private int duration;
+        private int frameCount;
+        private long framePosition;
+        private long timeNanos;
+        private long captureNanos;
+        private boolean pooled = true;
+        private long speechStartMs = -1;
+        private long speechEndMs = -1;
+        private Chunk next;
+
+        private Chunk(ChunkBufferPool owner, int capacity) {
+            this.owner = owner;
+            this.data = new byte[capacity];
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getDuration() {
+            return duration;
+        }
+
+        /**
+         * Number of sample frames (samples per channel) in this chunk.
+         */
+        public int getFrameCount() {
+            return frameCount;
+        }
+
+        /**
+         * Position of the first frame of this chunk, counted from the start of the stream.
+         */
+        public long getFramePosition() {
+            return framePosition;
+        }
+
+        /**
+         * Monotonic time ({@link System#nanoTime()} base) at which the first frame was captured.
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        /**
+         * {@link System#nanoTime()} at which the read that filled this chunk returned.
+         */
+        public long getCaptureNanos() {
+            return captureNanos;
+        }
+
+        /**
+         * Time of a speech start to report before this chunk's audio, or {@code -1}.
+         */
+        public long getSpeechStartMs() {
+            return speechStartMs;
+        }
+
+        /**
+         * Time of a speech end to report after this chunk's audio, or {@code -1}.
+         */
+        public long getSpeechEndMs() {
+            return speechEndMs;
+        }
+
+        /**
+         * Returns the chunk that continues this one when several chunks were coalesced, or
+         * {@code null}.
+         */
+        public Chunk getNext() {
+            return next;
+        }
+
+        void set(int length, long timestamp, int duration, long captureNanos) {
+            this.length = length;
+            this.timestamp = timestamp;
+            this.duration = duration;
+            this.captureNanos = captureNanos;
+            this.speechStartMs = -1;
+            this.speechEndMs = -1;
+        }
+
+        void setSpeechBoundaries(long startMs, long endMs) {
+            this.speechStartMs = startMs;
+            this.speechEndMs = endMs;
+        }
+
+        /**
+         * Takes over the speech boundaries of audio before this chunk that will not be delivered.
+         */
+        void carrySpeechBoundaries(long startMs, long endMs) {
+            long start = combinedStart(startMs, endMs, speechStartMs, speechEndMs);
+            long end = combinedEnd(startMs, endMs, speechStartMs, speechEndMs);
+            speechStartMs = start;
+            speechEndMs = end;
+        }
+
+        /*
+         * Boundaries of two consecutive pieces of audio, a then b, as one start before and one end
+         * after. Starts and ends alternate, so an end of a followed by a start of b cancels out:
+         * speech simply continues.
+         */
+        static long combinedStart(long aStartMs, long aEndMs, long bStartMs, long bEndMs) {
+            return aEndMs >= 0 || aStartMs >= 0 ? aStartMs : bStartMs;
+        }
+
+        static long combinedEnd(long aStartMs, long aEndMs, long bStartMs, long bEndMs) {
+            return aEndMs >= 0 && bStartMs < 0 ? aEndMs : bEndMs;
+        }
+
+        void setFrames(int frameCount, long framePosition, long timeNanos) {
+            this.frameCount = frameCount;
+            this.framePosition = framePosition;
+            this.timeNanos = timeNanos;
+        }
+
+        void append(Chunk chunk) {
+            Chunk tail = this;
+            while (tail.next != null) {
+                tail = tail.next;
+            }
+            tail.next = chunk;
+        }
+
+        /**
+         * Returns this chunk and every coalesced continuation to the pool.
+         */
+        public void release() {
+            Chunk chunk = this;
+            while (chunk != null) {
+                Chunk following = chunk.next;
+                chunk.next = null;
+                owner.release(chunk);
+                chunk = following;
+            }
+        }
+    }
+
+    private final Chunk[] free;
+    private final int chunkCapacity;
+    private int head = 0;
+    private int available;
+
+    public ChunkBufferPool(int size, int chunkCapacity) {
+        if (size <= 0 || chunkCapacity <= 0) {
+            throw new IllegalArgumentException("Pool size and chunk capacity must be positive");
+        }
+        this.free = new Chunk[size];
+        this.chunkCapacity = chunkCapacity;
+        for (int i = 0; i < size; i++) {
+            free[i] = new Chunk(this, chunkCapacity);
+        }
+        this.available = size;
+    }
+
+    /**
+     * Takes a free chunk out of the ring, or returns {@code null} when every chunk is still
+     * held by the consumer.
+     */
+    public synchronized Chunk acquire() {
+        if (available == 0) {
+            return null;
+        }
+        Chunk chunk = free[head];
+        free[head] = null;
+        head = (head + 1) % free.length;
+        available--;
+        chunk.pooled = false;
+        return chunk;
+    }
+
+    synchronized void release(Chunk chunk) {
+        if (chunk.pooled) {
+            return;
+        }
+        chunk.pooled = true;
+        free[(head + available) % free.length] = chunk;
+        available++;
+    }
+
+    public synchronized int getAvailable() {
+        return available;
+    }
+
+    public int getSize() {
+        return free.length;
+    }
+
+    public int getChunkCapacity() {
+        return chunkCapacity;
+    }
+}
@@ -0,0 +1,23 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Compresses streamed PCM16 chunk by chunk on the delivery thread. Implementations may keep state
+ * across chunks but every encoded chunk must decode on its own.
+ */
+public interface ChunkEncoder {
+    /**
+     * The {@code encoding} value reported in the chunk format.
+     */
+    String getEncoding();
+
+    /**
+     * Upper bound of the encoded size of {@code frameCount} frames.
+     */
+    int getMaxEncodedLength(int frameCount);
+
+    /**
+     * Encodes {@code frameCount} frames of interleaved little-endian PCM16 into {@code target} and
+     * returns the number of bytes written.
+     */
+    int encode(byte[] pcm16, int offset, int frameCount, byte[] target);
+}
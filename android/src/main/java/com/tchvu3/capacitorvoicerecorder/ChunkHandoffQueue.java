@@ -0,0 +1,205 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Bounded hand-off between the capture thread and the delivery thread.
+ * <p>
+ * The {@link Policy} decides what happens when the consumer falls behind and the queue is full.
+ * Chunks dropped by the queue are returned to their pool here. Speech boundaries of dropped
+ * chunks are not lost with their audio: the next chunk queued takes them over, so the delivery
+ * thread remains the only one to report voice activity and always does so in order. The depth and
+ * counters are volatile and only ever changed under the queue's lock, so stats reads never contend
+ * with capture.
+ */
+public class ChunkHandoffQueue {
+
+    public enum Policy {
+        /** Capture waits for room; nothing is dropped but the hardware buffer may overrun. */
+        BLOCK,
+        /** The oldest queued chunk is discarded to make room. The default: capture never waits. */
+        DROP_OLDEST,
+        /** The incoming chunk is discarded. */
+        DROP_NEWEST,
+        /** The incoming chunk is appended to the newest queued chunk and delivered with it. */
+        COALESCE;
+
+        public static Policy fromString(String value) {
+            if (value == null) {
+                return DROP_OLDEST;
+            }
+            return switch (value) {
+                case "block" -> BLOCK;
+                case "drop-oldest" -> DROP_OLDEST;
+                case "drop-newest" -> DROP_NEWEST;
+                case "coalesce" -> COALESCE;
+                default -> throw new IllegalArgumentException("Unknown backpressure policy: " + value);
+            };
+        }
+
+        public String toJsValue() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+
+    private final Policy policy;
+    private final ChunkBufferPool.Chunk[] ring;
+    private int head = 0;
+    private volatile int size = 0;
+    private boolean closed = false;
+    // boundaries of audio dropped after the newest queued chunk
+    private long pendingSpeechStartMs = -1;
+    private long pendingSpeechEndMs = -1;
+    private volatile long droppedOldest = 0;
+    private volatile long droppedNewest = 0;
+    private volatile long coalesced = 0;
+    private volatile long blockedNanos = 0;
+    private volatile int highWaterMark = 0;
+
+    public ChunkHandoffQueue(int capacity, Policy policy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ring = new ChunkBufferPool.Chunk[capacity];
+        this.policy = policy;
+    }
+
+    /**
+     * Hands a filled chunk to the delivery side, applying the policy if the queue is full.
+     * Returns {@code false} if the chunk was not queued (dropped or the queue is closed).
+     */
+    public synchronized boolean offer(ChunkBufferPool.Chunk chunk) {
+        if (closed) {
+            drop(chunk);
+            return false;
+        }
+        if (size == ring.length) {
+            switch (policy) {
+                case BLOCK:
+                    long blockedAt = System.nanoTime();
+                    while (size == ring.length && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                    }
+                    blockedNanos += System.nanoTime() - blockedAt;
+                    if (size == ring.length || closed) {
+                        drop(chunk);
+                        droppedNewest++;
+                        return false;
+                    }
+                    break;
+                case DROP_OLDEST:
+                    ChunkBufferPool.Chunk oldest = ring[head];
+                    ring[head] = null;
+                    head = (head + 1) % ring.length;
+                    size--;
+                    if (size > 0) {
+                        ring[head].carrySpeechBoundaries(oldest.getSpeechStartMs(), oldest.getSpeechEndMs());
+                    } else {
+                        takePendingSpeechBoundaries(chunk);
+                        chunk.carrySpeechBoundaries(oldest.getSpeechStartMs(), oldest.getSpeechEndMs());
+                    }
+                    oldest.release();
+                    droppedOldest++;
+                    break;
+                case DROP_NEWEST:
+                    drop(chunk);
+                    droppedNewest++;
+                    return false;
+                case COALESCE:
+                    takePendingSpeechBoundaries(chunk);
+                    ring[(head + size - 1) % ring.length].append(chunk);
+                    coalesced++;
+                    return true;
+            }
+        }
+        takePendingSpeechBoundaries(chunk);
+        ring[(head + size) % ring.length] = chunk;
+        size++;
+        highWaterMark = Math.max(highWaterMark, size);
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Keeps the speech boundaries of audio that never got a chunk for the next chunk queued.
+     */
+    public synchronized void carrySpeechBoundaries(long startMs, long endMs) {
+        long pendingStart = pendingSpeechStartMs;
+        long pendingEnd = pendingSpeechEndMs;
+        pendingSpeechStartMs = ChunkBufferPool.Chunk.combinedStart(pendingStart, pendingEnd, startMs, endMs);
+        pendingSpeechEndMs = ChunkBufferPool.Chunk.combinedEnd(pendingStart, pendingEnd, startMs, endMs);
+    }
+
+    /**
+     * Blocks until a chunk is available and returns it, or returns {@code null} once the queue
+     * is closed and drained.
+     */
+    public synchronized ChunkBufferPool.Chunk take() throws InterruptedException {
+        while (size == 0 && !closed) {
+            wait();
+        }
+        if (size == 0) {
+            return null;
+        }
+        ChunkBufferPool.Chunk chunk = ring[head];
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        size--;
+        notifyAll();
+        return chunk;
+    }
+
+    /**
+     * Stops accepting chunks and wakes both sides. Chunks already queued can still be taken.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private void drop(ChunkBufferPool.Chunk chunk) {
+        carrySpeechBoundaries(chunk.getSpeechStartMs(), chunk.getSpeechEndMs());
+        chunk.release();
+    }
+
+    private void takePendingSpeechBoundaries(ChunkBufferPool.Chunk chunk) {
+        chunk.carrySpeechBoundaries(pendingSpeechStartMs, pendingSpeechEndMs);
+        pendingSpeechStartMs = -1;
+        pendingSpeechEndMs = -1;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public int getDepth() {
+        return size;
+    }
+
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    public long getDroppedOldest() {
+        return droppedOldest;
+    }
+
+    public long getDroppedNewest() {
+        return droppedNewest;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos;
+    }
+}
@@ -1,46 +1,135 @@
 package com.tchvu3.capacitorvoicerecorder;
 
 import android.content.Context;
+import android.media.MediaCodecInfo;
 import android.media.MediaRecorder;
 import android.os.Build;
 import android.os.Environment;
 import java.io.File;
 import java.io.IOException;
+import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Records to a file. AAC recordings run on the shared capture pipeline: an {@link AudioStreamer}
+ * feeding an {@link EncoderSink} that writes ADTS through an {@link AdtsFileWriter}. Codecs whose
+ * container the pipeline cannot write (Ogg, AMR) still use {@link MediaRecorder}.
+ */
 public class CustomMediaRecorder {
 
+    private static final int PIPELINE_CHUNK_DURATION_MS = 40;
+
     private final Context context;
     private final RecordOptions options;
     private MediaRecorder mediaRecorder;
+    private AudioStreamer pipeline;
+    private EncoderSink encoderSink;
+    private LevelMonitor levelMonitor;
+    private WaveformSink waveformSink;
+    private SegmentedAdtsWriter segmentWriter;
+    private RecordingJournal journal;
+    private volatile String journalId;
     private File outputFile;
     private CurrentRecordingStatus currentRecordingStatus = CurrentRecordingStatus.NONE;
 
-    public CustomMediaRecorder(Context context, RecordOptions options) throws IOException {
+    public CustomMediaRecorder(Context context, RecordOptions options) throws Exception {
         this.context = context;
         this.options = options;
-        generateMediaRecorder();
+        if (options.getCodec().isAdts()) {
+            generatePipeline();
+        } else {
+            generateMediaRecorder();
+        }
     }
 
     private void generateMediaRecorder() throws IOException {
         mediaRecorder = new MediaRecorder();
         mediaRecorder.setAudioSource(MediaRecorder.AudioSource.MIC);
-        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.AAC_ADTS);
-        mediaRecorder.setAudioEncoder(MediaRecorder.AudioEncoder.AAC);
-        mediaRecorder.setAudioEncodingBitRate(96000);
-        mediaRecorder.setAudioSamplingRate(44100);
-        setRecorderOutputFile();
+        mediaRecorder.setOutputFormat(options.getCodec().outputFormat);
+        mediaRecorder.setAudioEncoder(options.getCodec().audioEncoder);
+        mediaRecorder.setAudioEncodingBitRate(options.getBitRate());
+        mediaRecorder.setAudioSamplingRate(options.getSampleRate());
+        mediaRecorder.setAudioChannels(options.getChannelCount());
+        createOutputFile();
+        mediaRecorder.setOutputFile(outputFile.getAbsolutePath());
         mediaRecorder.prepare();
     }
 
-    private void setRecorderOutputFile() throws IOException {
+    private void generatePipeline() throws Exception {
+        createOutputFile();
+        int profile = options.getCodec() == RecordOptions.Codec.HE_AAC
+            ? MediaCodecInfo.CodecProfileLevel.AACObjectHE
+            : MediaCodecInfo.CodecProfileLevel.AACObjectLC;
+        encoderSink = new EncoderSink(options.getCodec().encoderMimeType, options.getBitRate(), profile);
+        if (options.isSegmented()) {
+            segmentWriter = new SegmentedAdtsWriter(
+                this::createSegmentFile,
+                options.getSegmentDurationMs(),
+                options.getSegmentMaxBytes()
+            );
+            encoderSink.addOutput(segmentWriter);
+        } else {
+            encoderSink.addOutput(new AdtsFileWriter(outputFile));
+        }
+        pipeline = new AudioStreamer(
+            new AudioStreamer.StreamingOptions(
+                options.getSampleRate(),
+                options.getChannelCount(),
+                "pcm16",
+                PIPELINE_CHUNK_DURATION_MS
+            )
+        );
+        pipeline.addSink(encoderSink);
+        waveformSink = new WaveformSink(WaveformPyramid.DEFAULT_SAMPLES_PER_PEAK);
+        pipeline.addSink(waveformSink);
+        try {
+            pipeline.prepare();
+        } catch (Exception e) {
+            deleteOutputFile();
+            throw e;
+        }
+    }
+
+    private void createOutputFile() throws IOException {
+        outputFile = createOutputFile(context, options, options.getCodec().fileExtension);
+    }
+
+    /**
+     * Segment 0 is the output file; later segments sit next to it with a {@code -NNN} suffix.
+     */
+    private File createSegmentFile(int index) throws IOException {
+        if (index == 0) {
+            return outputFile;
+        }
+        String extension = options.getCodec().fileExtension;
+        String name = outputFile.getName();
+        String base = name.endsWith(extension) ? name.substring(0, name.length() - extension.length()) : name;
+        String segmentName = String.format(Locale.ROOT, "%s-%03d%s", base, index, extension);
+        File file = new File(outputFile.getParentFile(), segmentName);
+        if (!file.createNewFile()) {
+            throw new IOException("Segment file already exists: " + file.getName());
+        }
+        if (options.getDirectory() == null) {
+            file.deleteOnExit();
+        }
+        if (journalId != null) {
+            journal.addFile(journalId, file);
+        }
+        return file;
+    }
+
+    /**
+     * Creates an empty {@code recording-*} file in the directory {@code options} name, or in the cache
+     * directory when they name none. Cache files are marked for deletion on exit.
+     */
+    static File createOutputFile(Context context, RecordOptions options, String extension) throws IOException {
         File outputDir = context.getCacheDir();
         String directory = options.getDirectory();
         String subDirectory = options.getSubDirectory();
 
         if (directory != null) {
-            outputDir = this.getDirectory(directory);
+            outputDir = getDirectory(context, directory);
             if (subDirectory != null) {
                 Pattern pattern = Pattern.compile("^/?(.+[^/])/?$");
                 Matcher matcher = pattern.matcher(subDirectory);
@@ -54,16 +143,16 @@ public class CustomMediaRecorder {
             }
         }
 
-        outputFile = File.createTempFile(String.format("recording-%d", System.currentTimeMillis()), ".aac", outputDir);
+        String prefix = String.format("recording-%d", System.currentTimeMillis());
+        File file = File.createTempFile(prefix, extension, outputDir);
 
         if (directory == null) {
-            outputFile.deleteOnExit();
+            file.deleteOnExit();
         }
-
-        mediaRecorder.setOutputFile(outputFile.getAbsolutePath());
+        return file;
     }
 
-    private File getDirectory(String directory) {
+    private static File getDirectory(Context context, String directory) {
         return switch (directory) {
             case "DOCUMENTS" -> Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_DOCUMENTS);
             case "DATA", "LIBRARY" -> context.getFilesDir();
@@ -74,32 +163,193 @@ public class CustomMediaRecorder {
         };
     }
 
-    public void startRecording() {
-        mediaRecorder.start();
+    /**
+     * Opens the microphone and keeps the last {@code preRollMs} of audio so {@link #startRecording(int)}
+     * can begin the file before it was called. Only recordings on the capture pipeline can pre-roll.
+     */
+    public void arm(int preRollMs) throws Exception {
+        if (pipeline == null) {
+            throw new Exception("Pre-roll is only supported for AAC recordings");
+        }
+        pipeline.arm(preRollMs);
+    }
+
+    public boolean isArmed() {
+        return pipeline != null && pipeline.isArmed();
+    }
+
+    /**
+     * Meters the recording. AAC recordings meter their PCM; MediaRecorder ones poll its peak
+     * amplitude. Set before {@link #startRecording()}.
+     */
+    public void setLevelMonitor(LevelMonitor monitor) {
+        levelMonitor = monitor;
+        if (monitor == null) {
+            return;
+        }
+        if (pipeline != null) {
+            pipeline.addSink(monitor);
+        } else {
+            monitor.setAmplitudeSource(mediaRecorder::getMaxAmplitude);
+        }
+    }
+
+    /**
+     * Lists the output files of AAC recordings in {@code journal} while they record, so a recording
+     * cut short by the process dying can be recovered. Set before {@link #startRecording()}.
+     */
+    public void setJournal(RecordingJournal journal) {
+        this.journal = journal;
+    }
+
+    public void startRecording() throws Exception {
+        startRecording(AudioStreamer.PRE_ROLL_ALL);
+    }
+
+    /**
+     * Starts recording, beginning with up to {@code preRollMs} of audio captured while armed.
+     */
+    public void startRecording(int preRollMs) throws Exception {
+        if (pipeline != null) {
+            if (journal != null) {
+                journalId = journal.begin(
+                    outputFile,
+                    options.getCodec().name(),
+                    options.getDirectory(),
+                    options.getSubDirectory()
+                );
+            }
+            try {
+                pipeline.startStreaming(preRollMs);
+            } catch (Exception e) {
+                endJournal();
+                throw e;
+            }
+        } else {
+            mediaRecorder.start();
+            if (levelMonitor != null) {
+                levelMonitor.startPolling();
+            }
+        }
         currentRecordingStatus = CurrentRecordingStatus.RECORDING;
     }
 
+    /**
+     * Pre-roll the current recording started with.
+     */
+    public int getPreRollMs() {
+        return pipeline != null ? pipeline.getPreRollMs() : 0;
+    }
+
     public void stopRecording() {
+        currentRecordingStatus = CurrentRecordingStatus.NONE;
+        if (pipeline != null) {
+            pipeline.stopStreaming();
+            // the file is complete now, even if the encoder failed on the way
+            endJournal();
+            IOException error = encoderSink.getError();
+            if (error == null && segmentWriter != null) {
+                // closing the last segment happens in stop, after the encoder thread is gone
+                error = segmentWriter.getError();
+            }
+            if (error != null) {
+                throw new IllegalStateException("stop failed: " + error.getMessage());
+            }
+            return;
+        }
+        if (levelMonitor != null) {
+            levelMonitor.stop();
+        }
         mediaRecorder.stop();
         mediaRecorder.release();
-        currentRecordingStatus = CurrentRecordingStatus.NONE;
+    }
+
+    /**
+     * Discards a recorder that was prepared but never started, including its empty output file.
+     */
+    public void release() {
+        if (pipeline != null) {
+            pipeline.release();
+            endJournal();
+        } else {
+            if (levelMonitor != null) {
+                levelMonitor.stop();
+            }
+            mediaRecorder.release();
+        }
+        deleteOutputFile();
+    }
+
+    private void endJournal() {
+        if (journalId != null) {
+            journal.end(journalId);
+            journalId = null;
+        }
     }
 
     public File getOutputFile() {
         return outputFile;
     }
 
+    public boolean isSegmented() {
+        return segmentWriter != null;
+    }
+
+    /**
+     * Receives every finished segment of a segmented recording, on the encoder thread and, for the
+     * last one, from {@link #stopRecording()}. Set before {@link #startRecording()}. Segments
+     * passed on are marked as delivered in the journal, so recovery leaves them out.
+     */
+    public void setSegmentListener(SegmentedAdtsWriter.Listener listener) {
+        segmentWriter.setListener(segment -> {
+            listener.onSegmentReady(segment);
+            String id = journalId;
+            if (id != null) {
+                try {
+                    journal.markDelivered(id, segment.file);
+                } catch (IOException ignore) {
+                    // recovery would report this segment a second time
+                }
+            }
+        });
+    }
+
+    public int getSegmentCount() {
+        return segmentWriter != null ? segmentWriter.getSegmentCount() : 0;
+    }
+
+    /**
+     * Total duration of the segments reported so far.
+     */
+    public long getSegmentedDurationMs() {
+        return segmentWriter != null ? segmentWriter.getDurationUs() / 1000 : 0;
+    }
+
+    /**
+     * Peaks of the finished recording, or {@code null} for recordings made by MediaRecorder.
+     */
+    public WaveformPyramid getWaveform() {
+        return waveformSink != null ? waveformSink.getPyramid() : null;
+    }
+
     public RecordOptions getRecordOptions() {
         return options;
     }
 
     public boolean pauseRecording() throws NotSupportedOsVersion {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
-            throw new NotSupportedOsVersion();
-        }
-
         if (currentRecordingStatus == CurrentRecordingStatus.RECORDING) {
-            mediaRecorder.pause();
+            if (encoderSink != null) {
+                encoderSink.setPaused(true);
+                waveformSink.setPaused(true);
+            } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+                // MediaRecorder only pauses from API 24; the pipeline pauses anywhere
+                throw new NotSupportedOsVersion();
+            } else {
+                mediaRecorder.pause();
+            }
+            if (levelMonitor != null) {
+                levelMonitor.setPaused(true);
+            }
             currentRecordingStatus = CurrentRecordingStatus.PAUSED;
             return true;
         } else {
@@ -108,12 +358,19 @@ public class CustomMediaRecorder {
     }
 
     public boolean resumeRecording() throws NotSupportedOsVersion {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
-            throw new NotSupportedOsVersion();
-        }
-
         if (currentRecordingStatus == CurrentRecordingStatus.PAUSED) {
-            mediaRecorder.resume();
+            if (encoderSink != null) {
+                encoderSink.setPaused(false);
+                waveformSink.setPaused(false);
+            } else if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+                // MediaRecorder only pauses from API 24; the pipeline pauses anywhere
+                throw new NotSupportedOsVersion();
+            } else {
+                mediaRecorder.resume();
+            }
+            if (levelMonitor != null) {
+                levelMonitor.setPaused(false);
+            }
             currentRecordingStatus = CurrentRecordingStatus.RECORDING;
             return true;
         } else {
@@ -0,0 +1,22 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.IOException;
+
+/**
+ * Consumer of the compressed frames produced by an {@link EncoderSink}. All calls come from the
+ * encoder thread.
+ */
+public interface EncodedAudioSink {
+    /**
+     * Called once before the first frame. {@code profile} is the MPEG-4 audio object type for AAC
+     * and {@code 0} otherwise.
+     */
+    void start(String mimeType, int sampleRate, int channelCount, int profile) throws IOException;
+
+    /**
+     * Receives one encoded access unit. {@code data} is reused after the call returns.
+     */
+    void write(byte[] data, int offset, int length, long presentationTimeUs) throws IOException;
+
+    void stop();
+}
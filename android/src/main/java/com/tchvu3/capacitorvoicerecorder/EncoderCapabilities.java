@@ -0,0 +1,92 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+
+/**
+ * Checks {@link RecordOptions} against the audio encoders the device actually has, so unsupported
+ * combinations are rejected up front instead of failing inside {@code MediaRecorder.prepare()} or
+ * being silently changed by the encoder.
+ */
+public final class EncoderCapabilities {
+
+    private static MediaCodecInfo[] codecInfos;
+
+    private EncoderCapabilities() {}
+
+    /**
+     * Throws {@link IllegalArgumentException} describing the first option the device cannot honour.
+     */
+    public static void validate(RecordOptions options) {
+        RecordOptions.Codec codec = options.getCodec();
+        if (options.isSegmented() && !codec.isAdts()) {
+            throw new IllegalArgumentException("Segmented recording requires an AAC codec");
+        }
+        if (Build.VERSION.SDK_INT < codec.minSdk) {
+            throw new IllegalArgumentException(codec.jsValue + " requires Android API " + codec.minSdk);
+        }
+
+        MediaCodecInfo.CodecCapabilities capabilities = findEncoder(codec);
+        if (capabilities == null) {
+            throw new IllegalArgumentException("No " + codec.jsValue + " encoder on this device");
+        }
+        MediaCodecInfo.AudioCapabilities audio = capabilities.getAudioCapabilities();
+        if (audio == null) {
+            return;
+        }
+        if (!audio.isSampleRateSupported(options.getSampleRate())) {
+            throw new IllegalArgumentException(
+                "Sample rate " + options.getSampleRate() + " is not supported by the " + codec.jsValue + " encoder"
+            );
+        }
+        if (!audio.getBitrateRange().contains(options.getBitRate())) {
+            throw new IllegalArgumentException(
+                "Bit rate " + options.getBitRate() + " is outside " + audio.getBitrateRange() + " for " + codec.jsValue
+            );
+        }
+        if (options.getChannelCount() < 1 || options.getChannelCount() > audio.getMaxInputChannelCount()) {
+            throw new IllegalArgumentException(
+                codec.jsValue + " supports at most " + audio.getMaxInputChannelCount() + " channels"
+            );
+        }
+        if (
+            codec == RecordOptions.Codec.HE_AAC &&
+            capabilities.profileLevels.length > 0 &&
+            !supportsProfile(capabilities, MediaCodecInfo.CodecProfileLevel.AACObjectHE)
+        ) {
+            throw new IllegalArgumentException("The AAC encoder does not support HE-AAC");
+        }
+    }
+
+    private static MediaCodecInfo.CodecCapabilities findEncoder(RecordOptions.Codec codec) {
+        for (MediaCodecInfo info : getCodecInfos()) {
+            if (!info.isEncoder()) {
+                continue;
+            }
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(codec.encoderMimeType)) {
+                    return info.getCapabilitiesForType(type);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean supportsProfile(MediaCodecInfo.CodecCapabilities capabilities, int profile) {
+        for (MediaCodecInfo.CodecProfileLevel level : capabilities.profileLevels) {
+            if (level.profile == profile) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static synchronized MediaCodecInfo[] getCodecInfos() {
+        if (codecInfos == null) {
+            // the codec list is fixed for the lifetime of the process and slow to enumerate
+            codecInfos = new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos();
+        }
+        return codecInfos;
+    }
+}
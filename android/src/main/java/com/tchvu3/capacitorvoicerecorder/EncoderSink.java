@@ -0,0 +1,349 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.os.Process;
+import android.util.Log;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compresses the PCM of an {@link AudioStreamer} with a {@link MediaCodec} encoder and hands the
+ * encoded frames to its {@link EncodedAudioSink outputs}.
+ * <p>
+ * The capture thread only copies PCM into a ring; a dedicated encoder thread feeds the codec from
+ * there and drains its output, so a slow codec or disk never stalls capture. If the encoder falls
+ * more than the ring behind, the oldest PCM is skipped and counted in {@link #getDroppedBytes()}.
+ */
+public class EncoderSink implements AudioSink {
+
+    private static final String TAG = "EncoderSink";
+    private static final int RING_SECONDS = 2;
+    private static final long INPUT_TIMEOUT_US = 10_000;
+    private static final long WAIT_TIMEOUT_MS = 10;
+    private static final long STOP_TIMEOUT_MS = 2000;
+
+    private final String mimeType;
+    private final int bitRate;
+    private final int profile;
+    private final List<EncodedAudioSink> outputs = new ArrayList<>();
+    private final Object lock = new Object();
+
+    private MediaCodec codec;
+    private Thread thread;
+    private PcmRingStore ring;
+    private PcmConverter.SampleFormat inputFormat;
+    private int inputFrameBytes;
+    private int channelCount;
+    private int sampleRate;
+    private byte[] readBuffer;
+    private byte[] pcm16Buffer;
+    private float[] convertScratch;
+    private byte[] frameBuffer = new byte[8192];
+    private long readPosition;
+    private long framesQueued;
+    private volatile boolean paused = false;
+    private volatile boolean stopping = false;
+    private volatile long droppedBytes = 0;
+    private volatile IOException error;
+
+    /**
+     * @param mimeType encoder type, e.g. {@link MediaFormat#MIMETYPE_AUDIO_AAC}
+     * @param profile  AAC object type ({@link MediaCodecInfo.CodecProfileLevel#AACObjectLC} or
+     *                 {@code AACObjectHE}), ignored for other types
+     */
+    public EncoderSink(String mimeType, int bitRate, int profile) {
+        this.mimeType = mimeType;
+        this.bitRate = bitRate;
+        this.profile = profile;
+    }
+
+    /**
+     * Adds a consumer of the encoded frames. Outputs must be added before {@link #start}.
+     */
+    public void addOutput(EncodedAudioSink output) {
+        outputs.add(output);
+    }
+
+    public List<EncodedAudioSink> getOutputs() {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    @Override
+    public void start(AudioStreamer.AudioStreamFormat format) throws IOException {
+        sampleRate = format.sampleRate;
+        channelCount = format.channelCount;
+        inputFormat = PcmConverter.SampleFormat.fromEncoding(format.encoding);
+        inputFrameBytes = inputFormat.bytesPerSample * channelCount;
+        ring = new PcmRingStore(sampleRate * inputFrameBytes * RING_SECONDS);
+
+        int maxInputBytes = sampleRate * channelCount * 2 / 10;
+        MediaFormat mediaFormat = MediaFormat.createAudioFormat(mimeType, sampleRate, channelCount);
+        mediaFormat.setInteger(MediaFormat.KEY_BIT_RATE, bitRate);
+        mediaFormat.setInteger(MediaFormat.KEY_MAX_INPUT_SIZE, maxInputBytes);
+        if (MediaFormat.MIMETYPE_AUDIO_AAC.equals(mimeType)) {
+            mediaFormat.setInteger(MediaFormat.KEY_AAC_PROFILE, profile);
+        }
+        try {
+            codec = MediaCodec.createEncoderByType(mimeType);
+            codec.configure(mediaFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            codec.start();
+        } catch (IOException | RuntimeException e) {
+            releaseCodec();
+            throw new IOException("Failed to start " + mimeType + " encoder: " + e.getMessage(), e);
+        }
+
+        int outputProfile = MediaFormat.MIMETYPE_AUDIO_AAC.equals(mimeType) ? profile : 0;
+        int started = 0;
+        try {
+            for (EncodedAudioSink output : outputs) {
+                output.start(mimeType, sampleRate, channelCount, outputProfile);
+                started++;
+            }
+        } catch (IOException e) {
+            for (int i = 0; i < started; i++) {
+                outputs.get(i).stop();
+            }
+            releaseCodec();
+            throw e;
+        }
+
+        // the ring is read in pieces of at most a tenth of a second, converted to PCM16 for the codec
+        int maxFrames = maxInputBytes / (2 * channelCount);
+        readBuffer = new byte[maxFrames * inputFrameBytes];
+        pcm16Buffer = inputFormat == PcmConverter.SampleFormat.PCM16
+            ? readBuffer
+            : new byte[maxFrames * 2 * channelCount];
+        convertScratch = new float[maxFrames * channelCount];
+        readPosition = 0;
+        framesQueued = 0;
+        droppedBytes = 0;
+        error = null;
+        paused = false;
+        stopping = false;
+        thread = new Thread(this::encodeLoop, "AudioEncoder");
+        thread.start();
+    }
+
+    @Override
+    public void write(byte[] data, int length, long framePosition) {
+        if (paused || stopping) {
+            return;
+        }
+        ring.write(data, 0, length);
+        synchronized (lock) {
+            lock.notify();
+        }
+    }
+
+    /**
+     * Drains the PCM written so far, ends the stream and stops the outputs.
+     */
+    @Override
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        stopping = true;
+        synchronized (lock) {
+            lock.notify();
+        }
+        // the encode loop gives up on its own after STOP_TIMEOUT_MS, and the codec and outputs
+        // below must not be released while it still uses them
+        boolean interrupted = false;
+        boolean warned = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join(STOP_TIMEOUT_MS + 500);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (thread.isAlive() && !warned) {
+                Log.w(TAG, "Encoder thread did not exit in time, still waiting");
+                warned = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        releaseCodec();
+        for (EncodedAudioSink output : outputs) {
+            output.stop();
+        }
+        if (droppedBytes > 0) {
+            Log.w(TAG, "Encoder skipped " + droppedBytes + " bytes of PCM it could not keep up with");
+        }
+    }
+
+    /**
+     * While paused, PCM is discarded instead of encoded; the encoded stream simply continues on resume.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * The error that ended encoding early, or {@code null}.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    private void encodeLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_AUDIO);
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        boolean inputDone = false;
+        long deadline = Long.MAX_VALUE;
+        try {
+            while (true) {
+                if (!inputDone) {
+                    inputDone = feedInput();
+                }
+                if (drainOutput(info)) {
+                    break;
+                }
+                if (stopping && deadline == Long.MAX_VALUE) {
+                    deadline = System.currentTimeMillis() + STOP_TIMEOUT_MS;
+                } else if (System.currentTimeMillis() > deadline) {
+                    Log.w(TAG, "Encoder did not signal end of stream");
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+            Log.e(TAG, "Writing encoded audio failed", e);
+        } catch (IllegalStateException e) {
+            error = new IOException("Encoder failed: " + e.getMessage(), e);
+            Log.e(TAG, "Encoder failed", e);
+        }
+    }
+
+    /**
+     * Queues the next piece of buffered PCM, or the end of stream once stopping and drained.
+     * Returns {@code true} after the end of stream was queued.
+     */
+    private boolean feedInput() {
+        long available = waitForInput();
+        if (available == 0) {
+            return false;
+        }
+        int index = codec.dequeueInputBuffer(INPUT_TIMEOUT_US);
+        if (index < 0) {
+            return false;
+        }
+        long presentationTimeUs = framesQueued * 1_000_000L / sampleRate;
+        if (available < 0) {
+            codec.queueInputBuffer(index, 0, 0, presentationTimeUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+            return true;
+        }
+
+        ByteBuffer input = codec.getInputBuffer(index);
+        int maxFrames = Math.min(input.capacity() / (2 * channelCount), readBuffer.length / inputFrameBytes);
+        int frames = (int) Math.min(available / inputFrameBytes, maxFrames);
+        int read = ring.read(readPosition, readBuffer, 0, frames * inputFrameBytes);
+        if (read < 0) {
+            // overwritten while the encoder was behind: skip to the oldest whole frame still buffered
+            long oldest = ring.getOldestPosition();
+            long resume = oldest + (inputFrameBytes - oldest % inputFrameBytes) % inputFrameBytes;
+            droppedBytes += resume - readPosition;
+            readPosition = resume;
+            codec.queueInputBuffer(index, 0, 0, presentationTimeUs, 0);
+            return false;
+        }
+        int samples = read / inputFormat.bytesPerSample;
+        int bytes = PcmConverter.convert(
+            inputFormat,
+            readBuffer,
+            0,
+            samples,
+            PcmConverter.SampleFormat.PCM16,
+            pcm16Buffer,
+            0,
+            convertScratch
+        );
+        input.clear();
+        input.put(pcm16Buffer, 0, bytes);
+        codec.queueInputBuffer(index, 0, bytes, presentationTimeUs, 0);
+        readPosition += read;
+        framesQueued += read / inputFrameBytes;
+        return false;
+    }
+
+    /**
+     * Returns the number of whole-frame bytes waiting in the ring, waiting briefly for more, or
+     * {@code -1} once stopping with nothing left.
+     */
+    private long waitForInput() {
+        synchronized (lock) {
+            long available = ring.getWritePosition() - readPosition;
+            if (available < inputFrameBytes && !stopping) {
+                try {
+                    lock.wait(WAIT_TIMEOUT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                available = ring.getWritePosition() - readPosition;
+            }
+            if (available < inputFrameBytes) {
+                return stopping ? -1 : 0;
+            }
+            return available - available % inputFrameBytes;
+        }
+    }
+
+    /**
+     * Passes every encoded frame that is ready to the outputs. Returns {@code true} at end of stream.
+     */
+    private boolean drainOutput(MediaCodec.BufferInfo info) throws IOException {
+        int index;
+        while ((index = codec.dequeueOutputBuffer(info, 0)) != MediaCodec.INFO_TRY_AGAIN_LATER) {
+            if (index < 0) {
+                // format and buffer changes need nothing: outputs only take raw frames
+                continue;
+            }
+            boolean config = (info.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0;
+            if (!config && info.size > 0) {
+                ByteBuffer output = codec.getOutputBuffer(index);
+                if (frameBuffer.length < info.size) {
+                    frameBuffer = new byte[info.size];
+                }
+                output.position(info.offset);
+                output.get(frameBuffer, 0, info.size);
+                for (EncodedAudioSink sink : outputs) {
+                    sink.write(frameBuffer, 0, info.size, info.presentationTimeUs);
+                }
+            }
+            codec.releaseOutputBuffer(index, false);
+            if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void releaseCodec() {
+        if (codec == null) {
+            return;
+        }
+        try {
+            codec.stop();
+        } catch (IllegalStateException ignored) {
+            // never started or already failed
+        }
+        codec.release();
+        codec = null;
+    }
+}
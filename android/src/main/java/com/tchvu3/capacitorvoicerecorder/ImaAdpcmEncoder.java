@@ -0,0 +1,104 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * IMA ADPCM: four bits per sample, a quarter of the size of PCM16.
+ * <p>
+ * Each chunk starts with a four byte header per channel holding the predictor (little-endian
+ * int16), the step index and a zero byte, followed by one nibble per sample in interleaved order,
+ * low nibble first. The header carries the encoder state at the start of the chunk, so chunks
+ * decode independently while the encoder itself runs continuously across them.
+ */
+public class ImaAdpcmEncoder implements ChunkEncoder {
+
+    public static final String ENCODING = "ima-adpcm";
+
+    static final int HEADER_BYTES_PER_CHANNEL = 4;
+
+    static final int[] INDEX_TABLE = { -1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8 };
+
+    static final int[] STEP_TABLE = {
+        7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55, 60, 66, 73, 80, 88, 97,
+        107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658, 724, 796,
+        876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428,
+        4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818, 18500, 20350,
+        22385, 24623, 27086, 29794, 32767
+    };
+
+    private final int channelCount;
+    private final int[] predictors;
+    private final int[] stepIndices;
+
+    public ImaAdpcmEncoder(int channelCount) {
+        this.channelCount = channelCount;
+        this.predictors = new int[channelCount];
+        this.stepIndices = new int[channelCount];
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public int getMaxEncodedLength(int frameCount) {
+        return HEADER_BYTES_PER_CHANNEL * channelCount + (frameCount * channelCount + 1) / 2;
+    }
+
+    @Override
+    public int encode(byte[] pcm16, int offset, int frameCount, byte[] target) {
+        int out = 0;
+        for (int channel = 0; channel < channelCount; channel++) {
+            target[out++] = (byte) predictors[channel];
+            target[out++] = (byte) (predictors[channel] >> 8);
+            target[out++] = (byte) stepIndices[channel];
+            target[out++] = 0;
+        }
+        int samples = frameCount * channelCount;
+        for (int i = 0, in = offset; i < samples; i++, in += 2) {
+            int channel = i % channelCount;
+            int code = encodeSample(channel, (short) ((pcm16[in] & 0xff) | (pcm16[in + 1] << 8)));
+            if ((i & 1) == 0) {
+                target[out] = (byte) code;
+            } else {
+                target[out++] |= (byte) (code << 4);
+            }
+        }
+        if ((samples & 1) != 0) {
+            out++;
+        }
+        return out;
+    }
+
+    private int encodeSample(int channel, int sample) {
+        int predictor = predictors[channel];
+        int index = stepIndices[channel];
+        int step = STEP_TABLE[index];
+        int diff = sample - predictor;
+        int code = 0;
+        if (diff < 0) {
+            code = 8;
+            diff = -diff;
+        }
+        int delta = step >> 3;
+        if (diff >= step) {
+            code |= 4;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 2;
+            diff -= step;
+            delta += step;
+        }
+        step >>= 1;
+        if (diff >= step) {
+            code |= 1;
+            delta += step;
+        }
+        predictor += (code & 8) != 0 ? -delta : delta;
+        predictors[channel] = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predictor));
+        stepIndices[channel] = Math.max(0, Math.min(STEP_TABLE.length - 1, index + INDEX_TABLE[code]));
+        return code;
+    }
+}
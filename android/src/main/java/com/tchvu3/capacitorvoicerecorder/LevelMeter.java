@@ -0,0 +1,85 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * RMS and peak level over consecutive windows of interleaved PCM, in dBFS.
+ * <p>
+ * Runs on the capture thread for every read: windows may span several reads and a read may
+ * complete several windows, and nothing is allocated. Both values cover all channels.
+ */
+public class LevelMeter {
+
+    public static final int DEFAULT_WINDOW_MS = 50;
+    public static final float SILENCE_DB = -100f;
+
+    private final int channelCount;
+    private final PcmConverter.SampleFormat format;
+    private final int windowFrames;
+
+    private int framesInWindow = 0;
+    private double sumSquares = 0;
+    private float peak = 0;
+    private long framePosition = 0;
+    private float rmsDb = SILENCE_DB;
+    private float peakDb = SILENCE_DB;
+    private long windowEndFrame = -1;
+
+    public LevelMeter(int sampleRate, int channelCount, PcmConverter.SampleFormat format, int windowMs) {
+        this.channelCount = channelCount;
+        this.format = format;
+        this.windowFrames = (int) Math.max(1, (long) sampleRate * windowMs / 1000);
+    }
+
+    /**
+     * Measures {@code frameCount} frames and returns whether at least one window completed. The
+     * RMS is then that of the last window completed, the peak the highest of all of them.
+     */
+    public boolean process(byte[] data, int offset, int frameCount) {
+        boolean completed = false;
+        float maxPeak = 0;
+        int index = offset;
+        for (int i = 0; i < frameCount; i++) {
+            for (int channel = 0; channel < channelCount; channel++, index += format.bytesPerSample) {
+                float sample = PcmConverter.sampleAt(format, data, index);
+                sumSquares += sample * sample;
+                float magnitude = Math.abs(sample);
+                if (magnitude > peak) {
+                    peak = magnitude;
+                }
+            }
+            framePosition++;
+            if (++framesInWindow == windowFrames) {
+                double meanSquare = sumSquares / ((long) windowFrames * channelCount);
+                rmsDb = toDb(Math.sqrt(meanSquare));
+                maxPeak = Math.max(maxPeak, peak);
+                windowEndFrame = framePosition;
+                framesInWindow = 0;
+                sumSquares = 0;
+                peak = 0;
+                completed = true;
+            }
+        }
+        if (completed) {
+            peakDb = toDb(maxPeak);
+        }
+        return completed;
+    }
+
+    public float getRmsDb() {
+        return rmsDb;
+    }
+
+    public float getPeakDb() {
+        return peakDb;
+    }
+
+    /**
+     * Frame position just past the last completed window, or {@code -1} before the first.
+     */
+    public long getWindowEndFrame() {
+        return windowEndFrame;
+    }
+
+    static float toDb(double amplitude) {
+        return amplitude > 1e-5 ? (float) (20 * Math.log10(amplitude)) : SILENCE_DB;
+    }
+}
@@ -0,0 +1,115 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import com.getcapacitor.JSObject;
+import java.util.function.IntSupplier;
+
+/**
+ * Emits throttled {@code audioLevel} events for a stream or recording.
+ * <p>
+ * As an {@link AudioSink} it meters the captured PCM with a {@link LevelMeter} on the capture
+ * thread and only keeps the result. Each event carries the RMS of the latest window and the
+ * highest peak since the previous event, so throttling never hides a transient. Recordings made by
+ * {@link android.media.MediaRecorder} have no PCM to meter; they poll an amplitude source instead,
+ * which yields the peak only.
+ */
+public class LevelMonitor extends ThrottledEmitter implements AudioSink {
+
+    public static final String AUDIO_LEVEL_EVENT = "audioLevel";
+    public static final int DEFAULT_INTERVAL_MS = 100;
+    private static final float PCM16_FULL_SCALE = 32768f;
+
+    private final int windowMs;
+    private IntSupplier amplitudeSource;
+    private LevelMeter meter;
+    private int sampleRate;
+    private int frameBytes;
+    private long startNanos;
+    // guarded by this
+    private float rmsDb;
+    private float peakDb;
+    private long windowEndFrame;
+    // handler thread only
+    private float takenRmsDb;
+    private float takenPeakDb;
+    private long takenEndFrame;
+
+    public LevelMonitor(AudioChunkDispatcher.EventSink events, int windowMs, int intervalMs) {
+        super(events, AUDIO_LEVEL_EVENT, "LevelMonitor", intervalMs);
+        this.windowMs = Math.max(1, windowMs);
+    }
+
+    /**
+     * Polls {@code source} for the peak amplitude (PCM16 scale) since its previous call instead of
+     * metering PCM. Start it with {@link #startPolling()}.
+     */
+    public void setAmplitudeSource(IntSupplier source) {
+        this.amplitudeSource = source;
+    }
+
+    @Override
+    public void start(AudioStreamer.AudioStreamFormat format) {
+        PcmConverter.SampleFormat sampleFormat = PcmConverter.SampleFormat.fromEncoding(format.encoding);
+        sampleRate = format.sampleRate;
+        frameBytes = sampleFormat.bytesPerSample * format.channelCount;
+        meter = new LevelMeter(format.sampleRate, format.channelCount, sampleFormat, windowMs);
+        startPolling();
+    }
+
+    @Override
+    public void write(byte[] data, int length, long framePosition) {
+        if (meter.process(data, 0, length / frameBytes)) {
+            publish();
+        }
+    }
+
+    public void startPolling() {
+        startNanos = System.nanoTime();
+        startTicking();
+    }
+
+    @Override
+    protected void copyResult(boolean pending) {
+        rmsDb = meter.getRmsDb();
+        peakDb = pending ? Math.max(peakDb, meter.getPeakDb()) : meter.getPeakDb();
+        windowEndFrame = meter.getWindowEndFrame();
+    }
+
+    @Override
+    protected void takeResult() {
+        takenRmsDb = rmsDb;
+        takenPeakDb = peakDb;
+        takenEndFrame = windowEndFrame;
+    }
+
+    @Override
+    protected JSObject buildEvent() {
+        JSObject data = new JSObject();
+        data.put("rms", roundDb(takenRmsDb));
+        data.put("peak", roundDb(takenPeakDb));
+        data.put("timestamp", takenEndFrame * 1000 / sampleRate);
+        return data;
+    }
+
+    @Override
+    protected JSObject nextEvent() {
+        return amplitudeSource != null ? pollAmplitude() : super.nextEvent();
+    }
+
+    private JSObject pollAmplitude() {
+        int amplitude;
+        try {
+            amplitude = amplitudeSource.getAsInt();
+        } catch (IllegalStateException e) {
+            // the recorder stopped between ticks
+            return null;
+        }
+        JSObject data = new JSObject();
+        data.put("peak", roundDb(LevelMeter.toDb(amplitude / PCM16_FULL_SCALE)));
+        data.put("timestamp", (System.nanoTime() - startNanos) / 1_000_000);
+        return data;
+    }
+
+    private static double roundDb(float db) {
+        return Math.round(db * 10) / 10.0;
+    }
+}
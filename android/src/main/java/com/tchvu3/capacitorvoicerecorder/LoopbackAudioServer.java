@@ -0,0 +1,255 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.util.Log;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal HTTP server bound to the loopback interface that serves raw PCM out of a
+ * {@link PcmRingStore}, so audio bytes reach the WebView with {@code fetch()} instead of
+ * crossing the Capacitor bridge as Base64.
+ * <p>
+ * Requests look like {@code GET /audio?token=...&from=0&to=3200} (end exclusive) or carry a
+ * {@code Range: bytes=first-last} header. A random token keeps other apps on the device from
+ * reading the stream. Requests are served by a small pool, so one stalled client does not hold up
+ * the others.
+ */
+public class LoopbackAudioServer {
+
+    private static final String TAG = "LoopbackAudioServer";
+    private static final int SOCKET_TIMEOUT_MS = 5000;
+    private static final int COPY_BUFFER_SIZE = 16 * 1024;
+    private static final int HANDLER_THREADS = 4;
+
+    private final PcmRingStore store;
+    private final String token;
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private ExecutorService handlers;
+    private volatile boolean running = false;
+
+    public LoopbackAudioServer(PcmRingStore store) {
+        this.store = store;
+        this.token = generateToken();
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0, 8, InetAddress.getLoopbackAddress());
+        running = true;
+        handlers = Executors.newFixedThreadPool(
+            HANDLER_THREADS,
+            runnable -> new Thread(runnable, "LoopbackAudioHandler")
+        );
+        serverThread = new Thread(this::acceptLoop, "LoopbackAudioServer");
+        serverThread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignore) {}
+            serverSocket = null;
+        }
+        if (serverThread != null) {
+            try {
+                serverThread.join(SOCKET_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            serverThread = null;
+        }
+        if (handlers != null) {
+            // requests in flight finish or run into the socket timeout
+            handlers.shutdown();
+            try {
+                handlers.awaitTermination(SOCKET_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handlers = null;
+        }
+    }
+
+    public String getUrl() {
+        return String.format(Locale.US, "http://127.0.0.1:%d/audio?token=%s", serverSocket.getLocalPort(), token);
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException exp) {
+                if (running) {
+                    Log.w(TAG, "Failed to accept audio request", exp);
+                }
+                continue;
+            }
+            try {
+                handlers.execute(() -> serve(socket));
+            } catch (RejectedExecutionException exp) {
+                // stopping
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            socket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            handle(socket);
+        } catch (IOException exp) {
+            if (running) {
+                Log.w(TAG, "Failed to serve audio request", exp);
+            }
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignore) {}
+    }
+
+    private void handle(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)
+        );
+        String requestLine = reader.readLine();
+        if (requestLine == null) {
+            return;
+        }
+        String rangeHeader = null;
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("range")) {
+                rangeHeader = line.substring(colon + 1).trim();
+            }
+        }
+
+        OutputStream out = socket.getOutputStream();
+        String[] parts = requestLine.split(" ");
+        if (parts.length < 2) {
+            writeHead(out, 400, "Bad Request", 0, null);
+            return;
+        }
+        if (parts[0].equals("OPTIONS")) {
+            writeHead(out, 204, "No Content", 0, null);
+            return;
+        }
+        if (!parts[0].equals("GET")) {
+            writeHead(out, 405, "Method Not Allowed", 0, null);
+            return;
+        }
+
+        String query = parts[1].contains("?") ? parts[1].substring(parts[1].indexOf('?') + 1) : "";
+        if (!token.equals(queryParam(query, "token"))) {
+            writeHead(out, 403, "Forbidden", 0, null);
+            return;
+        }
+
+        long writePosition = store.getWritePosition();
+        long from = store.getOldestPosition();
+        long to = writePosition;
+        try {
+            String fromParam = queryParam(query, "from");
+            String toParam = queryParam(query, "to");
+            if (fromParam != null) from = Long.parseLong(fromParam);
+            if (toParam != null) to = Long.parseLong(toParam);
+            if (rangeHeader != null && rangeHeader.startsWith("bytes=")) {
+                String[] range = rangeHeader.substring(6).split("-", 2);
+                from = Long.parseLong(range[0].trim());
+                if (range.length > 1 && !range[1].trim().isEmpty()) {
+                    to = Long.parseLong(range[1].trim()) + 1;
+                }
+            }
+        } catch (NumberFormatException exp) {
+            writeHead(out, 400, "Bad Request", 0, null);
+            return;
+        }
+
+        to = Math.min(to, writePosition);
+        if (from < store.getOldestPosition() || from > to) {
+            writeHead(out, 416, "Range Not Satisfiable", 0, "Content-Range: bytes */" + writePosition + "\r\n");
+            return;
+        }
+
+        if (from == to) {
+            // polled at the write head: nothing new yet, and no byte range to describe
+            writeHead(out, 204, "No Content", 0, null);
+            return;
+        }
+
+        long length = to - from;
+        String contentRange = "Content-Range: bytes " + from + "-" + (to - 1) + "/" + writePosition + "\r\n";
+        writeHead(out, 206, "Partial Content", length, contentRange);
+        byte[] copyBuffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, length)];
+        long position = from;
+        while (position < to) {
+            int read = store.read(position, copyBuffer, 0, (int) Math.min(copyBuffer.length, to - position));
+            if (read <= 0) {
+                // overwritten while streaming out; the client sees a short body
+                break;
+            }
+            out.write(copyBuffer, 0, read);
+            position += read;
+        }
+        out.flush();
+    }
+
+    private static void writeHead(OutputStream out, int status, String reason, long contentLength, String extraHeaders)
+        throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append("\r\n");
+        head.append("Access-Control-Allow-Origin: *\r\n");
+        head.append("Access-Control-Allow-Methods: GET, OPTIONS\r\n");
+        head.append("Access-Control-Allow-Headers: Range\r\n");
+        head.append("Access-Control-Allow-Private-Network: true\r\n");
+        head.append("Access-Control-Expose-Headers: Content-Range, Content-Length\r\n");
+        head.append("Cache-Control: no-store\r\n");
+        head.append("Content-Type: application/octet-stream\r\n");
+        head.append("Content-Length: ").append(contentLength).append("\r\n");
+        if (extraHeaders != null) {
+            head.append(extraHeaders);
+        }
+        head.append("Connection: close\r\n\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String queryParam(String query, String name) {
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    private static String generateToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format(Locale.US, "%02x", b));
+        }
+        return hex.toString();
+    }
+}
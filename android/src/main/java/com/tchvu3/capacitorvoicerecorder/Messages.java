@@ -11,4 +11,7 @@ public abstract class Messages {
     public static final String ALREADY_RECORDING = "ALREADY_RECORDING";
     public static final String EMPTY_RECORDING = "EMPTY_RECORDING";
     public static final String MICROPHONE_BEING_USED = "MICROPHONE_BEING_USED";
+    public static final String RECORDING_NOT_FOUND = "RECORDING_NOT_FOUND";
+    public static final String FAILED_TO_PREPARE = "FAILED_TO_PREPARE";
+    public static final String UNSUPPORTED_RECORDING_OPTIONS = "UNSUPPORTED_RECORDING_OPTIONS";
 }
@@ -0,0 +1,59 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * ITU-T G.711 mu-law: one byte per sample, half the size of PCM16 with telephone-grade quality.
+ */
+public class MuLawEncoder implements ChunkEncoder {
+
+    public static final String ENCODING = "mulaw";
+
+    private static final int BIAS = 0x84;
+    private static final int CLIP = 32635;
+
+    private final int channelCount;
+
+    public MuLawEncoder(int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public int getMaxEncodedLength(int frameCount) {
+        return frameCount * channelCount;
+    }
+
+    @Override
+    public int encode(byte[] pcm16, int offset, int frameCount, byte[] target) {
+        int samples = frameCount * channelCount;
+        for (int i = 0, in = offset; i < samples; i++, in += 2) {
+            target[i] = encode((short) ((pcm16[in] & 0xff) | (pcm16[in + 1] << 8)));
+        }
+        return samples;
+    }
+
+    static byte encode(short sample) {
+        int value = sample;
+        int sign = (value >> 8) & 0x80;
+        if (sign != 0) {
+            value = -value;
+        }
+        value = Math.min(value, CLIP) + BIAS;
+        int exponent = 7;
+        for (int mask = 0x4000; (value & mask) == 0 && exponent > 0; mask >>= 1) {
+            exponent--;
+        }
+        int mantissa = (value >> (exponent + 3)) & 0x0f;
+        return (byte) ~(sign | (exponent << 4) | mantissa);
+    }
+
+    static short decode(byte encoded) {
+        int value = ~encoded & 0xff;
+        int exponent = (value >> 4) & 0x07;
+        int magnitude = ((((value & 0x0f) << 3) + BIAS) << exponent) - BIAS;
+        return (short) ((value & 0x80) != 0 ? -magnitude : magnitude);
+    }
+}
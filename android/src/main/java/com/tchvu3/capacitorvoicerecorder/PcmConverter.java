@@ -0,0 +1,246 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Sample format conversions between little-endian pcm8 (unsigned), pcm16, pcm24 (packed) and
+ * float32.
+ * <p>
+ * Every method writes into caller-provided arrays and allocates nothing, so it can run on the
+ * capture thread for every chunk. Floats use the usual [-1, 1) range; out-of-range values
+ * are clipped when encoding to integer formats. Pure Java, so it is unit tested and benchmarked on
+ * the JVM.
+ */
+public final class PcmConverter {
+
+    public enum SampleFormat {
+        PCM8(1),
+        PCM16(2),
+        PCM24(3),
+        FLOAT32(4);
+
+        public final int bytesPerSample;
+
+        SampleFormat(int bytesPerSample) {
+            this.bytesPerSample = bytesPerSample;
+        }
+
+        public static SampleFormat fromEncoding(String encoding) {
+            return switch (encoding) {
+                case "pcm8" -> PCM8;
+                case "pcm24" -> PCM24;
+                case "float32" -> FLOAT32;
+                case "pcm16" -> PCM16;
+                default -> throw new IllegalArgumentException("Unsupported PCM encoding: " + encoding);
+            };
+        }
+    }
+
+    private static final float PCM8_SCALE = 128f;
+    private static final float PCM16_SCALE = 32768f;
+    private static final float PCM24_SCALE = 8388608f;
+
+    private PcmConverter() {}
+
+    /**
+     * Decodes {@code sampleCount} samples of {@code format} from {@code source} into floats.
+     */
+    public static void toFloat(
+        SampleFormat format,
+        byte[] source,
+        int sourceOffset,
+        int sampleCount,
+        float[] target,
+        int targetOffset
+    ) {
+        int in = sourceOffset;
+        int out = targetOffset;
+        int end = targetOffset + sampleCount;
+        switch (format) {
+            case PCM8:
+                for (; out < end; out++, in++) {
+                    target[out] = ((source[in] & 0xff) - 128) / PCM8_SCALE;
+                }
+                break;
+            case PCM16:
+                for (; out < end; out++, in += 2) {
+                    target[out] = (short) ((source[in] & 0xff) | (source[in + 1] << 8)) / PCM16_SCALE;
+                }
+                break;
+            case PCM24:
+                for (; out < end; out++, in += 3) {
+                    int value = (source[in] & 0xff) | ((source[in + 1] & 0xff) << 8) | (source[in + 2] << 16);
+                    target[out] = value / PCM24_SCALE;
+                }
+                break;
+            case FLOAT32:
+                for (; out < end; out++, in += 4) {
+                    target[out] = Float.intBitsToFloat(
+                        (source[in] & 0xff) |
+                        ((source[in + 1] & 0xff) << 8) |
+                        ((source[in + 2] & 0xff) << 16) |
+                        (source[in + 3] << 24)
+                    );
+                }
+                break;
+        }
+    }
+
+    /**
+     * Encodes {@code sampleCount} floats into {@code format} bytes.
+     */
+    public static void fromFloat(
+        SampleFormat format,
+        float[] source,
+        int sourceOffset,
+        int sampleCount,
+        byte[] target,
+        int targetOffset
+    ) {
+        int in = sourceOffset;
+        int out = targetOffset;
+        int end = sourceOffset + sampleCount;
+        switch (format) {
+            case PCM8:
+                for (; in < end; in++, out++) {
+                    target[out] = (byte) (clip(Math.round(source[in] * PCM8_SCALE), -128, 127) + 128);
+                }
+                break;
+            case PCM16:
+                for (; in < end; in++, out += 2) {
+                    int value = clip(Math.round(source[in] * PCM16_SCALE), Short.MIN_VALUE, Short.MAX_VALUE);
+                    target[out] = (byte) value;
+                    target[out + 1] = (byte) (value >> 8);
+                }
+                break;
+            case PCM24:
+                for (; in < end; in++, out += 3) {
+                    int value = clip(Math.round(source[in] * PCM24_SCALE), -8388608, 8388607);
+                    target[out] = (byte) value;
+                    target[out + 1] = (byte) (value >> 8);
+                    target[out + 2] = (byte) (value >> 16);
+                }
+                break;
+            case FLOAT32:
+                for (; in < end; in++, out += 4) {
+                    int bits = Float.floatToRawIntBits(source[in]);
+                    target[out] = (byte) bits;
+                    target[out + 1] = (byte) (bits >> 8);
+                    target[out + 2] = (byte) (bits >> 16);
+                    target[out + 3] = (byte) (bits >> 24);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Converts {@code sampleCount} samples between two byte formats. {@code scratch} must hold at
+     * least {@code sampleCount} floats; it is not touched when no intermediate step is needed.
+     * Returns the number of bytes written.
+     */
+    public static int convert(
+        SampleFormat from,
+        byte[] source,
+        int sourceOffset,
+        int sampleCount,
+        SampleFormat to,
+        byte[] target,
+        int targetOffset,
+        float[] scratch
+    ) {
+        int bytes = sampleCount * to.bytesPerSample;
+        if (from == to) {
+            System.arraycopy(source, sourceOffset, target, targetOffset, bytes);
+        } else if (from == SampleFormat.PCM16 && to == SampleFormat.FLOAT32) {
+            pcm16BytesToFloat32Bytes(source, sourceOffset, sampleCount, target, targetOffset);
+        } else {
+            toFloat(from, source, sourceOffset, sampleCount, scratch, 0);
+            fromFloat(to, scratch, 0, sampleCount, target, targetOffset);
+        }
+        return bytes;
+    }
+
+    public static void pcm16ToFloat(
+        short[] source,
+        int sourceOffset,
+        float[] target,
+        int targetOffset,
+        int sampleCount
+    ) {
+        for (int i = 0; i < sampleCount; i++) {
+            target[targetOffset + i] = source[sourceOffset + i] / PCM16_SCALE;
+        }
+    }
+
+    /**
+     * Writes {@code sampleCount} floats as little-endian float32 bytes.
+     */
+    public static void writeFloat32(
+        float[] source,
+        int sourceOffset,
+        int sampleCount,
+        byte[] target,
+        int targetOffset
+    ) {
+        fromFloat(SampleFormat.FLOAT32, source, sourceOffset, sampleCount, target, targetOffset);
+    }
+
+    /**
+     * Converts pcm16 samples to little-endian float32 bytes.
+     */
+    public static void pcm16ToFloat32Bytes(
+        short[] source,
+        int sourceOffset,
+        int sampleCount,
+        byte[] target,
+        int targetOffset
+    ) {
+        for (int i = 0, out = targetOffset; i < sampleCount; i++, out += 4) {
+            int bits = Float.floatToRawIntBits(source[sourceOffset + i] / PCM16_SCALE);
+            target[out] = (byte) bits;
+            target[out + 1] = (byte) (bits >> 8);
+            target[out + 2] = (byte) (bits >> 16);
+            target[out + 3] = (byte) (bits >> 24);
+        }
+    }
+
+    private static void pcm16BytesToFloat32Bytes(
+        byte[] source,
+        int sourceOffset,
+        int sampleCount,
+        byte[] target,
+        int targetOffset
+    ) {
+        for (int i = 0, in = sourceOffset, out = targetOffset; i < sampleCount; i++, in += 2, out += 4) {
+            float sample = (short) ((source[in] & 0xff) | (source[in + 1] << 8)) / PCM16_SCALE;
+            int bits = Float.floatToRawIntBits(sample);
+            target[out] = (byte) bits;
+            target[out + 1] = (byte) (bits >> 8);
+            target[out + 2] = (byte) (bits >> 16);
+            target[out + 3] = (byte) (bits >> 24);
+        }
+    }
+
+    /**
+     * Decodes the single sample of {@code format} at byte {@code index}, for analysis loops that
+     * only read one channel or track a running statistic.
+     */
+    static float sampleAt(SampleFormat format, byte[] data, int index) {
+        return switch (format) {
+            case PCM8 -> ((data[index] & 0xff) - 128) / PCM8_SCALE;
+            case PCM16 -> (short) ((data[index] & 0xff) | (data[index + 1] << 8)) / PCM16_SCALE;
+            case PCM24 -> {
+                int value = (data[index] & 0xff) | ((data[index + 1] & 0xff) << 8) | (data[index + 2] << 16);
+                yield value / PCM24_SCALE;
+            }
+            case FLOAT32 -> Float.intBitsToFloat(
+                (data[index] & 0xff) |
+                ((data[index + 1] & 0xff) << 8) |
+                ((data[index + 2] & 0xff) << 16) |
+                (data[index + 3] << 24)
+            );
+        };
+    }
+
+    private static int clip(int value, int min, int max) {
+        return value < min ? min : Math.min(value, max);
+    }
+}
@@ -0,0 +1,76 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Fixed-capacity byte ring addressed by absolute stream offsets.
+ * <p>
+ * The writer appends captured audio and gets back the absolute offset it was stored at. Readers
+ * ask for a byte range by absolute offset; once the writer has wrapped past a range it is gone.
+ */
+public class PcmRingStore {
+
+    private final byte[] ring;
+    private long writePosition = 0;
+
+    public PcmRingStore(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.ring = new byte[capacity];
+    }
+
+    /**
+     * Appends {@code length} bytes and returns the absolute offset of the first one.
+     */
+    public synchronized long write(byte[] source, int offset, int length) {
+        long start = writePosition;
+        int remaining = length;
+        int sourceOffset = offset;
+        if (remaining > ring.length) {
+            // only the tail fits, the head is overwritten immediately anyway
+            sourceOffset += remaining - ring.length;
+            writePosition += remaining - ring.length;
+            remaining = ring.length;
+        }
+        while (remaining > 0) {
+            int ringOffset = (int) (writePosition % ring.length);
+            int count = Math.min(remaining, ring.length - ringOffset);
+            System.arraycopy(source, sourceOffset, ring, ringOffset, count);
+            sourceOffset += count;
+            writePosition += count;
+            remaining -= count;
+        }
+        return start;
+    }
+
+    /**
+     * Copies up to {@code length} bytes starting at absolute {@code position}. Returns the number
+     * of bytes copied, {@code 0} if nothing has been written there yet, or {@code -1} if the range
+     * has already been overwritten.
+     */
+    public synchronized int read(long position, byte[] target, int targetOffset, int length) {
+        if (position < getOldestPosition()) {
+            return -1;
+        }
+        int available = (int) Math.max(0, Math.min(length, writePosition - position));
+        int copied = 0;
+        while (copied < available) {
+            int ringOffset = (int) ((position + copied) % ring.length);
+            int count = Math.min(available - copied, ring.length - ringOffset);
+            System.arraycopy(ring, ringOffset, target, targetOffset + copied, count);
+            copied += count;
+        }
+        return copied;
+    }
+
+    public synchronized long getWritePosition() {
+        return writePosition;
+    }
+
+    public synchronized long getOldestPosition() {
+        return Math.max(0, writePosition - ring.length);
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+}
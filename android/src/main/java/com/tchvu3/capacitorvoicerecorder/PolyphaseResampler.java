@@ -0,0 +1,191 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Arrays;
+
+/**
+ * Streaming rational sample rate converter built on a Kaiser-windowed sinc polyphase filter bank.
+ * <p>
+ * The ratio is reduced to {@code outputRate / inputRate = L / M}. Each output frame is one dot
+ * product of a few input samples with the coefficients of its phase, so the cost per output
+ * sample depends only on the {@link Quality} and the decimation ratio. Filter history and the
+ * fractional read position carry over between {@link #process} calls, so chunk boundaries are
+ * seamless. All buffers are allocated up front; processing allocates nothing.
+ */
+public class PolyphaseResampler {
+
+    public enum Quality {
+        LOW(8, 5.0),
+        MEDIUM(16, 7.0),
+        HIGH(32, 9.0);
+
+        final int tapsPerPhase;
+        final double kaiserBeta;
+
+        Quality(int tapsPerPhase, double kaiserBeta) {
+            this.tapsPerPhase = tapsPerPhase;
+            this.kaiserBeta = kaiserBeta;
+        }
+
+        public static Quality fromString(String value) {
+            return switch (value) {
+                case "low" -> LOW;
+                case "medium" -> MEDIUM;
+                case "high" -> HIGH;
+                default -> throw new IllegalArgumentException("Unknown resample quality: " + value);
+            };
+        }
+    }
+
+    /** Largest interpolation factor accepted; keeps the coefficient table small. */
+    static final int MAX_PHASES = 4096;
+    private static final double PASSBAND = 0.95;
+
+    private final int interpolation;
+    private final int decimation;
+    private final int channelCount;
+    private final int taps;
+    private final int maxInputFrames;
+    private final float[][] coefficients;
+    private final float[][] work;
+    private long position;
+
+    public PolyphaseResampler(int inputRate, int outputRate, int channelCount, Quality quality, int maxInputFrames) {
+        if (inputRate <= 0 || outputRate <= 0 || channelCount <= 0 || maxInputFrames <= 0) {
+            throw new IllegalArgumentException("Rates, channel count and frame count must be positive");
+        }
+        int divisor = gcd(inputRate, outputRate);
+        this.interpolation = outputRate / divisor;
+        this.decimation = inputRate / divisor;
+        if (interpolation > MAX_PHASES) {
+            throw new IllegalArgumentException("Unsupported rate ratio " + inputRate + " -> " + outputRate);
+        }
+        this.channelCount = channelCount;
+        // when decimating the cutoff drops below the input Nyquist, so the filter needs
+        // proportionally more input samples to keep the same transition width
+        this.taps = quality.tapsPerPhase * Math.max(1, (decimation + interpolation - 1) / interpolation);
+        this.maxInputFrames = maxInputFrames;
+        this.coefficients = designFilter(interpolation, decimation, taps, quality.kaiserBeta);
+        this.work = new float[channelCount][taps - 1 + maxInputFrames];
+        reset();
+    }
+
+    /**
+     * Clears the filter history, as if no audio had been processed yet.
+     */
+    public void reset() {
+        for (float[] channel : work) {
+            Arrays.fill(channel, 0f);
+        }
+        position = (long) (taps - 1) * interpolation;
+    }
+
+    /**
+     * Largest number of output frames a single {@link #process} call can produce.
+     */
+    public int getMaxOutputFrames() {
+        return (int) (((long) maxInputFrames * interpolation + decimation - 1) / decimation) + 1;
+    }
+
+    /**
+     * Delay introduced by the filter, in output frames.
+     */
+    public double getLatencyFrames() {
+        return ((double) taps / 2) * interpolation / decimation;
+    }
+
+    /**
+     * Resamples {@code frameCount} interleaved frames from {@code input} into {@code output}
+     * (interleaved, at least {@link #getMaxOutputFrames()} frames). Returns the number of frames written.
+     */
+    public int process(float[] input, int inputOffset, int frameCount, float[] output, int outputOffset) {
+        if (frameCount > maxInputFrames) {
+            throw new IllegalArgumentException("At most " + maxInputFrames + " frames per call");
+        }
+        int history = taps - 1;
+        for (int channel = 0; channel < channelCount; channel++) {
+            float[] samples = work[channel];
+            for (int frame = 0, in = inputOffset + channel; frame < frameCount; frame++, in += channelCount) {
+                samples[history + frame] = input[in];
+            }
+        }
+
+        int available = history + frameCount;
+        int produced = 0;
+        int out = outputOffset;
+        long limit = (long) available * interpolation;
+        while (position < limit) {
+            int index = (int) (position / interpolation);
+            float[] phase = coefficients[(int) (position - (long) index * interpolation)];
+            for (int channel = 0; channel < channelCount; channel++) {
+                float[] samples = work[channel];
+                float sum = 0f;
+                for (int tap = 0, sample = index; tap < taps; tap++, sample--) {
+                    sum += phase[tap] * samples[sample];
+                }
+                output[out + channel] = sum;
+            }
+            out += channelCount;
+            produced++;
+            position += decimation;
+        }
+
+        // keep the newest samples as history for the next call
+        for (int channel = 0; channel < channelCount; channel++) {
+            System.arraycopy(work[channel], frameCount, work[channel], 0, history);
+        }
+        position -= (long) frameCount * interpolation;
+        return produced;
+    }
+
+    private static float[][] designFilter(int interpolation, int decimation, int taps, double beta) {
+        int length = interpolation * taps;
+        // cutoff relative to the upsampled rate; band-limit to the lower of the two Nyquist rates
+        double cutoff = PASSBAND * 0.5 / Math.max(interpolation, decimation);
+        double center = (length - 1) / 2.0;
+        double besselBeta = besselI0(beta);
+        float[][] bank = new float[interpolation][taps];
+        for (int n = 0; n < length; n++) {
+            double t = n - center;
+            double sinc = t == 0 ? 2 * cutoff : Math.sin(2 * Math.PI * cutoff * t) / (Math.PI * t);
+            double ratio = t / (center + 1);
+            double window = besselI0(beta * Math.sqrt(Math.max(0, 1 - ratio * ratio))) / besselBeta;
+            bank[n % interpolation][n / interpolation] = (float) (sinc * window * interpolation);
+        }
+        // normalize every phase to unity DC gain so the output carries no phase-dependent ripple
+        for (float[] phase : bank) {
+            double sum = 0;
+            for (float coefficient : phase) {
+                sum += coefficient;
+            }
+            if (sum != 0) {
+                for (int tap = 0; tap < taps; tap++) {
+                    phase[tap] = (float) (phase[tap] / sum);
+                }
+            }
+        }
+        return bank;
+    }
+
+    private static double besselI0(double x) {
+        double sum = 1;
+        double term = 1;
+        double halfX = x / 2;
+        for (int k = 1; k < 50; k++) {
+            term *= (halfX / k) * (halfX / k);
+            sum += term;
+            if (term < sum * 1e-12) {
+                break;
+            }
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int r = a % b;
+            a = b;
+            b = r;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,63 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Fixed-size ring of the most recent whole PCM frames, kept while a stream is armed.
+ * <p>
+ * The ring is only ever touched by the capture thread: it writes while armed and reads the
+ * pre-roll back when streaming starts, so it needs neither locks nor atomics.
+ */
+final class PreRollBuffer {
+
+    private final byte[] ring;
+    private final int frameBytes;
+    private final int capacityFrames;
+    private int writeFrame = 0;
+    private int availableFrames = 0;
+
+    PreRollBuffer(int capacityFrames, int frameBytes) {
+        if (capacityFrames <= 0 || frameBytes <= 0) {
+            throw new IllegalArgumentException("Pre-roll capacity must be positive");
+        }
+        this.capacityFrames = capacityFrames;
+        this.frameBytes = frameBytes;
+        this.ring = new byte[capacityFrames * frameBytes];
+    }
+
+    /**
+     * Appends {@code length} bytes of whole frames, overwriting the oldest ones once full.
+     */
+    void write(byte[] source, int offset, int length) {
+        int frames = length / frameBytes;
+        if (frames > capacityFrames) {
+            offset += (frames - capacityFrames) * frameBytes;
+            frames = capacityFrames;
+        }
+        int first = Math.min(frames, capacityFrames - writeFrame);
+        System.arraycopy(source, offset, ring, writeFrame * frameBytes, first * frameBytes);
+        System.arraycopy(source, offset + first * frameBytes, ring, 0, (frames - first) * frameBytes);
+        writeFrame = (writeFrame + frames) % capacityFrames;
+        availableFrames = Math.min(capacityFrames, availableFrames + frames);
+    }
+
+    /**
+     * Copies up to {@code maxFrames} frames starting {@code framesBack} frames before the newest
+     * one written and returns the number of frames copied.
+     */
+    int read(int framesBack, byte[] target, int targetOffset, int maxFrames) {
+        framesBack = Math.min(framesBack, availableFrames);
+        int frames = Math.min(maxFrames, framesBack);
+        int start = Math.floorMod(writeFrame - framesBack, capacityFrames);
+        int first = Math.min(frames, capacityFrames - start);
+        System.arraycopy(ring, start * frameBytes, target, targetOffset, first * frameBytes);
+        System.arraycopy(ring, 0, target, targetOffset + first * frameBytes, (frames - first) * frameBytes);
+        return frames;
+    }
+
+    int getAvailableFrames() {
+        return availableFrames;
+    }
+
+    int getCapacityFrames() {
+        return capacityFrames;
+    }
+}
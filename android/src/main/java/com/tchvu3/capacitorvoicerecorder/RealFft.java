@@ -0,0 +1,97 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Power spectrum of a real signal whose length is a power of two.
+ * <p>
+ * The {@code n} real samples are packed into an {@code n / 2} point complex FFT (even samples as
+ * real parts, odd ones as imaginary parts), run in place with an iterative radix-2 loop, and
+ * split back into the {@code n / 2 + 1} bins of the real transform. Twiddle factors and the
+ * bit-reversal permutation are computed once in the constructor; a transform allocates nothing.
+ */
+public class RealFft {
+
+    private final int size;
+    private final int half;
+    private final float[] twiddleCos;
+    private final float[] twiddleSin;
+    private final float[] splitCos;
+    private final float[] splitSin;
+    private final int[] bitReverse;
+    private final float[] re;
+    private final float[] im;
+
+    public RealFft(int size) {
+        if (size < 4 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two of at least 4: " + size);
+        }
+        this.size = size;
+        this.half = size / 2;
+        twiddleCos = new float[half / 2];
+        twiddleSin = new float[half / 2];
+        for (int j = 0; j < half / 2; j++) {
+            double angle = -2 * Math.PI * j / half;
+            twiddleCos[j] = (float) Math.cos(angle);
+            twiddleSin[j] = (float) Math.sin(angle);
+        }
+        splitCos = new float[half + 1];
+        splitSin = new float[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double angle = -2 * Math.PI * k / size;
+            splitCos[k] = (float) Math.cos(angle);
+            splitSin[k] = (float) Math.sin(angle);
+        }
+        bitReverse = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+        re = new float[half];
+        im = new float[half];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Writes {@code |X[k]|^2} for {@code k = 0 .. size / 2} of the first {@code size} samples of
+     * {@code input} into {@code power}.
+     */
+    public void powerSpectrum(float[] input, float[] power) {
+        for (int i = 0; i < half; i++) {
+            int target = bitReverse[i];
+            re[target] = input[2 * i];
+            im[target] = input[2 * i + 1];
+        }
+        for (int length = 2; length <= half; length <<= 1) {
+            int halfLength = length >> 1;
+            int step = half / length;
+            for (int start = 0; start < half; start += length) {
+                for (int j = 0; j < halfLength; j++) {
+                    float wr = twiddleCos[j * step];
+                    float wi = twiddleSin[j * step];
+                    int a = start + j;
+                    int b = a + halfLength;
+                    float tr = re[b] * wr - im[b] * wi;
+                    float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+        for (int k = 0; k <= half; k++) {
+            int index = k == half ? 0 : k;
+            int mirror = k == 0 ? 0 : half - k;
+            // even samples' spectrum E = (Z[k] + conj(Z[n/2-k])) / 2, odd samples' O = (Z[k] - conj(Z[n/2-k])) / 2i
+            float evenRe = (re[index] + re[mirror]) * 0.5f;
+            float evenIm = (im[index] - im[mirror]) * 0.5f;
+            float oddRe = (im[index] + im[mirror]) * 0.5f;
+            float oddIm = (re[mirror] - re[index]) * 0.5f;
+            float xr = evenRe + splitCos[k] * oddRe - splitSin[k] * oddIm;
+            float xi = evenIm + splitCos[k] * oddIm + splitSin[k] * oddRe;
+            power[k] = xr * xr + xi * xi;
+        }
+    }
+}
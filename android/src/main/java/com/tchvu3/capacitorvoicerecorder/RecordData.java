@@ -8,6 +8,9 @@ public class RecordData {
     private String recordDataBase64;
     private String mimeType;
     private int msDuration;
+    private String recordingId;
+    private JSObject waveform;
+    private int segmentCount;
 
     public RecordData() {}
 
@@ -42,12 +45,43 @@ public class RecordData {
         this.mimeType = mimeType;
     }
 
+    public String getRecordingId() {
+        return recordingId;
+    }
+
+    public void setRecordingId(String recordingId) {
+        this.recordingId = recordingId;
+    }
+
+    public JSObject getWaveform() {
+        return waveform;
+    }
+
+    public void setWaveform(JSObject waveform) {
+        this.waveform = waveform;
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    public void setSegmentCount(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
     public JSObject toJSObject() {
         JSObject toReturn = new JSObject();
         toReturn.put("recordDataBase64", recordDataBase64);
         toReturn.put("msDuration", msDuration);
         toReturn.put("mimeType", mimeType);
         toReturn.put("path", path);
+        toReturn.put("recordingId", recordingId);
+        if (waveform != null) {
+            toReturn.put("waveform", waveform);
+        }
+        if (segmentCount > 0) {
+            toReturn.put("segmentCount", segmentCount);
+        }
         return toReturn;
     }
 }
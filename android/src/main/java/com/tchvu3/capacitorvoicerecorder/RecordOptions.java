@@ -1,9 +1,108 @@
 package com.tchvu3.capacitorvoicerecorder;
 
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.os.Build;
+import java.util.Objects;
+
 public class RecordOptions {
 
+    public enum Codec {
+        AAC_LC(
+            "aac-lc",
+            MediaRecorder.OutputFormat.AAC_ADTS,
+            MediaRecorder.AudioEncoder.AAC,
+            MediaFormat.MIMETYPE_AUDIO_AAC,
+            "audio/aac",
+            ".aac",
+            Build.VERSION_CODES.BASE
+        ),
+        HE_AAC(
+            "he-aac",
+            MediaRecorder.OutputFormat.AAC_ADTS,
+            MediaRecorder.AudioEncoder.HE_AAC,
+            MediaFormat.MIMETYPE_AUDIO_AAC,
+            "audio/aac",
+            ".aac",
+            Build.VERSION_CODES.BASE
+        ),
+        OPUS(
+            "opus",
+            MediaRecorder.OutputFormat.OGG,
+            MediaRecorder.AudioEncoder.OPUS,
+            MediaFormat.MIMETYPE_AUDIO_OPUS,
+            "audio/ogg",
+            ".ogg",
+            Build.VERSION_CODES.Q
+        ),
+        AMR_WB(
+            "amr-wb",
+            MediaRecorder.OutputFormat.AMR_WB,
+            MediaRecorder.AudioEncoder.AMR_WB,
+            MediaFormat.MIMETYPE_AUDIO_AMR_WB,
+            "audio/amr-wb",
+            ".amr",
+            Build.VERSION_CODES.BASE
+        );
+
+        public final String jsValue;
+        public final int outputFormat;
+        public final int audioEncoder;
+        public final String encoderMimeType;
+        public final String mimeType;
+        public final String fileExtension;
+        public final int minSdk;
+
+        Codec(
+            String jsValue,
+            int outputFormat,
+            int audioEncoder,
+            String encoderMimeType,
+            String mimeType,
+            String fileExtension,
+            int minSdk
+        ) {
+            this.jsValue = jsValue;
+            this.outputFormat = outputFormat;
+            this.audioEncoder = audioEncoder;
+            this.encoderMimeType = encoderMimeType;
+            this.mimeType = mimeType;
+            this.fileExtension = fileExtension;
+            this.minSdk = minSdk;
+        }
+
+        /**
+         * Whether recordings are AAC ADTS streams that {@link AdtsParser} can read.
+         */
+        public boolean isAdts() {
+            return outputFormat == MediaRecorder.OutputFormat.AAC_ADTS;
+        }
+
+        public static Codec fromString(String value) {
+            if (value == null) {
+                return AAC_LC;
+            }
+            for (Codec codec : values()) {
+                if (codec.jsValue.equals(value)) {
+                    return codec;
+                }
+            }
+            throw new IllegalArgumentException("Unknown codec: " + value);
+        }
+    }
+
+    public static final int DEFAULT_BIT_RATE = 96000;
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+    public static final int DEFAULT_CHANNEL_COUNT = 1;
+
     private String directory;
     private String subDirectory;
+    private Codec codec = Codec.AAC_LC;
+    private int bitRate = DEFAULT_BIT_RATE;
+    private int sampleRate = DEFAULT_SAMPLE_RATE;
+    private int channelCount = DEFAULT_CHANNEL_COUNT;
+    private long segmentDurationMs = 0;
+    private long segmentMaxBytes = 0;
 
     public RecordOptions(String directory, String subDirectory) {
         this.directory = directory;
@@ -21,4 +120,97 @@ public class RecordOptions {
     public void setSubDirectory(String subDirectory) {
         this.subDirectory = subDirectory;
     }
+
+    public Codec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(Codec codec) {
+        this.codec = codec;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public void setBitRate(int bitRate) {
+        this.bitRate = bitRate;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public void setChannelCount(int channelCount) {
+        this.channelCount = channelCount;
+    }
+
+    /**
+     * Length after which a segmented recording starts a new file, or {@code 0} for no limit.
+     */
+    public long getSegmentDurationMs() {
+        return segmentDurationMs;
+    }
+
+    public void setSegmentDurationMs(long segmentDurationMs) {
+        this.segmentDurationMs = segmentDurationMs;
+    }
+
+    /**
+     * Size after which a segmented recording starts a new file, or {@code 0} for no limit.
+     */
+    public long getSegmentMaxBytes() {
+        return segmentMaxBytes;
+    }
+
+    public void setSegmentMaxBytes(long segmentMaxBytes) {
+        this.segmentMaxBytes = segmentMaxBytes;
+    }
+
+    public boolean isSegmented() {
+        return segmentDurationMs > 0 || segmentMaxBytes > 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof RecordOptions)) {
+            return false;
+        }
+        RecordOptions that = (RecordOptions) other;
+        return (
+            Objects.equals(directory, that.directory) &&
+            Objects.equals(subDirectory, that.subDirectory) &&
+            codec == that.codec &&
+            bitRate == that.bitRate &&
+            sampleRate == that.sampleRate &&
+            channelCount == that.channelCount &&
+            segmentDurationMs == that.segmentDurationMs &&
+            segmentMaxBytes == that.segmentMaxBytes
+        );
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            directory,
+            subDirectory,
+            codec,
+            bitRate,
+            sampleRate,
+            channelCount,
+            segmentDurationMs,
+            segmentMaxBytes
+        );
+    }
 }
@@ -0,0 +1,278 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * On-disk list of the recordings in progress, so files orphaned by a killed process can be found
+ * on the next launch.
+ * <p>
+ * Every recording gets one small entry file naming its output files (all segments of a segmented
+ * recording) and where they live. Segments the app already received are marked as delivered, so
+ * only the unfinished tail of a segmented recording needs recovering. The entry is written before
+ * audio reaches the file and deleted once the recording stopped cleanly, so any entry not opened
+ * by this process belongs to an interrupted recording. Which entries are open is tracked per
+ * process rather than per journal, as a recording can outlive the plugin instance that started
+ * it. Entries are replaced through a rename, so a crash while updating one leaves the previous
+ * version. {@link #truncate(File)} cuts such a file back to its last complete ADTS frame.
+ */
+public class RecordingJournal {
+
+    private static final String ENTRY_SUFFIX = ".journal";
+    private static final String KEY_CODEC = "codec";
+    private static final String KEY_DIRECTORY = "directory";
+    private static final String KEY_SUB_DIRECTORY = "subDirectory";
+    private static final String KEY_STARTED_AT = "startedAt";
+    private static final String KEY_FILE_PREFIX = "file.";
+    private static final String KEY_DELIVERED_PREFIX = "delivered.";
+
+    public static final class Entry {
+
+        public final String id;
+        public final String codec;
+        public final String directory;
+        public final String subDirectory;
+        public final long startedAt;
+        private final List<File> files;
+        private final Set<Integer> delivered = new HashSet<>();
+
+        Entry(String id, String codec, String directory, String subDirectory, long startedAt, List<File> files) {
+            this.id = id;
+            this.codec = codec;
+            this.directory = directory;
+            this.subDirectory = subDirectory;
+            this.startedAt = startedAt;
+            this.files = files;
+        }
+
+        /**
+         * Output files in the order they were opened, delivered ones included.
+         */
+        public List<File> getFiles() {
+            return Collections.unmodifiableList(files);
+        }
+
+        /**
+         * Whether file {@code index} was already handed to the app before the recording was cut short.
+         */
+        public boolean isDelivered(int index) {
+            return delivered.contains(index);
+        }
+    }
+
+    // entries opened by this process, across plugin instances; also the lock of every journal
+    private static final Set<String> OPEN_ENTRIES = new HashSet<>();
+
+    private final File directory;
+    private final Set<String> open;
+
+    public RecordingJournal(File directory) {
+        this(directory, OPEN_ENTRIES);
+    }
+
+    /**
+     * Uses {@code open} as the set of entries of this process; a fresh set stands for a new process.
+     */
+    RecordingJournal(File directory, Set<String> open) {
+        this.directory = directory;
+        this.open = open;
+    }
+
+    /**
+     * Records that {@code file} is about to receive audio and returns the id of the new entry.
+     */
+    public String begin(File file, String codec, String outputDirectory, String subDirectory)
+        throws IOException {
+        synchronized (open) {
+            String id = UUID.randomUUID().toString();
+            List<File> files = new ArrayList<>();
+            files.add(file);
+            write(new Entry(id, codec, outputDirectory, subDirectory, System.currentTimeMillis(), files));
+            open.add(id);
+            return id;
+        }
+    }
+
+    /**
+     * Adds another output file, such as the next segment, to an open entry.
+     */
+    public void addFile(String id, File file) throws IOException {
+        synchronized (open) {
+            Entry entry = read(entryFile(id));
+            if (entry == null || !open.contains(id)) {
+                throw new IOException("No open journal entry " + id);
+            }
+            entry.files.add(file);
+            write(entry);
+        }
+    }
+
+    /**
+     * Marks {@code file} of an open entry as received by the app, so recovery does not hand it out
+     * a second time.
+     */
+    public void markDelivered(String id, File file) throws IOException {
+        synchronized (open) {
+            Entry entry = read(entryFile(id));
+            if (entry == null || !open.contains(id)) {
+                throw new IOException("No open journal entry " + id);
+            }
+            int index = entry.files.indexOf(file.getAbsoluteFile());
+            if (index < 0) {
+                throw new IOException("Not a file of journal entry " + id + ": " + file);
+            }
+            entry.delivered.add(index);
+            write(entry);
+        }
+    }
+
+    /**
+     * Removes the entry of a recording that finished cleanly.
+     */
+    public void end(String id) {
+        synchronized (open) {
+            open.remove(id);
+            entryFile(id).delete();
+        }
+    }
+
+    /**
+     * Entries left behind by recordings that never finished, oldest first. Entries this process
+     * still has open are skipped.
+     */
+    public List<Entry> getInterrupted() {
+        synchronized (open) {
+            List<Entry> entries = new ArrayList<>();
+            File[] files = directory.listFiles((dir, name) -> name.endsWith(ENTRY_SUFFIX));
+            if (files == null) {
+                return entries;
+            }
+            for (File file : files) {
+                Entry entry = read(file);
+                if (entry == null) {
+                    // unreadable leftovers of an interrupted write
+                    file.delete();
+                } else if (!open.contains(entry.id)) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort((a, b) -> Long.compare(a.startedAt, b.startedAt));
+            return entries;
+        }
+    }
+
+    /**
+     * Forgets an interrupted entry once its files were recovered or given up.
+     */
+    public void remove(Entry entry) {
+        synchronized (open) {
+            entryFile(entry.id).delete();
+        }
+    }
+
+    /**
+     * Cuts {@code file} back to the end of its last complete ADTS frame and returns what is left.
+     * A file without a single complete frame is truncated to zero length.
+     */
+    public static AdtsParser.Info truncate(File file) throws IOException {
+        try (RandomAccessFile input = new RandomAccessFile(file, "rw")) {
+            FileChannel channel = input.getChannel();
+            AdtsParser.Index index = AdtsParser.index(channel);
+            long end = index.getOffset(index.getFrameCount());
+            if (channel.size() > end) {
+                channel.truncate(end);
+            }
+            return new AdtsParser.Info(
+                index.getFrameCount(),
+                index.getSampleStart(index.getFrameCount()),
+                index.getSampleRate(),
+                index.getChannelCount()
+            );
+        }
+    }
+
+    private File entryFile(String id) {
+        return new File(directory, id + ENTRY_SUFFIX);
+    }
+
+    private void write(Entry entry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(KEY_CODEC, entry.codec);
+        if (entry.directory != null) {
+            properties.setProperty(KEY_DIRECTORY, entry.directory);
+        }
+        if (entry.subDirectory != null) {
+            properties.setProperty(KEY_SUB_DIRECTORY, entry.subDirectory);
+        }
+        properties.setProperty(KEY_STARTED_AT, Long.toString(entry.startedAt));
+        for (int i = 0; i < entry.files.size(); i++) {
+            properties.setProperty(KEY_FILE_PREFIX + i, entry.files.get(i).getAbsolutePath());
+            if (entry.delivered.contains(i)) {
+                properties.setProperty(KEY_DELIVERED_PREFIX + i, "true");
+            }
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        File target = entryFile(entry.id);
+        File temp = new File(directory, entry.id + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            properties.store(output, null);
+            output.getFD().sync();
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Cannot write journal entry " + target);
+        }
+    }
+
+    private static Entry read(File file) {
+        Properties properties = new Properties();
+        try (InputStream input = new FileInputStream(file)) {
+            properties.load(input);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+        String name = file.getName();
+        String codec = properties.getProperty(KEY_CODEC);
+        if (codec == null) {
+            return null;
+        }
+        long startedAt;
+        try {
+            startedAt = Long.parseLong(properties.getProperty(KEY_STARTED_AT, "0"));
+        } catch (NumberFormatException e) {
+            startedAt = 0;
+        }
+        List<File> files = new ArrayList<>();
+        for (String path; (path = properties.getProperty(KEY_FILE_PREFIX + files.size())) != null;) {
+            files.add(new File(path));
+        }
+        Entry entry = new Entry(
+            name.substring(0, name.length() - ENTRY_SUFFIX.length()),
+            codec,
+            properties.getProperty(KEY_DIRECTORY),
+            properties.getProperty(KEY_SUB_DIRECTORY),
+            startedAt,
+            files
+        );
+        for (int i = 0; i < files.size(); i++) {
+            if (properties.getProperty(KEY_DELIVERED_PREFIX + i) != null) {
+                entry.delivered.add(i);
+            }
+        }
+        return entry;
+    }
+}
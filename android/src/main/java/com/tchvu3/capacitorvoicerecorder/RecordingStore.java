@@ -0,0 +1,191 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Finished recordings the app reads back piece by piece.
+ * <p>
+ * A retained recording stays on disk until it is {@link #release released}; temporary files are
+ * deleted then. Ranges of ADTS recordings are always widened or trimmed to whole frames so every
+ * piece decodes on its own; other containers are read as plain byte ranges and cannot be read by
+ * time. A single read never returns more than {@link #MAX_RANGE_BYTES}.
+ */
+public class RecordingStore {
+
+    public static final int MAX_RANGE_BYTES = 4 * 1024 * 1024;
+
+    public static class Range {
+
+        public final byte[] data;
+        public final long offset;
+        public final long totalLength;
+        public final long startMs;
+        public final long endMs;
+        public final long durationMs;
+
+        Range(byte[] data, long offset, long totalLength, long startMs, long endMs, long durationMs) {
+            this.data = data;
+            this.offset = offset;
+            this.totalLength = totalLength;
+            this.startMs = startMs;
+            this.endMs = endMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private static class Entry {
+
+        final File file;
+        final boolean temporary;
+        final boolean adts;
+        final List<String> companions = new ArrayList<>();
+        AdtsParser.Index index;
+
+        Entry(File file, boolean temporary, boolean adts) {
+            this.file = file;
+            this.temporary = temporary;
+            this.adts = adts;
+        }
+    }
+
+    private final Map<String, Entry> recordings = new HashMap<>();
+
+    /**
+     * Keeps {@code file} readable and returns its id. A {@code temporary} file is deleted on release.
+     */
+    public synchronized String retain(File file, boolean temporary, boolean adts) {
+        String id = UUID.randomUUID().toString();
+        recordings.put(id, new Entry(file, temporary, adts));
+        return id;
+    }
+
+    /**
+     * Keeps {@code file}, a temporary companion of recording {@code ownerId} such as its peaks,
+     * readable as plain bytes and returns its id. Releasing the owner releases it too.
+     */
+    public synchronized String retainCompanion(String ownerId, File file) {
+        Entry owner = get(ownerId);
+        String id = retain(file, true, false);
+        owner.companions.add(id);
+        return id;
+    }
+
+    public synchronized boolean release(String id) {
+        Entry entry = recordings.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.temporary) {
+            entry.file.delete();
+        }
+        for (String companion : entry.companions) {
+            release(companion);
+        }
+        return true;
+    }
+
+    public synchronized void releaseAll() {
+        for (String id : recordings.keySet().toArray(new String[0])) {
+            release(id);
+        }
+    }
+
+    /**
+     * Reads the whole frames within {@code [offset, offset + length)}. A start inside a frame moves
+     * back to that frame; at least one frame is returned unless {@code offset} is past the end.
+     */
+    public Range readBytes(String id, long offset, int length) throws IOException {
+        Entry entry = get(id);
+        if (!entry.adts) {
+            return readPlain(entry, offset, length);
+        }
+        AdtsParser.Index index = getIndex(entry);
+        int startFrame = index.frameAtOffset(offset);
+        // the limit counts from the frame start, which may lie before offset
+        long end = Math.min(Math.max(offset, 0) + Math.max(length, 0), index.getOffset(startFrame) + MAX_RANGE_BYTES);
+        int endFrame = index.frameAtOffset(end);
+        return read(entry, index, startFrame, endFrame);
+    }
+
+    /**
+     * Reads the frames covering {@code [startMs, endMs)}.
+     */
+    public Range readTime(String id, long startMs, long endMs) throws IOException {
+        Entry entry = get(id);
+        if (!entry.adts) {
+            throw new UnsupportedOperationException("Time ranges are only available for AAC recordings");
+        }
+        AdtsParser.Index index = getIndex(entry);
+        int startFrame = index.frameAtTime(startMs);
+        int endFrame = index.frameAtTime(endMs);
+        if (endFrame < index.getFrameCount() && index.getTimeMs(endFrame) < endMs) {
+            endFrame++;
+        }
+        int byteLimit = index.frameAtOffset(index.getOffset(startFrame) + MAX_RANGE_BYTES);
+        return read(entry, index, startFrame, Math.min(endFrame, byteLimit));
+    }
+
+    private Range read(Entry entry, AdtsParser.Index index, int startFrame, int endFrame) throws IOException {
+        if (endFrame <= startFrame && startFrame < index.getFrameCount()) {
+            endFrame = startFrame + 1;
+        }
+        endFrame = Math.max(startFrame, endFrame);
+        long start = index.getOffset(startFrame);
+        byte[] data = readFile(entry.file, start, (int) (index.getOffset(endFrame) - start));
+        return new Range(
+            data,
+            start,
+            index.getOffset(index.getFrameCount()),
+            index.getTimeMs(startFrame),
+            index.getTimeMs(endFrame),
+            index.getTimeMs(index.getFrameCount())
+        );
+    }
+
+    private static Range readPlain(Entry entry, long offset, int length) throws IOException {
+        long size = entry.file.length();
+        long start = Math.min(Math.max(offset, 0), size);
+        int count = (int) Math.min(size - start, Math.min(Math.max(length, 0), MAX_RANGE_BYTES));
+        return new Range(readFile(entry.file, start, count), start, size, -1, -1, -1);
+    }
+
+    private static byte[] readFile(File file, long start, int length) throws IOException {
+        byte[] data = new byte[length];
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    throw new IOException("Recording was truncated");
+                }
+            }
+        }
+        return data;
+    }
+
+    private synchronized Entry get(String id) {
+        Entry entry = id != null ? recordings.get(id) : null;
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown recording: " + id);
+        }
+        return entry;
+    }
+
+    private static AdtsParser.Index getIndex(Entry entry) throws IOException {
+        synchronized (entry) {
+            if (entry.index == null) {
+                entry.index = AdtsParser.index(entry.file);
+            }
+            return entry.index;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the AAC access units of an {@link EncoderSink} as a series of ADTS files, starting a new
+ * one once the current segment reaches its duration or size limit.
+ * <p>
+ * One encoder runs across all segments and every ADTS frame decodes on its own, so a segment
+ * boundary is simply a frame boundary: concatenating the segments gives exactly the stream a
+ * single file would have held, with no gap or overlap. Each finished segment is reported to the
+ * {@link Listener} on the encoder thread, the last one from {@link #stop()}. A segment whose file
+ * could not be written completely is never reported; writing stops with the error instead.
+ */
+public class SegmentedAdtsWriter implements EncodedAudioSink {
+
+    public interface FileFactory {
+        /**
+         * Returns the empty file segment {@code index} is written to.
+         */
+        File create(int index) throws IOException;
+    }
+
+    public interface Listener {
+        void onSegmentReady(Segment segment);
+    }
+
+    public static class Segment {
+
+        public final File file;
+        public final int index;
+        public final long startUs;
+        public final long durationUs;
+        public final long bytes;
+        public final boolean last;
+
+        Segment(File file, int index, long startUs, long durationUs, long bytes, boolean last) {
+            this.file = file;
+            this.index = index;
+            this.startUs = startUs;
+            this.durationUs = durationUs;
+            this.bytes = bytes;
+            this.last = last;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SAMPLES_PER_FRAME = 1024;
+
+    private final FileFactory files;
+    private final long maxDurationUs;
+    private final long maxBytes;
+    private volatile Listener listener;
+    private AdtsHeader header;
+    private int sampleRate;
+    private OutputStream output;
+    private File file;
+    private int index;
+    private long segmentStartUs;
+    private long segmentBytes;
+    private long segmentFrames;
+    private long lastFrameUs;
+    private long lastFrameDurationUs;
+    private long totalDurationUs;
+    private int finishedSegments;
+    private volatile IOException error;
+
+    /**
+     * @param maxDurationMs segment length limit, or {@code 0} for none
+     * @param maxBytes      segment size limit, or {@code 0} for none
+     */
+    public SegmentedAdtsWriter(FileFactory files, long maxDurationMs, long maxBytes) {
+        this.files = files;
+        this.maxDurationUs = maxDurationMs > 0 ? maxDurationMs * 1000 : Long.MAX_VALUE;
+        this.maxBytes = maxBytes > 0 ? maxBytes : Long.MAX_VALUE;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void start(String mimeType, int sampleRate, int channelCount, int profile) throws IOException {
+        header = new AdtsHeader(sampleRate, channelCount, profile);
+        this.sampleRate = sampleRate;
+        index = 0;
+        totalDurationUs = 0;
+        finishedSegments = 0;
+        error = null;
+        open(0);
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length, long presentationTimeUs) throws IOException {
+        long frameBytes = AdtsParser.HEADER_LENGTH + length;
+        try {
+            if (
+                segmentFrames > 0 &&
+                (presentationTimeUs - segmentStartUs >= maxDurationUs || segmentBytes + frameBytes > maxBytes)
+            ) {
+                finishSegment(presentationTimeUs, false);
+                open(presentationTimeUs);
+            }
+            output.write(header.forPayload(length));
+            output.write(data, offset, length);
+        } catch (IOException e) {
+            error = e;
+            throw e;
+        }
+        if (segmentFrames > 0) {
+            lastFrameDurationUs = presentationTimeUs - lastFrameUs;
+        }
+        segmentBytes += frameBytes;
+        segmentFrames++;
+        lastFrameUs = presentationTimeUs;
+    }
+
+    /**
+     * Closes the current segment and reports it as the last one; an empty segment is deleted instead.
+     */
+    @Override
+    public void stop() {
+        if (output == null) {
+            return;
+        }
+        try {
+            if (segmentFrames == 0 || error != null) {
+                closeOutput();
+                if (segmentFrames == 0) {
+                    file.delete();
+                }
+                return;
+            }
+            // the final frame lasts as long as the one before it
+            long frameDurationUs = lastFrameDurationUs > 0
+                ? lastFrameDurationUs
+                : SAMPLES_PER_FRAME * 1_000_000L / sampleRate;
+            finishSegment(lastFrameUs + frameDurationUs, true);
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * The error that stopped writing, or {@code null}. The segment being written then was not reported.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Number of segments reported so far.
+     */
+    public int getSegmentCount() {
+        return finishedSegments;
+    }
+
+    /**
+     * Duration of all finished segments.
+     */
+    public long getDurationUs() {
+        return totalDurationUs;
+    }
+
+    private void open(long startUs) throws IOException {
+        file = files.create(index);
+        output = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        segmentStartUs = startUs;
+        segmentBytes = 0;
+        segmentFrames = 0;
+    }
+
+    private void finishSegment(long endUs, boolean last) throws IOException {
+        // a segment that did not reach the disk in full is never handed out
+        closeOutput();
+        long durationUs = endUs - segmentStartUs;
+        totalDurationUs += durationUs;
+        finishedSegments++;
+        Segment segment = new Segment(file, index, segmentStartUs, durationUs, segmentBytes, last);
+        if (!last) {
+            index++;
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onSegmentReady(segment);
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        OutputStream current = output;
+        output = null;
+        current.close();
+    }
+}
@@ -0,0 +1,228 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.util.Arrays;
+
+/**
+ * Band energies of a stream, computed every {@code hopFrames} from a Hann-windowed {@link RealFft}
+ * of the most recent {@code fftSize} frames.
+ * <p>
+ * Channels are averaged into a history ring as PCM arrives, so an analysis only runs when a hop
+ * completes, however the stream is chunked. Bands are either log-spaced rectangles or triangular
+ * mel filters between {@link #MIN_FREQUENCY} and Nyquist; their weights are tabulated up front and
+ * nothing is allocated per call. Levels are in dB relative to a full-scale sine, floored at
+ * {@link LevelMeter#SILENCE_DB}.
+ */
+public class SpectrumAnalyzer {
+
+    public enum Scale {
+        LOG,
+        MEL;
+
+        public static Scale fromString(String value) {
+            return switch (value) {
+                case "log" -> LOG;
+                case "mel" -> MEL;
+                default -> throw new IllegalArgumentException("Unknown spectrum scale: " + value);
+            };
+        }
+    }
+
+    public static final int DEFAULT_FFT_SIZE = 512;
+    public static final int DEFAULT_BAND_COUNT = 16;
+    static final float MIN_FREQUENCY = 50f;
+
+    private final int channelCount;
+    private final PcmConverter.SampleFormat format;
+    private final int fftSize;
+    private final int hopFrames;
+    private final RealFft fft;
+    private final float[] window;
+    private final float[] history;
+    private final float[] frame;
+    private final float[] power;
+    private final int[] bandStart;
+    private final float[][] bandWeights;
+    private final float[] centerFrequencies;
+    private final float[] bands;
+    private final float normalization;
+    private int historyIndex = 0;
+    private int framesSinceHop = 0;
+    private long framePosition = 0;
+    private long analysisEndFrame = -1;
+
+    public SpectrumAnalyzer(
+        int sampleRate,
+        int channelCount,
+        PcmConverter.SampleFormat format,
+        int fftSize,
+        int bandCount,
+        Scale scale,
+        int hopFrames
+    ) {
+        if (bandCount <= 0 || hopFrames <= 0) {
+            throw new IllegalArgumentException("Band count and hop must be positive");
+        }
+        if (sampleRate / 2f <= MIN_FREQUENCY) {
+            throw new IllegalArgumentException("Sample rate too low for spectrum analysis: " + sampleRate);
+        }
+        this.channelCount = channelCount;
+        this.format = format;
+        this.fftSize = fftSize;
+        this.hopFrames = hopFrames;
+        this.fft = new RealFft(fftSize);
+        window = new float[fftSize];
+        double windowEnergy = 0;
+        for (int i = 0; i < fftSize; i++) {
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / fftSize));
+            windowEnergy += window[i] * window[i];
+        }
+        // by Parseval a full-scale sine spreads fftSize * windowEnergy / 4 over the bins around it
+        normalization = (float) (4 / (fftSize * windowEnergy));
+        history = new float[fftSize];
+        frame = new float[fftSize];
+        power = new float[fftSize / 2 + 1];
+        bands = new float[bandCount];
+        bandStart = new int[bandCount];
+        bandWeights = new float[bandCount][];
+        centerFrequencies = new float[bandCount];
+        float binHz = (float) sampleRate / fftSize;
+        if (scale == Scale.MEL) {
+            buildMelBands(bandCount, binHz, sampleRate / 2f);
+        } else {
+            buildLogBands(bandCount, binHz, sampleRate / 2f);
+        }
+        Arrays.fill(bands, LevelMeter.SILENCE_DB);
+    }
+
+    /**
+     * Feeds {@code frameCount} interleaved frames and returns whether at least one analysis ran;
+     * {@link #getBands()} then holds the latest.
+     */
+    public boolean process(byte[] data, int offset, int frameCount) {
+        boolean analysed = false;
+        int index = offset;
+        float scale = 1f / channelCount;
+        for (int i = 0; i < frameCount; i++) {
+            float sum = 0;
+            for (int channel = 0; channel < channelCount; channel++, index += format.bytesPerSample) {
+                sum += PcmConverter.sampleAt(format, data, index);
+            }
+            history[historyIndex] = sum * scale;
+            historyIndex = (historyIndex + 1) & (fftSize - 1);
+            framePosition++;
+            if (++framesSinceHop == hopFrames) {
+                framesSinceHop = 0;
+                analyse();
+                analysisEndFrame = framePosition;
+                analysed = true;
+            }
+        }
+        return analysed;
+    }
+
+    private void analyse() {
+        // historyIndex is the oldest sample
+        int tail = fftSize - historyIndex;
+        for (int i = 0; i < tail; i++) {
+            frame[i] = history[historyIndex + i] * window[i];
+        }
+        for (int i = tail; i < fftSize; i++) {
+            frame[i] = history[i - tail] * window[i];
+        }
+        fft.powerSpectrum(frame, power);
+        for (int band = 0; band < bands.length; band++) {
+            float[] weights = bandWeights[band];
+            int start = bandStart[band];
+            double energy = 0;
+            for (int i = 0; i < weights.length; i++) {
+                energy += weights[i] * power[start + i];
+            }
+            energy *= normalization;
+            bands[band] = energy > 1e-10 ? (float) (10 * Math.log10(energy)) : LevelMeter.SILENCE_DB;
+        }
+    }
+
+    private void buildLogBands(int bandCount, float binHz, float nyquist) {
+        double ratio = Math.pow(nyquist / MIN_FREQUENCY, 1.0 / bandCount);
+        int lastBin = fftSize / 2;
+        for (int band = 0; band < bandCount; band++) {
+            double low = MIN_FREQUENCY * Math.pow(ratio, band);
+            double high = low * ratio;
+            int first = (int) Math.ceil(low / binHz);
+            int end = band == bandCount - 1 ? lastBin + 1 : (int) Math.ceil(high / binHz);
+            if (end <= first) {
+                // narrower than a bin: use the bin nearest its center
+                first = Math.min(lastBin, (int) Math.round(Math.sqrt(low * high) / binHz));
+                end = first + 1;
+            }
+            bandStart[band] = first;
+            bandWeights[band] = new float[end - first];
+            Arrays.fill(bandWeights[band], 1f);
+            centerFrequencies[band] = (float) Math.sqrt(low * high);
+        }
+    }
+
+    private void buildMelBands(int bandCount, float binHz, float nyquist) {
+        double minMel = toMel(MIN_FREQUENCY);
+        double maxMel = toMel(nyquist);
+        double[] edges = new double[bandCount + 2];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = fromMel(minMel + (maxMel - minMel) * i / (bandCount + 1));
+        }
+        int lastBin = fftSize / 2;
+        for (int band = 0; band < bandCount; band++) {
+            double low = edges[band];
+            double center = edges[band + 1];
+            double high = edges[band + 2];
+            int first = Math.min(lastBin, (int) Math.ceil(low / binHz));
+            int last = Math.min(lastBin, (int) Math.floor(high / binHz));
+            if (last < first) {
+                last = first;
+            }
+            float[] weights = new float[last - first + 1];
+            float total = 0;
+            for (int bin = first; bin <= last; bin++) {
+                double frequency = bin * binHz;
+                double weight = frequency <= center
+                    ? (frequency - low) / (center - low)
+                    : (high - frequency) / (high - center);
+                weights[bin - first] = (float) Math.max(0, weight);
+                total += weights[bin - first];
+            }
+            if (total == 0) {
+                // narrower than a bin: use the bin nearest its center
+                first = Math.min(lastBin, (int) Math.round(center / binHz));
+                weights = new float[] { 1f };
+            }
+            bandStart[band] = first;
+            bandWeights[band] = weights;
+            centerFrequencies[band] = (float) center;
+        }
+    }
+
+    static double toMel(double frequency) {
+        return 2595 * Math.log10(1 + frequency / 700);
+    }
+
+    static double fromMel(double mel) {
+        return 700 * (Math.pow(10, mel / 2595) - 1);
+    }
+
+    /**
+     * Levels of the latest analysis, one per band from low to high; reused by the next one.
+     */
+    public float[] getBands() {
+        return bands;
+    }
+
+    public float[] getCenterFrequencies() {
+        return centerFrequencies;
+    }
+
+    /**
+     * Frame position just past the latest analysis, or {@code -1} before the first.
+     */
+    public long getAnalysisEndFrame() {
+        return analysisEndFrame;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+/**
+ * Emits {@code audioSpectrum} events for a stream.
+ * <p>
+ * A {@link SpectrumAnalyzer} runs on the capture thread once per {@code intervalMs} of audio and
+ * its bands are copied out; the latest copy becomes an event at the same rate.
+ */
+public class SpectrumMonitor extends ThrottledEmitter implements AudioSink {
+
+    public static final String AUDIO_SPECTRUM_EVENT = "audioSpectrum";
+    public static final int DEFAULT_INTERVAL_MS = 50;
+
+    private final int fftSize;
+    private final int bandCount;
+    private final SpectrumAnalyzer.Scale scale;
+    private SpectrumAnalyzer analyzer;
+    private int sampleRate;
+    private int frameBytes;
+    // guarded by this
+    private float[] published;
+    private long publishedEndFrame;
+    // handler thread only
+    private float[] taken;
+    private long takenEndFrame;
+
+    public SpectrumMonitor(
+        AudioChunkDispatcher.EventSink events,
+        int fftSize,
+        int bandCount,
+        SpectrumAnalyzer.Scale scale,
+        int intervalMs
+    ) {
+        super(events, AUDIO_SPECTRUM_EVENT, "SpectrumMonitor", intervalMs);
+        this.fftSize = fftSize;
+        this.bandCount = bandCount;
+        this.scale = scale;
+    }
+
+    @Override
+    public void start(AudioStreamer.AudioStreamFormat format) {
+        PcmConverter.SampleFormat sampleFormat = PcmConverter.SampleFormat.fromEncoding(format.encoding);
+        sampleRate = format.sampleRate;
+        frameBytes = sampleFormat.bytesPerSample * format.channelCount;
+        int hopFrames = (int) Math.max(1, (long) sampleRate * getIntervalMs() / 1000);
+        analyzer = new SpectrumAnalyzer(
+            sampleRate,
+            format.channelCount,
+            sampleFormat,
+            fftSize,
+            bandCount,
+            scale,
+            hopFrames
+        );
+        published = new float[bandCount];
+        taken = new float[bandCount];
+        startTicking();
+    }
+
+    @Override
+    public void write(byte[] data, int length, long framePosition) {
+        if (analyzer.process(data, 0, length / frameBytes)) {
+            publish();
+        }
+    }
+
+    /**
+     * Center frequencies of the bands in Hz, or {@code null} before {@link #start}.
+     */
+    public float[] getCenterFrequencies() {
+        return analyzer != null ? analyzer.getCenterFrequencies() : null;
+    }
+
+    @Override
+    protected void copyResult(boolean pending) {
+        System.arraycopy(analyzer.getBands(), 0, published, 0, bandCount);
+        publishedEndFrame = analyzer.getAnalysisEndFrame();
+    }
+
+    @Override
+    protected void takeResult() {
+        System.arraycopy(published, 0, taken, 0, bandCount);
+        takenEndFrame = publishedEndFrame;
+    }
+
+    @Override
+    protected JSObject buildEvent() {
+        JSArray bands = new JSArray();
+        for (float band : taken) {
+            bands.put(Double.valueOf(Math.round(band * 10) / 10.0));
+        }
+        JSObject data = new JSObject();
+        data.put("bands", bands);
+        data.put("timestamp", takenEndFrame * 1000 / sampleRate);
+        return data;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.content.Context;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Archive copy of a stream: a file sink on the same {@link AudioStreamer}, written either as WAV
+ * from the PCM or as AAC through its own {@link EncoderSink}. Both write on threads of their own.
+ */
+public class StreamTee {
+
+    public static final String FORMAT_WAV = "wav";
+    public static final String FORMAT_AAC = "aac";
+
+    private final RecordOptions location;
+    private final File file;
+    private final boolean aac;
+    private final AudioSink sink;
+
+    private StreamTee(RecordOptions location, File file, boolean aac, AudioSink sink) {
+        this.location = location;
+        this.file = file;
+        this.aac = aac;
+        this.sink = sink;
+    }
+
+    /**
+     * Creates the output file in the directory {@code location} names and a sink writing to it.
+     */
+    public static StreamTee create(Context context, RecordOptions location, String format, int bitRate)
+        throws IOException {
+        if (FORMAT_AAC.equals(format)) {
+            String extension = RecordOptions.Codec.AAC_LC.fileExtension;
+            File file = CustomMediaRecorder.createOutputFile(context, location, extension);
+            EncoderSink encoder = new EncoderSink(
+                MediaFormat.MIMETYPE_AUDIO_AAC,
+                bitRate,
+                MediaCodecInfo.CodecProfileLevel.AACObjectLC
+            );
+            encoder.addOutput(new AdtsFileWriter(file));
+            return new StreamTee(location, file, true, encoder);
+        }
+        if (format != null && !FORMAT_WAV.equals(format)) {
+            throw new IllegalArgumentException("Unsupported recording format: " + format);
+        }
+        File file = CustomMediaRecorder.createOutputFile(context, location, ".wav");
+        return new StreamTee(location, file, false, new WavFileSink(file));
+    }
+
+    public void attach(AudioStreamer streamer) {
+        streamer.addSink(sink);
+    }
+
+    public RecordOptions getLocation() {
+        return location;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public boolean isAdts() {
+        return aac;
+    }
+
+    public String getMimeType() {
+        return aac ? RecordOptions.Codec.AAC_LC.mimeType : "audio/wav";
+    }
+
+    /**
+     * Duration of what was written; call after the streamer stopped.
+     */
+    public long getDurationMs() {
+        if (!aac) {
+            return ((WavFileSink) sink).getDurationMs();
+        }
+        try {
+            return AdtsParser.scan(file).getDurationMs();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The error that cut the file short, or {@code null}.
+     */
+    public IOException getError() {
+        return aac ? ((EncoderSink) sink).getError() : ((WavFileSink) sink).getError();
+    }
+
+    /**
+     * Deletes the file of a tee whose stream never started.
+     */
+    public void discard() {
+        file.delete();
+    }
+}
@@ -0,0 +1,127 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Base64 (RFC 4648, no line breaks) encoding of files through a fixed read buffer.
+ * <p>
+ * The file is never held in memory as a whole: it is read in blocks whose size is a multiple of
+ * three bytes, and each block is encoded straight into the output. Because only the final block
+ * can need padding, the strings produced in chunked mode concatenate to exactly the single-string
+ * encoding.
+ */
+public final class StreamingBase64 {
+
+    public interface ChunkSink {
+        /**
+         * Receives the encoding of the file bytes starting at {@code byteOffset}.
+         */
+        void onChunk(String base64, long byteOffset, boolean last) throws IOException;
+    }
+
+    static final int READ_BUFFER_SIZE = 3 * 16 * 1024;
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(
+        StandardCharsets.US_ASCII
+    );
+
+    private StreamingBase64() {}
+
+    /**
+     * Encodes the whole file into one string. Peak memory is the encoded output plus one read buffer.
+     */
+    public static String encodeFile(File file) throws IOException {
+        long encodedLength = encodedLength(file.length());
+        if (encodedLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("File too large to encode into a single string: " + file.length() + " bytes");
+        }
+        byte[] output = new byte[(int) encodedLength];
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        int written = 0;
+        try (InputStream input = new FileInputStream(file)) {
+            int read;
+            while ((read = readFully(input, buffer)) > 0) {
+                if (written + encodedLength(read) > output.length) {
+                    throw new IOException("File grew while encoding");
+                }
+                written += encode(buffer, 0, read, output, written);
+            }
+        }
+        return new String(output, 0, written, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Encodes the file as a sequence of strings covering at most {@code chunkBytes} file bytes each
+     * (rounded down to a multiple of three). The encoder's own buffers are bounded by the chunk size,
+     * whatever the length of the file; whatever the sink keeps of the strings is not. An empty file
+     * produces a single empty, last chunk.
+     */
+    public static void encodeFile(File file, int chunkBytes, ChunkSink sink) throws IOException {
+        int blockSize = Math.max(3, chunkBytes - chunkBytes % 3);
+        byte[] buffer = new byte[blockSize];
+        byte[] output = new byte[(int) encodedLength(blockSize)];
+        long offset = 0;
+        try (InputStream input = new FileInputStream(file)) {
+            int read = readFully(input, buffer);
+            do {
+                int length = encode(buffer, 0, read, output, 0);
+                String chunk = new String(output, 0, length, StandardCharsets.US_ASCII);
+                int next = read == blockSize ? readFully(input, buffer) : 0;
+                sink.onChunk(chunk, offset, next <= 0);
+                offset += read;
+                read = next;
+            } while (read > 0);
+        }
+    }
+
+    public static long encodedLength(long bytes) {
+        return (bytes + 2) / 3 * 4;
+    }
+
+    /**
+     * Encodes {@code length} bytes, padding the final group. Returns the number of characters written.
+     */
+    static int encode(byte[] source, int offset, int length, byte[] target, int targetOffset) {
+        int in = offset;
+        int out = targetOffset;
+        int end = offset + length - length % 3;
+        for (; in < end; in += 3, out += 4) {
+            int bits = ((source[in] & 0xff) << 16) | ((source[in + 1] & 0xff) << 8) | (source[in + 2] & 0xff);
+            target[out] = ALPHABET[bits >>> 18];
+            target[out + 1] = ALPHABET[(bits >>> 12) & 0x3f];
+            target[out + 2] = ALPHABET[(bits >>> 6) & 0x3f];
+            target[out + 3] = ALPHABET[bits & 0x3f];
+        }
+        int remaining = offset + length - in;
+        if (remaining > 0) {
+            int bits = (source[in] & 0xff) << 16;
+            if (remaining == 2) {
+                bits |= (source[in + 1] & 0xff) << 8;
+            }
+            target[out] = ALPHABET[bits >>> 18];
+            target[out + 1] = ALPHABET[(bits >>> 12) & 0x3f];
+            target[out + 2] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3f] : (byte) '=';
+            target[out + 3] = (byte) '=';
+            out += 4;
+        }
+        return out - targetOffset;
+    }
+
+    /**
+     * Fills {@code buffer} unless the stream ends first; returns the number of bytes read.
+     */
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = input.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,181 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.media.AudioRecord;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters for the streaming hot path. Every update is a single atomic operation, so the stats
+ * stay enabled permanently without measurable cost on the capture and delivery threads.
+ */
+public class StreamingStats {
+
+    /** Upper bounds (exclusive, in ms) of the latency histogram buckets; the last bucket is open. */
+    static final long[] LATENCY_BUCKETS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500 };
+
+    private static final int[] READ_ERROR_CODES = {
+        AudioRecord.ERROR,
+        AudioRecord.ERROR_BAD_VALUE,
+        AudioRecord.ERROR_INVALID_OPERATION,
+        AudioRecord.ERROR_DEAD_OBJECT
+    };
+
+    private final AtomicLong startNanos = new AtomicLong();
+    private final AtomicLong stopNanos = new AtomicLong();
+    private final AtomicLong chunksRead = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong shortReads = new AtomicLong();
+    private final AtomicLongArray readErrors = new AtomicLongArray(READ_ERROR_CODES.length + 1);
+    private final AtomicLong droppedNoBuffer = new AtomicLong();
+    private final AtomicLong chunksDelivered = new AtomicLong();
+    private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS_MS.length + 1);
+    private final AtomicLong latencyTotalNanos = new AtomicLong();
+    private final AtomicLong latencyMaxNanos = new AtomicLong();
+    private final AtomicLong chunksEncoded = new AtomicLong();
+    private final AtomicLong encodeTotalNanos = new AtomicLong();
+    private final AtomicLong encodeMaxNanos = new AtomicLong();
+    private final AtomicLong vadFrames = new AtomicLong();
+    private final AtomicLong speechSegments = new AtomicLong();
+    private final AtomicLong suppressedChunks = new AtomicLong();
+    private final AtomicLong suppressedFrames = new AtomicLong();
+
+    void onStart() {
+        startNanos.set(System.nanoTime());
+        stopNanos.set(0);
+    }
+
+    void onStop() {
+        stopNanos.set(System.nanoTime());
+    }
+
+    void recordRead(int bytes, int requestedBytes) {
+        chunksRead.incrementAndGet();
+        bytesRead.addAndGet(bytes);
+        if (bytes < requestedBytes) {
+            shortReads.incrementAndGet();
+        }
+    }
+
+    void recordReadError(int code) {
+        int index = READ_ERROR_CODES.length;
+        for (int i = 0; i < READ_ERROR_CODES.length; i++) {
+            if (READ_ERROR_CODES[i] == code) {
+                index = i;
+                break;
+            }
+        }
+        readErrors.incrementAndGet(index);
+    }
+
+    void recordDroppedNoBuffer() {
+        droppedNoBuffer.incrementAndGet();
+    }
+
+    void recordVoiceActivity(int frames, boolean speechStart) {
+        vadFrames.addAndGet(frames);
+        if (speechStart) {
+            speechSegments.incrementAndGet();
+        }
+    }
+
+    void recordSuppressed(int frames) {
+        suppressedChunks.incrementAndGet();
+        suppressedFrames.addAndGet(frames);
+    }
+
+    /**
+     * Records the time between the end of the read that captured a chunk and the end of its delivery.
+     */
+    void recordDeliveryLatency(long nanos) {
+        chunksDelivered.incrementAndGet();
+        latencyTotalNanos.addAndGet(nanos);
+        updateMax(latencyMaxNanos, nanos);
+        long ms = nanos / 1_000_000;
+        int bucket = LATENCY_BUCKETS_MS.length;
+        for (int i = 0; i < LATENCY_BUCKETS_MS.length; i++) {
+            if (ms < LATENCY_BUCKETS_MS[i]) {
+                bucket = i;
+                break;
+            }
+        }
+        latencyHistogram.incrementAndGet(bucket);
+    }
+
+    /**
+     * Records the time spent turning one chunk into its event payload.
+     */
+    public void recordEncode(long nanos) {
+        chunksEncoded.incrementAndGet();
+        encodeTotalNanos.addAndGet(nanos);
+        updateMax(encodeMaxNanos, nanos);
+    }
+
+    public long getDroppedNoBuffer() {
+        return droppedNoBuffer.get();
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry until the larger value sticks
+        }
+    }
+
+    public JSObject toJSObject(ChunkHandoffQueue queue) {
+        long start = startNanos.get();
+        long end = stopNanos.get() != 0 ? stopNanos.get() : System.nanoTime();
+        long elapsedMs = start != 0 ? Math.max(0, (end - start) / 1_000_000) : 0;
+
+        JSObject stats = new JSObject();
+        stats.put("elapsedMs", elapsedMs);
+        stats.put("chunksRead", chunksRead.get());
+        stats.put("bytesRead", bytesRead.get());
+        stats.put("bytesPerSecond", elapsedMs > 0 ? bytesRead.get() * 1000 / elapsedMs : 0);
+        stats.put("shortReads", shortReads.get());
+
+        JSObject errors = new JSObject();
+        for (int i = 0; i < READ_ERROR_CODES.length; i++) {
+            errors.put(String.valueOf(READ_ERROR_CODES[i]), readErrors.get(i));
+        }
+        errors.put("other", readErrors.get(READ_ERROR_CODES.length));
+        stats.put("readErrors", errors);
+
+        long dropped = droppedNoBuffer.get();
+        if (queue != null) {
+            dropped += queue.getDroppedOldest() + queue.getDroppedNewest();
+            stats.put("queueDepth", queue.getDepth());
+            stats.put("queueCapacity", queue.getCapacity());
+            stats.put("queueHighWaterMark", queue.getHighWaterMark());
+        }
+        stats.put("droppedChunks", dropped);
+
+        long delivered = chunksDelivered.get();
+        stats.put("chunksDelivered", delivered);
+        stats.put("latencyAvgMs", delivered > 0 ? latencyTotalNanos.get() / delivered / 1e6 : 0);
+        stats.put("latencyMaxMs", latencyMaxNanos.get() / 1e6);
+        JSArray histogram = new JSArray();
+        for (int i = 0; i < latencyHistogram.length(); i++) {
+            JSObject bucket = new JSObject();
+            if (i < LATENCY_BUCKETS_MS.length) {
+                bucket.put("upToMs", LATENCY_BUCKETS_MS[i]);
+            }
+            bucket.put("count", latencyHistogram.get(i));
+            histogram.put(bucket);
+        }
+        stats.put("latencyHistogram", histogram);
+
+        long encoded = chunksEncoded.get();
+        stats.put("encodeAvgMs", encoded > 0 ? encodeTotalNanos.get() / encoded / 1e6 : 0);
+        stats.put("encodeMaxMs", encodeMaxNanos.get() / 1e6);
+
+        long analyzed = vadFrames.get();
+        if (analyzed > 0) {
+            stats.put("speechSegments", speechSegments.get());
+            stats.put("suppressedChunks", suppressedChunks.get());
+            stats.put("suppressedRatio", (double) suppressedFrames.get() / analyzed);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,116 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import com.getcapacitor.JSObject;
+
+/**
+ * Emits the latest result of an analysis as an event at most once every {@code intervalMs}.
+ * <p>
+ * The capture thread calls {@link #publish()} whenever it has a new result; the subclass copies
+ * it into fields guarded by this object in {@link #copyResult}. A handler thread of the emitter's
+ * own takes the most recent copy on every tick and builds the event from it, so the capture
+ * thread never builds payloads or touches the bridge. A tick without a new result emits nothing.
+ */
+abstract class ThrottledEmitter {
+
+    private final AudioChunkDispatcher.EventSink events;
+    private final String eventName;
+    private final String threadName;
+    private final int intervalMs;
+    private final Runnable tick = this::tick;
+    private HandlerThread thread;
+    private volatile Handler handler;
+    private volatile boolean paused = false;
+    // guarded by this: set by publish, cleared by the tick that takes the result
+    private boolean fresh;
+
+    ThrottledEmitter(AudioChunkDispatcher.EventSink events, String eventName, String threadName, int intervalMs) {
+        this.events = events;
+        this.eventName = eventName;
+        this.threadName = threadName;
+        this.intervalMs = Math.max(1, intervalMs);
+    }
+
+    /**
+     * Copies the current result for the next tick. Called on the capture thread holding this
+     * object's lock; {@code pending} tells whether the previous result was not taken yet.
+     */
+    protected abstract void copyResult(boolean pending);
+
+    /**
+     * Moves the copied result into state of the handler thread. Called holding this object's lock.
+     */
+    protected abstract void takeResult();
+
+    /**
+     * Builds the event from the result just taken, outside the lock.
+     */
+    protected abstract JSObject buildEvent();
+
+    protected final int getIntervalMs() {
+        return intervalMs;
+    }
+
+    protected final void publish() {
+        synchronized (this) {
+            copyResult(fresh);
+            fresh = true;
+        }
+    }
+
+    /**
+     * Event for the current tick, or {@code null} to emit nothing.
+     */
+    protected JSObject nextEvent() {
+        synchronized (this) {
+            if (!fresh) {
+                return null;
+            }
+            takeResult();
+            fresh = false;
+        }
+        return buildEvent();
+    }
+
+    protected final void startTicking() {
+        if (thread != null) {
+            return;
+        }
+        synchronized (this) {
+            fresh = false;
+        }
+        thread = new HandlerThread(threadName);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        handler.postDelayed(tick, intervalMs);
+    }
+
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        handler.removeCallbacks(tick);
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+    }
+
+    /**
+     * No events are emitted while paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    private void tick() {
+        JSObject data = paused ? null : nextEvent();
+        if (data != null) {
+            events.notify(eventName, data);
+        }
+        Handler current = handler;
+        if (current != null) {
+            current.postDelayed(tick, intervalMs);
+        }
+    }
+}
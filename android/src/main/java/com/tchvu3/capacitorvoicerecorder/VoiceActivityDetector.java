@@ -0,0 +1,141 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Energy and zero-crossing voice activity detector, run on the capture thread once per chunk.
+ * <p>
+ * A chunk counts as speech when its energy rises {@code thresholdDb} above an adaptive noise floor
+ * (and above {@link #MIN_SPEECH_DB}) while its zero-crossing rate stays below that of broadband
+ * noise. The floor falls quickly and rises slowly, so it settles on the quietest recent audio.
+ * Speech stays active for {@code hangoverMs} after the last speech chunk, so short pauses do not
+ * split an utterance. Nothing is allocated per chunk.
+ */
+public class VoiceActivityDetector {
+
+    public enum Transition {
+        NONE,
+        SPEECH_START,
+        SPEECH_END
+    }
+
+    public static final float DEFAULT_THRESHOLD_DB = 9f;
+    public static final int DEFAULT_HANGOVER_MS = 300;
+
+    static final float MIN_SPEECH_DB = -55f;
+    // fricatives stay below this fraction of sign changes per sample; white noise sits near 0.5
+    static final float MAX_SPEECH_ZERO_CROSSING_RATE = 0.4f;
+    private static final float SILENCE_DB = -100f;
+    private static final double FLOOR_FALL_SECONDS = 0.1;
+    private static final double FLOOR_RISE_SECONDS = 3.0;
+    private static final double FLOOR_RISE_IN_SPEECH_SECONDS = 30.0;
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final PcmConverter.SampleFormat format;
+    private final float thresholdDb;
+    private final long hangoverFrames;
+
+    private boolean initialized = false;
+    private boolean speaking = false;
+    private long hangoverRemaining = 0;
+    private float noiseFloorDb = SILENCE_DB;
+    private float energyDb = SILENCE_DB;
+    private float zeroCrossingRate = 0;
+    private Transition transition = Transition.NONE;
+
+    public VoiceActivityDetector(
+        int sampleRate,
+        int channelCount,
+        PcmConverter.SampleFormat format,
+        float thresholdDb,
+        int hangoverMs
+    ) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.format = format;
+        this.thresholdDb = thresholdDb;
+        this.hangoverFrames = (long) hangoverMs * sampleRate / 1000;
+    }
+
+    /**
+     * Analyses {@code frameCount} interleaved frames and returns whether they belong to speech,
+     * hangover included. The change this caused, if any, is available from {@link #getTransition()}.
+     */
+    public boolean process(byte[] data, int offset, int frameCount) {
+        transition = Transition.NONE;
+        if (frameCount <= 0) {
+            return speaking;
+        }
+        measure(data, offset, frameCount);
+        double seconds = (double) frameCount / sampleRate;
+        if (!initialized) {
+            noiseFloorDb = energyDb;
+            initialized = true;
+        }
+
+        boolean active =
+            energyDb > Math.max(noiseFloorDb + thresholdDb, MIN_SPEECH_DB) &&
+            zeroCrossingRate < MAX_SPEECH_ZERO_CROSSING_RATE;
+        double timeConstant = energyDb < noiseFloorDb
+            ? FLOOR_FALL_SECONDS
+            : active ? FLOOR_RISE_IN_SPEECH_SECONDS : FLOOR_RISE_SECONDS;
+        noiseFloorDb += (float) ((energyDb - noiseFloorDb) * (1 - Math.exp(-seconds / timeConstant)));
+
+        if (active) {
+            hangoverRemaining = hangoverFrames;
+            if (!speaking) {
+                speaking = true;
+                transition = Transition.SPEECH_START;
+            }
+        } else if (speaking) {
+            hangoverRemaining -= frameCount;
+            if (hangoverRemaining <= 0) {
+                speaking = false;
+                transition = Transition.SPEECH_END;
+            }
+        }
+        return speaking;
+    }
+
+    /**
+     * Mean energy and zero-crossing rate of the first channel.
+     */
+    private void measure(byte[] data, int offset, int frameCount) {
+        int stride = format.bytesPerSample * channelCount;
+        double sumSquares = 0;
+        int crossings = 0;
+        boolean previousNegative = false;
+        int index = offset;
+        for (int i = 0; i < frameCount; i++, index += stride) {
+            float sample = PcmConverter.sampleAt(format, data, index);
+            sumSquares += sample * sample;
+            boolean negative = sample < 0;
+            if (i > 0 && negative != previousNegative) {
+                crossings++;
+            }
+            previousNegative = negative;
+        }
+        double meanSquare = sumSquares / frameCount;
+        energyDb = meanSquare > 1e-10 ? (float) (10 * Math.log10(meanSquare)) : SILENCE_DB;
+        zeroCrossingRate = frameCount > 1 ? (float) crossings / (frameCount - 1) : 0;
+    }
+
+    public Transition getTransition() {
+        return transition;
+    }
+
+    public boolean isSpeaking() {
+        return speaking;
+    }
+
+    public float getEnergyDb() {
+        return energyDb;
+    }
+
+    public float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    public float getZeroCrossingRate() {
+        return zeroCrossingRate;
+    }
+}
@@ -3,9 +3,13 @@ package com.tchvu3.capacitorvoicerecorder;
 import android.Manifest;
 import android.content.Context;
 import android.media.AudioManager;
-import android.media.MediaPlayer;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMetadataRetriever;
 import android.net.Uri;
+import android.os.Build;
 import android.util.Base64;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.PermissionState;
 import com.getcapacitor.Plugin;
@@ -14,10 +18,12 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
-import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
 
 @CapacitorPlugin(
     name = "VoiceRecorder",
@@ -26,10 +32,44 @@ import java.io.IOException;
 public class VoiceRecorder extends Plugin {
 
     static final String RECORD_AUDIO_ALIAS = "voice recording";
+    private static final String TRANSPORT_BASE64 = "base64";
+    private static final String TRANSPORT_BINARY = "binary";
+    private static final int DEFAULT_BINARY_BUFFER_MS = 10000;
+    private static final int DEFAULT_BATCH_MAX_DELAY_MS = 250;
+    private static final int FALLBACK_NATIVE_SAMPLE_RATE = 48000;
+    private static final String RESAMPLE_NONE = "none";
+    private static final String ENCODING_AAC = "aac";
+    private static final String ENCODING_OPUS = "opus";
+    private static final int DEFAULT_AAC_STREAM_BIT_RATE = 64000;
+    private static final int DEFAULT_OPUS_STREAM_BIT_RATE = 32000;
+    private static final int DEFAULT_TEE_AAC_BIT_RATE = 96000;
+    private static final String RECORDING_DATA_CHUNK_EVENT = "recordingDataChunk";
+    private static final String PREPARE_MODE_RECORDING = "recording";
+    private static final String PREPARE_MODE_STREAMING = "streaming";
+    private static final String WAVEFORM_FILE_SUFFIX = ".peaks";
+    private static final String SEGMENT_READY_EVENT = "segmentReady";
+    private static final int MAX_INLINE_PEAKS = 1000;
+    private static final String JOURNAL_DIRECTORY = "voice-recorder-journal";
+    private final RecordingStore recordingStore = new RecordingStore();
+    private RecordingJournal recordingJournal;
     private CustomMediaRecorder mediaRecorder;
+    private CustomMediaRecorder preparedRecorder;
+    private RecordOptions preparedRecordOptions;
+    private AudioStreamer preparedStreamer;
     private AudioStreamer audioStreamer;
+    private PcmRingStore binaryStore;
+    private LoopbackAudioServer binaryServer;
+    private AudioChunkDispatcher chunkDispatcher;
+    private AudioStreamer lastAudioStreamer;
+    private StreamTee streamTee;
     private boolean isStreaming = false;
 
+    @Override
+    public void load() {
+        // kept out of the cache so the list of unfinished recordings survives cache trimming
+        recordingJournal = new RecordingJournal(new File(getContext().getFilesDir(), JOURNAL_DIRECTORY));
+    }
+
     @PluginMethod
     public void canDeviceVoiceRecord(PluginCall call) {
         if (CustomMediaRecorder.canPhoneCreateMediaRecorder(getContext())) {
@@ -80,19 +120,102 @@ public class VoiceRecorder extends Plugin {
             return;
         }
 
+        long startNanos = System.nanoTime();
+        RecordOptions options;
         try {
-            String directory = call.getString("directory");
-            String subDirectory = call.getString("subDirectory");
-            RecordOptions options = new RecordOptions(directory, subDirectory);
-            mediaRecorder = new CustomMediaRecorder(getContext(), options);
-            mediaRecorder.startRecording();
-            call.resolve(ResponseGenerator.successResponse());
+            options = buildRecordOptions(call);
+            EncoderCapabilities.validate(options);
+        } catch (IllegalArgumentException exp) {
+            call.reject(Messages.UNSUPPORTED_RECORDING_OPTIONS, exp.getMessage());
+            return;
+        }
+
+        try {
+            boolean warmStart = preparedRecorder != null && options.equals(preparedRecordOptions);
+            if (warmStart) {
+                mediaRecorder = preparedRecorder;
+                preparedRecorder = null;
+            } else {
+                releasePrepared();
+                mediaRecorder = new CustomMediaRecorder(getContext(), options);
+            }
+            mediaRecorder.setLevelMonitor(createLevelMonitor(call));
+            mediaRecorder.setJournal(recordingJournal);
+            if (mediaRecorder.isSegmented()) {
+                RecordOptions recorderOptions = mediaRecorder.getRecordOptions();
+                mediaRecorder.setSegmentListener(segment ->
+                    notifyListeners(SEGMENT_READY_EVENT, segmentData(segment, recorderOptions))
+                );
+            }
+            mediaRecorder.startRecording(call.getInt("preRollMs", AudioStreamer.PRE_ROLL_ALL));
+            JSObject response = startResponse(ResponseGenerator.successResponse(), warmStart, startNanos);
+            response.put("preRollMs", mediaRecorder.getPreRollMs());
+            call.resolve(response);
         } catch (Exception exp) {
-            mediaRecorder = null;
+            if (mediaRecorder != null) {
+                // frees the microphone, a warm capture thread and the output file
+                mediaRecorder.release();
+                mediaRecorder = null;
+            }
             call.reject(Messages.FAILED_TO_RECORD, exp);
         }
     }
 
+    @PluginMethod
+    public void prepareRecorder(PluginCall call) {
+        if (!doesUserGaveAudioRecordingPermission()) {
+            call.reject(Messages.MISSING_PERMISSION);
+            return;
+        }
+
+        if (mediaRecorder != null || isStreaming) {
+            call.reject(Messages.ALREADY_RECORDING);
+            return;
+        }
+
+        String mode = call.getString("mode", PREPARE_MODE_RECORDING);
+        if (!PREPARE_MODE_RECORDING.equals(mode) && !PREPARE_MODE_STREAMING.equals(mode)) {
+            call.reject(Messages.FAILED_TO_PREPARE, "Unsupported mode: " + mode);
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        int preRollMs = call.getInt("preRollMs", 0);
+        releasePrepared();
+        try {
+            if (PREPARE_MODE_STREAMING.equals(mode)) {
+                AudioStreamer streamer = new AudioStreamer(buildStreamingOptions(call));
+                preparedStreamer = streamer;
+                if (preRollMs > 0) {
+                    streamer.arm(preRollMs);
+                } else {
+                    streamer.prepare();
+                }
+            } else {
+                RecordOptions options = buildRecordOptions(call);
+                EncoderCapabilities.validate(options);
+                preparedRecorder = new CustomMediaRecorder(getContext(), options);
+                // the recorder normalizes its options, so keep an untouched copy to compare start calls with
+                preparedRecordOptions = buildRecordOptions(call);
+                if (preRollMs > 0) {
+                    preparedRecorder.arm(preRollMs);
+                }
+            }
+            JSObject response = ResponseGenerator.successResponse();
+            response.put("prepareLatencyMs", elapsedMs(startNanos));
+            response.put("armed", preRollMs > 0);
+            call.resolve(response);
+        } catch (Exception exp) {
+            releasePrepared();
+            call.reject(Messages.FAILED_TO_PREPARE, exp.getMessage(), exp);
+        }
+    }
+
+    @PluginMethod
+    public void releasePreparedRecorder(PluginCall call) {
+        call.resolve(ResponseGenerator.fromBoolean(releasePrepared()));
+    }
+
     @PluginMethod
     public void stopRecording(PluginCall call) {
         if (mediaRecorder == null) {
@@ -100,29 +223,46 @@ public class VoiceRecorder extends Plugin {
             return;
         }
 
+        Integer base64ChunkSize = call.getInt("base64ChunkSize");
+        boolean deferData = call.getBoolean("deferData", false);
+        // segments were handed out through segmentReady as they finished
+        boolean retained = mediaRecorder.isSegmented();
         try {
             mediaRecorder.stopRecording();
             File recordedFile = mediaRecorder.getOutputFile();
             RecordOptions options = mediaRecorder.getRecordOptions();
+            if (mediaRecorder.isSegmented()) {
+                resolveSegmentedRecording(call, mediaRecorder);
+                return;
+            }
 
-            String path = null;
             String recordDataBase64 = null;
-            if (options.getDirectory() != null) {
-                path = recordedFile.getName();
-                if (options.getSubDirectory() != null) {
-                    path = options.getSubDirectory() + "/" + path;
-                }
+            String recordingId = null;
+            boolean dataDelivered = false;
+            int msDuration = getMsDurationOfAudioFile(recordedFile, options.getCodec());
+            String path = getRelativePath(recordedFile, options);
+            if (deferData && msDuration >= 0) {
+                boolean temporary = options.getDirectory() == null;
+                recordingId = recordingStore.retain(recordedFile, temporary, options.getCodec().isAdts());
+                retained = true;
+                dataDelivered = true;
+            } else if (path != null) {
+                dataDelivered = true;
+            } else if (base64ChunkSize != null && msDuration >= 0) {
+                emitRecordedFileAsBase64Chunks(recordedFile, base64ChunkSize);
+                dataDelivered = true;
             } else {
                 recordDataBase64 = readRecordedFileAsBase64(recordedFile);
+                dataDelivered = recordDataBase64 != null;
             }
 
-            RecordData recordData = new RecordData(
-                recordDataBase64,
-                getMsDurationOfAudioFile(recordedFile.getAbsolutePath()),
-                "audio/aac",
-                path
-            );
-            if ((recordDataBase64 == null && path == null) || recordData.getMsDuration() < 0) {
+            RecordData recordData = new RecordData(recordDataBase64, msDuration, options.getCodec().mimeType, path);
+            recordData.setRecordingId(recordingId);
+            WaveformPyramid waveform = mediaRecorder.getWaveform();
+            if (waveform != null) {
+                recordData.setWaveform(waveformData(waveform, recordedFile, path, recordingId, recordingId != null));
+            }
+            if (!dataDelivered || recordData.getMsDuration() < 0) {
                 call.reject(Messages.EMPTY_RECORDING);
             } else {
                 call.resolve(ResponseGenerator.dataResponse(recordData.toJSObject()));
@@ -131,7 +271,7 @@ public class VoiceRecorder extends Plugin {
             call.reject(Messages.FAILED_TO_FETCH_RECORDING, exp);
         } finally {
             RecordOptions options = mediaRecorder.getRecordOptions();
-            if (options.getDirectory() == null) {
+            if (options.getDirectory() == null && !retained) {
                 mediaRecorder.deleteOutputFile();
             }
 
@@ -139,6 +279,178 @@ public class VoiceRecorder extends Plugin {
         }
     }
 
+    /**
+     * Resolves a stopped segmented recording with its totals; the audio itself went out with the
+     * segmentReady events.
+     */
+    private void resolveSegmentedRecording(PluginCall call, CustomMediaRecorder recorder) {
+        if (recorder.getSegmentCount() == 0) {
+            call.reject(Messages.EMPTY_RECORDING);
+            return;
+        }
+        RecordOptions options = recorder.getRecordOptions();
+        RecordData recordData = new RecordData(
+            null,
+            (int) recorder.getSegmentedDurationMs(),
+            options.getCodec().mimeType,
+            null
+        );
+        recordData.setSegmentCount(recorder.getSegmentCount());
+        WaveformPyramid waveform = recorder.getWaveform();
+        if (waveform != null) {
+            // the pyramid covers every segment and is kept next to the first one
+            File firstSegment = recorder.getOutputFile();
+            recordData.setWaveform(
+                waveformData(waveform, firstSegment, getRelativePath(firstSegment, options), null, true)
+            );
+        }
+        call.resolve(ResponseGenerator.dataResponse(recordData.toJSObject()));
+    }
+
+    /**
+     * Payload of a segmentReady event. Segments outside a directory are retained for
+     * readRecordingRange and identified by a recordingId.
+     */
+    private JSObject segmentData(SegmentedAdtsWriter.Segment segment, RecordOptions options) {
+        JSObject data = new JSObject();
+        data.put("index", segment.index);
+        data.put("startMs", segment.startUs / 1000);
+        data.put("msDuration", segment.durationUs / 1000);
+        data.put("size", segment.bytes);
+        data.put("mimeType", options.getCodec().mimeType);
+        data.put("last", segment.last);
+        String path = getRelativePath(segment.file, options);
+        if (path != null) {
+            data.put("path", path);
+        } else {
+            data.put("recordingId", recordingStore.retain(segment.file, true, true));
+        }
+        return data;
+    }
+
+    /**
+     * Path of {@code file} relative to the directory {@code options} name, or {@code null} for
+     * files in the cache.
+     */
+    private static String getRelativePath(File file, RecordOptions options) {
+        return getRelativePath(file, options.getDirectory(), options.getSubDirectory());
+    }
+
+    private static String getRelativePath(File file, String directory, String subDirectory) {
+        if (directory == null) {
+            return null;
+        }
+        return subDirectory != null ? subDirectory + "/" + file.getName() : file.getName();
+    }
+
+    /**
+     * Returns the AAC recordings cut short by the app process dying. Each file left behind is
+     * truncated to its last complete frame and handed out like a deferred recording: by path, or
+     * for files in the cache by a recordingId for readRecordingRange. Files without a single
+     * complete frame are dropped, and so are segments the app already received through
+     * segmentReady (deleted if they sit in the cache). Every interrupted recording is reported once.
+     */
+    @PluginMethod
+    public void recoverRecordings(PluginCall call) {
+        JSArray recordings = new JSArray();
+        for (RecordingJournal.Entry entry : recordingJournal.getInterrupted()) {
+            List<File> files = entry.getFiles();
+            boolean temporary = entry.directory == null;
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                if (!file.exists()) {
+                    continue;
+                }
+                if (entry.isDelivered(i)) {
+                    // its recordingId died with the process, so nobody would release it
+                    if (temporary) {
+                        file.delete();
+                    }
+                    continue;
+                }
+                AdtsParser.Info info;
+                try {
+                    info = RecordingJournal.truncate(file);
+                } catch (IOException ignore) {
+                    // unreadable: leave the file where it is
+                    continue;
+                }
+                if (info.getFrameCount() == 0) {
+                    if (temporary) {
+                        file.delete();
+                    }
+                    continue;
+                }
+                JSObject data = new JSObject();
+                data.put("msDuration", info.getDurationMs());
+                data.put("mimeType", getRecoveredMimeType(entry.codec));
+                data.put("size", file.length());
+                data.put("startedAt", entry.startedAt);
+                if (files.size() > 1) {
+                    data.put("segmentIndex", i);
+                }
+                if (temporary) {
+                    data.put("recordingId", recordingStore.retain(file, true, true));
+                } else {
+                    data.put("path", getRelativePath(file, entry.directory, entry.subDirectory));
+                }
+                recordings.put(data);
+            }
+            recordingJournal.remove(entry);
+        }
+        JSObject response = new JSObject();
+        response.put("recordings", recordings);
+        call.resolve(response);
+    }
+
+    private static String getRecoveredMimeType(String codec) {
+        try {
+            return RecordOptions.Codec.valueOf(codec).mimeType;
+        } catch (IllegalArgumentException ignore) {
+            // only ADTS recordings are journaled
+            return RecordOptions.Codec.AAC_LC.mimeType;
+        }
+    }
+
+    @PluginMethod
+    public void readRecordingRange(PluginCall call) {
+        String recordingId = call.getString("recordingId");
+        Long startMs = call.getLong("startMs");
+        try {
+            RecordingStore.Range range;
+            if (startMs != null) {
+                Long endMs = call.getLong("endMs");
+                range = recordingStore.readTime(recordingId, startMs, endMs != null ? endMs : Long.MAX_VALUE);
+            } else {
+                Long offset = call.getLong("offset");
+                Integer length = call.getInt("length");
+                range = recordingStore.readBytes(
+                    recordingId,
+                    offset != null ? offset : 0,
+                    length != null ? length : RecordingStore.MAX_RANGE_BYTES
+                );
+            }
+            JSObject result = new JSObject();
+            result.put("data", Base64.encodeToString(range.data, Base64.NO_WRAP));
+            result.put("offset", range.offset);
+            result.put("length", range.data.length);
+            result.put("totalLength", range.totalLength);
+            result.put("startMs", range.startMs);
+            result.put("endMs", range.endMs);
+            result.put("msDuration", range.durationMs);
+            call.resolve(result);
+        } catch (IllegalArgumentException exp) {
+            call.reject(Messages.RECORDING_NOT_FOUND, exp);
+        } catch (UnsupportedOperationException | IOException exp) {
+            call.reject(Messages.FAILED_TO_FETCH_RECORDING, exp);
+        }
+    }
+
+    @PluginMethod
+    public void releaseRecording(PluginCall call) {
+        call.resolve(ResponseGenerator.fromBoolean(recordingStore.release(call.getString("recordingId"))));
+    }
+
     @PluginMethod
     public void pauseRecording(PluginCall call) {
         if (mediaRecorder == null) {
@@ -193,52 +505,99 @@ public class VoiceRecorder extends Plugin {
             return;
         }
 
-        // Parse streaming options
-        Integer sampleRate = call.getInt("sampleRate");
-        Integer channelCount = call.getInt("channelCount");
-        String encoding = call.getString("encoding");
-        Integer chunkDurationMs = call.getInt("chunkDurationMs");
-
-        AudioStreamer.StreamingOptions options = new AudioStreamer.StreamingOptions(
-            sampleRate != null ? sampleRate : 16000,
-            channelCount != null ? channelCount : 1,
-            encoding != null ? encoding : "pcm16",
-            chunkDurationMs != null ? chunkDurationMs : 100
-        );
+        long startNanos = System.nanoTime();
+        String transport = call.getString("transport", TRANSPORT_BASE64);
+        Integer binaryBufferMs = call.getInt("binaryBufferMs");
+        Integer batchSize = call.getInt("batchSize");
+        Integer batchMaxDelayMs = call.getInt("batchMaxDelayMs");
+        AudioStreamer.StreamingOptions options;
+        try {
+            options = buildStreamingOptions(call);
+        } catch (IllegalArgumentException e) {
+            call.reject("STREAMING_FAILED", e.getMessage());
+            return;
+        }
 
-        audioStreamer = new AudioStreamer(options);
-        audioStreamer.setListener(new AudioStreamer.AudioStreamerListener() {
-            @Override
-            public void onAudioData(byte[] data, long timestamp, int duration, AudioStreamer.AudioStreamFormat format) {
-                JSObject chunkData = new JSObject();
-                chunkData.put("data", Base64.encodeToString(data, Base64.DEFAULT));
-                chunkData.put("timestamp", timestamp);
-                chunkData.put("duration", duration);
-                
-                JSObject formatData = new JSObject();
-                formatData.put("sampleRate", format.sampleRate);
-                formatData.put("channelCount", format.channelCount);
-                formatData.put("encoding", format.encoding);
-                chunkData.put("format", formatData);
-                
-                notifyListeners("audioChunk", chunkData);
-            }
+        if (!TRANSPORT_BASE64.equals(transport) && !TRANSPORT_BINARY.equals(transport)) {
+            call.reject("STREAMING_FAILED", "Unsupported transport: " + transport);
+            return;
+        }
 
-            @Override
-            public void onError(String message, String code) {
-                JSObject errorData = new JSObject();
-                errorData.put("message", message);
-                errorData.put("code", code);
-                notifyListeners("streamError", errorData);
+        JSObject recordToFile = call.getObject("recordToFile");
+        if (recordToFile != null) {
+            RecordOptions location = new RecordOptions(
+                recordToFile.getString("directory"),
+                recordToFile.getString("subDirectory")
+            );
+            try {
+                streamTee = StreamTee.create(
+                    getContext(),
+                    location,
+                    recordToFile.getString("format", StreamTee.FORMAT_WAV),
+                    recordToFile.getInteger("bitRate", DEFAULT_TEE_AAC_BIT_RATE)
+                );
+            } catch (IOException | IllegalArgumentException e) {
+                call.reject("STREAMING_FAILED", e.getMessage(), e);
+                return;
             }
-        });
+        }
 
+        boolean warmStart = preparedStreamer != null && preparedStreamer.getOptions().equals(options);
+        if (warmStart) {
+            audioStreamer = preparedStreamer;
+            preparedStreamer = null;
+        } else {
+            releasePrepared();
+            audioStreamer = new AudioStreamer(options);
+        }
         try {
-            audioStreamer.startStreaming();
+            JSObject response = ResponseGenerator.successResponse();
+            if (TRANSPORT_BINARY.equals(transport)) {
+                int bufferMs = binaryBufferMs != null ? binaryBufferMs : DEFAULT_BINARY_BUFFER_MS;
+                binaryStore = new PcmRingStore(getBinaryStoreCapacity(options, bufferMs));
+                binaryServer = new LoopbackAudioServer(binaryStore);
+                binaryServer.start();
+                response.put("binaryUrl", binaryServer.getUrl());
+            }
+            chunkDispatcher = new AudioChunkDispatcher(
+                this::notifyListeners,
+                binaryStore,
+                audioStreamer.getStats(),
+                batchSize != null ? batchSize : 1,
+                batchMaxDelayMs != null ? batchMaxDelayMs : DEFAULT_BATCH_MAX_DELAY_MS
+            );
+            attachStreamEncoder(call.getString("encoding", "pcm16"), call.getInt("bitRate"), options);
+            if (streamTee != null) {
+                streamTee.attach(audioStreamer);
+            }
+            LevelMonitor levelMonitor = createLevelMonitor(call);
+            if (levelMonitor != null) {
+                audioStreamer.addSink(levelMonitor);
+            }
+            SpectrumMonitor spectrumMonitor = createSpectrumMonitor(call);
+            if (spectrumMonitor != null) {
+                audioStreamer.addSink(spectrumMonitor);
+            }
+            audioStreamer.setListener(chunkDispatcher);
+            audioStreamer.startStreaming(call.getInt("preRollMs", AudioStreamer.PRE_ROLL_ALL));
             isStreaming = true;
-            call.resolve(ResponseGenerator.successResponse());
+            response.put("preRollMs", audioStreamer.getPreRollMs());
+            if (spectrumMonitor != null) {
+                JSArray frequencies = new JSArray();
+                for (float frequency : spectrumMonitor.getCenterFrequencies()) {
+                    frequencies.put(Math.round(frequency));
+                }
+                response.put("spectrumFrequencies", frequencies);
+            }
+            call.resolve(startResponse(response, warmStart, startNanos));
         } catch (Exception e) {
+            audioStreamer.release();
             audioStreamer = null;
+            stopChunkDelivery();
+            if (streamTee != null) {
+                streamTee.discard();
+                streamTee = null;
+            }
             call.reject("STREAMING_FAILED", e.getMessage(), e);
         }
     }
@@ -252,10 +611,283 @@ public class VoiceRecorder extends Plugin {
 
         if (audioStreamer != null) {
             audioStreamer.stopStreaming();
+            lastAudioStreamer = audioStreamer;
             audioStreamer = null;
         }
+        stopChunkDelivery();
         isStreaming = false;
-        call.resolve(ResponseGenerator.successResponse());
+        JSObject response = ResponseGenerator.successResponse();
+        if (streamTee != null) {
+            response.put("recording", finishStreamTee());
+        }
+        call.resolve(response);
+    }
+
+    /**
+     * Describes the archive file of the stream that just stopped. Files outside a directory are
+     * retained for readRecordingRange rather than returned as Base64.
+     */
+    private JSObject finishStreamTee() {
+        StreamTee tee = streamTee;
+        streamTee = null;
+        RecordOptions location = tee.getLocation();
+        String path = getRelativePath(tee.getFile(), location);
+        String recordingId = null;
+        if (path == null) {
+            recordingId = recordingStore.retain(tee.getFile(), true, tee.isAdts());
+        }
+        RecordData recordData = new RecordData(null, (int) tee.getDurationMs(), tee.getMimeType(), path);
+        recordData.setRecordingId(recordingId);
+        JSObject recording = recordData.toJSObject();
+        if (tee.getError() != null) {
+            recording.put("error", tee.getError().getMessage());
+        }
+        return recording;
+    }
+
+    @PluginMethod
+    public void getStreamingQueueStatus(PluginCall call) {
+        ChunkHandoffQueue queue = audioStreamer != null ? audioStreamer.getHandoffQueue() : null;
+        if (queue == null) {
+            call.reject("STREAMING_NOT_STARTED", "Audio streaming has not been started");
+            return;
+        }
+
+        JSObject status = new JSObject();
+        status.put("policy", queue.getPolicy().toJsValue());
+        status.put("capacity", queue.getCapacity());
+        status.put("depth", queue.getDepth());
+        status.put("droppedOldest", queue.getDroppedOldest());
+        status.put("droppedNewest", queue.getDroppedNewest());
+        status.put("droppedNoBuffer", audioStreamer.getStats().getDroppedNoBuffer());
+        status.put("coalesced", queue.getCoalesced());
+        status.put("blockedMs", queue.getBlockedNanos() / 1_000_000);
+        call.resolve(status);
+    }
+
+    @PluginMethod
+    public void getStreamingStats(PluginCall call) {
+        AudioStreamer streamer = audioStreamer != null ? audioStreamer : lastAudioStreamer;
+        if (streamer == null) {
+            call.reject("STREAMING_NOT_STARTED", "Audio streaming has not been started");
+            return;
+        }
+
+        JSObject stats = streamer.getStats().toJSObject(streamer.getHandoffQueue());
+        stats.put("streaming", streamer == audioStreamer);
+        stats.put("hardwareTimestamps", streamer.usesHardwareTimestamps());
+        call.resolve(stats);
+    }
+
+    private void stopChunkDelivery() {
+        if (chunkDispatcher != null) {
+            chunkDispatcher.stop();
+            chunkDispatcher = null;
+        }
+        if (binaryServer != null) {
+            binaryServer.stop();
+            binaryServer = null;
+        }
+        binaryStore = null;
+    }
+
+    /**
+     * Attaches the compressor of a compressed streaming encoding; PCM encodings need none. Sample
+     * codecs run on each chunk in the dispatcher, frame codecs in an encoder sink of the streamer.
+     */
+    private void attachStreamEncoder(String encoding, Integer bitRate, AudioStreamer.StreamingOptions options) {
+        switch (encoding) {
+            case MuLawEncoder.ENCODING -> chunkDispatcher.setChunkEncoder(new MuLawEncoder(options.channelCount));
+            case ImaAdpcmEncoder.ENCODING -> chunkDispatcher.setChunkEncoder(new ImaAdpcmEncoder(options.channelCount));
+            case ENCODING_AAC, ENCODING_OPUS -> {
+                EncoderSink encoder = ENCODING_AAC.equals(encoding)
+                    ? new EncoderSink(
+                        MediaFormat.MIMETYPE_AUDIO_AAC,
+                        bitRate != null ? bitRate : DEFAULT_AAC_STREAM_BIT_RATE,
+                        MediaCodecInfo.CodecProfileLevel.AACObjectLC
+                    )
+                    : new EncoderSink(
+                        MediaFormat.MIMETYPE_AUDIO_OPUS,
+                        bitRate != null ? bitRate : DEFAULT_OPUS_STREAM_BIT_RATE,
+                        0
+                    );
+                encoder.addOutput(chunkDispatcher);
+                chunkDispatcher.setEncodedChunkDurationMs(options.chunkDurationMs);
+                audioStreamer.addSink(encoder);
+            }
+            default -> {}
+        }
+    }
+
+    /**
+     * PCM encoding captured for {@code encoding}: compressed encodings are produced from PCM16.
+     */
+    private static String getCaptureEncoding(String encoding) {
+        return switch (encoding) {
+            case MuLawEncoder.ENCODING, ImaAdpcmEncoder.ENCODING, ENCODING_AAC -> "pcm16";
+            case ENCODING_OPUS -> {
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+                    throw new IllegalArgumentException("opus streaming requires Android API " + Build.VERSION_CODES.Q);
+                }
+                yield "pcm16";
+            }
+            default -> encoding;
+        };
+    }
+
+    /**
+     * Reads the output location and encoder options shared by prepareRecorder and startRecording.
+     */
+    private static RecordOptions buildRecordOptions(PluginCall call) {
+        RecordOptions options = new RecordOptions(call.getString("directory"), call.getString("subDirectory"));
+        options.setCodec(RecordOptions.Codec.fromString(call.getString("codec")));
+        Integer bitRate = call.getInt("bitRate");
+        Integer sampleRate = call.getInt("sampleRate");
+        Integer channelCount = call.getInt("channelCount");
+        if (bitRate != null) {
+            options.setBitRate(bitRate);
+        }
+        if (sampleRate != null) {
+            options.setSampleRate(sampleRate);
+        } else if (options.getCodec() == RecordOptions.Codec.AMR_WB) {
+            options.setSampleRate(16000);
+        } else if (options.getCodec() == RecordOptions.Codec.OPUS) {
+            options.setSampleRate(48000);
+        }
+        if (bitRate == null && options.getCodec() == RecordOptions.Codec.AMR_WB) {
+            options.setBitRate(23850);
+        }
+        if (channelCount != null) {
+            options.setChannelCount(channelCount);
+        }
+        Long segmentDurationMs = call.getLong("segmentDurationMs");
+        Long segmentMaxBytes = call.getLong("segmentMaxBytes");
+        if (segmentDurationMs != null) {
+            options.setSegmentDurationMs(segmentDurationMs);
+        }
+        if (segmentMaxBytes != null) {
+            options.setSegmentMaxBytes(segmentMaxBytes);
+        }
+        return options;
+    }
+
+    /**
+     * Reads the capture and hand-off options shared by prepareRecorder and startStreaming.
+     */
+    private AudioStreamer.StreamingOptions buildStreamingOptions(PluginCall call) {
+        Integer sampleRate = call.getInt("sampleRate");
+        Integer channelCount = call.getInt("channelCount");
+        String encoding = call.getString("encoding");
+        Integer chunkDurationMs = call.getInt("chunkDurationMs");
+        Integer queueCapacity = call.getInt("queueCapacity");
+        String resampleQuality = call.getString("resampleQuality", "medium");
+
+        AudioStreamer.StreamingOptions options = new AudioStreamer.StreamingOptions(
+            sampleRate != null ? sampleRate : 16000,
+            channelCount != null ? channelCount : 1,
+            getCaptureEncoding(encoding != null ? encoding : "pcm16"),
+            chunkDurationMs != null ? chunkDurationMs : 100
+        );
+        options.setBackpressurePolicy(ChunkHandoffQueue.Policy.fromString(call.getString("backpressure")));
+        if (queueCapacity != null) {
+            options.setQueueCapacity(queueCapacity);
+        }
+        JSObject voiceActivity = call.getObject("voiceActivity");
+        if (voiceActivity != null) {
+            options.setVoiceActivityDetection(true);
+            options.setSuppressSilence(voiceActivity.getBoolean("suppressSilence", false));
+            options.setVadThresholdDb(
+                (float) voiceActivity.optDouble("thresholdDb", VoiceActivityDetector.DEFAULT_THRESHOLD_DB)
+            );
+            options.setVadHangoverMs(voiceActivity.getInteger("hangoverMs", VoiceActivityDetector.DEFAULT_HANGOVER_MS));
+            options.setVadPaddingMs(voiceActivity.getInteger("paddingMs", options.getVadPaddingMs()));
+        }
+        if (!RESAMPLE_NONE.equals(resampleQuality)) {
+            options.setResampleQuality(PolyphaseResampler.Quality.fromString(resampleQuality));
+            if (!AudioStreamer.isCaptureSupported(options)) {
+                // the device cannot capture at sampleRate itself: capture at its native rate instead
+                options.setCaptureSampleRate(getNativeSampleRate());
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Builds the meter requested by the {@code audioLevel} option, or returns {@code null}.
+     */
+    private LevelMonitor createLevelMonitor(PluginCall call) {
+        JSObject audioLevel = call.getObject("audioLevel");
+        if (audioLevel == null) {
+            return null;
+        }
+        return new LevelMonitor(
+            this::notifyListeners,
+            audioLevel.getInteger("windowMs", LevelMeter.DEFAULT_WINDOW_MS),
+            audioLevel.getInteger("intervalMs", LevelMonitor.DEFAULT_INTERVAL_MS)
+        );
+    }
+
+    /**
+     * Builds the analyser requested by the {@code spectrum} option, or returns {@code null}.
+     */
+    private SpectrumMonitor createSpectrumMonitor(PluginCall call) {
+        JSObject spectrum = call.getObject("spectrum");
+        if (spectrum == null) {
+            return null;
+        }
+        int fftSize = spectrum.getInteger("fftSize", SpectrumAnalyzer.DEFAULT_FFT_SIZE);
+        int bands = spectrum.getInteger("bands", SpectrumAnalyzer.DEFAULT_BAND_COUNT);
+        if (fftSize < 64 || fftSize > 8192 || Integer.bitCount(fftSize) != 1) {
+            throw new IllegalArgumentException("fftSize must be a power of two between 64 and 8192");
+        }
+        if (bands < 1 || bands > fftSize / 2) {
+            throw new IllegalArgumentException("bands must be between 1 and fftSize / 2");
+        }
+        return new SpectrumMonitor(
+            this::notifyListeners,
+            fftSize,
+            bands,
+            SpectrumAnalyzer.Scale.fromString(spectrum.getString("scale", "log")),
+            spectrum.getInteger("intervalMs", SpectrumMonitor.DEFAULT_INTERVAL_MS)
+        );
+    }
+
+    /**
+     * Releases a recorder or stream prepared by prepareRecorder. Returns whether there was one.
+     */
+    private boolean releasePrepared() {
+        boolean released = preparedRecorder != null || preparedStreamer != null;
+        if (preparedRecorder != null) {
+            preparedRecorder.release();
+            preparedRecorder = null;
+        }
+        if (preparedStreamer != null) {
+            preparedStreamer.release();
+            preparedStreamer = null;
+        }
+        return released;
+    }
+
+    private static JSObject startResponse(JSObject response, boolean warmStart, long startNanos) {
+        response.put("warmStart", warmStart);
+        response.put("startLatencyMs", elapsedMs(startNanos));
+        return response;
+    }
+
+    private static double elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1e6;
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        releasePrepared();
+        recordingStore.releaseAll();
+        super.handleOnDestroy();
+    }
+
+    private static int getBinaryStoreCapacity(AudioStreamer.StreamingOptions options, int bufferMs) {
+        long bytesPerSecond = (long) options.sampleRate * options.channelCount * options.getBytesPerSample();
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytesPerSecond * Math.max(bufferMs, 1) / 1000));
     }
 
     private boolean doesUserGaveAudioRecordingPermission() {
@@ -263,29 +895,128 @@ public class VoiceRecorder extends Plugin {
     }
 
     private String readRecordedFileAsBase64(File recordedFile) {
-        BufferedInputStream bufferedInputStream;
-        byte[] bArray = new byte[(int) recordedFile.length()];
         try {
-            bufferedInputStream = new BufferedInputStream(new FileInputStream(recordedFile));
-            bufferedInputStream.read(bArray);
-            bufferedInputStream.close();
+            return StreamingBase64.encodeFile(recordedFile);
         } catch (IOException exp) {
             return null;
         }
-        return Base64.encodeToString(bArray, Base64.DEFAULT);
     }
 
-    private int getMsDurationOfAudioFile(String recordedFilePath) {
+    /**
+     * Describes the peaks of a recording: the level closest to {@link #MAX_INLINE_PEAKS} inline,
+     * and for a recording that is {@code kept} the whole pyramid saved next to the file. In a
+     * directory the pyramid has a path; in the cache it gets a recordingId, released together with
+     * recording {@code ownerId} if there is one.
+     */
+    private JSObject waveformData(
+        WaveformPyramid waveform,
+        File recordedFile,
+        String path,
+        String ownerId,
+        boolean kept
+    ) {
+        JSObject data = new JSObject();
+        File peaksFile = new File(recordedFile.getPath() + WAVEFORM_FILE_SUFFIX);
+        if ((path != null || kept) && writePeaks(waveform, peaksFile)) {
+            if (path != null) {
+                data.put("path", path + WAVEFORM_FILE_SUFFIX);
+            } else if (ownerId != null) {
+                data.put("recordingId", recordingStore.retainCompanion(ownerId, peaksFile));
+            } else {
+                data.put("recordingId", recordingStore.retain(peaksFile, true, false));
+            }
+        }
+        int level = waveform.chooseLevel(MAX_INLINE_PEAKS);
+        short[] peaks = waveform.getPeaks(level);
+        JSArray values = new JSArray();
+        for (int i = 0; i < waveform.getPeakCount(level) * 2; i++) {
+            values.put(Double.valueOf(Math.round(peaks[i] / 32.767) / 1000.0));
+        }
+        data.put("sampleRate", waveform.getSampleRate());
+        data.put("samplesPerPeak", waveform.getSamplesPerPeak(level));
+        data.put("peaks", values);
+        return data;
+    }
+
+    private static boolean writePeaks(WaveformPyramid waveform, File peaksFile) {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(peaksFile))) {
+            waveform.writeTo(output);
+            return true;
+        } catch (IOException ignore) {
+            // the inline peaks are still returned
+            peaksFile.delete();
+            return false;
+        }
+    }
+
+    /**
+     * Sends the file as {@code recordingDataChunk} events. Nothing waits for the WebView to consume
+     * them, so the queued events can add up to the whole encoding; only deferred recordings read
+     * through readRecordingRange keep memory bounded.
+     */
+    private void emitRecordedFileAsBase64Chunks(File recordedFile, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IOException("base64ChunkSize must be positive");
+        }
+        StreamingBase64.encodeFile(
+            recordedFile,
+            chunkSize,
+            (base64, byteOffset, last) -> {
+                JSObject chunk = new JSObject();
+                chunk.put("data", base64);
+                chunk.put("offset", byteOffset);
+                chunk.put("last", last);
+                notifyListeners(RECORDING_DATA_CHUNK_EVENT, chunk);
+            }
+        );
+    }
+
+    private int getMsDurationOfAudioFile(File recordedFile, RecordOptions.Codec codec) {
+        if (!codec.isAdts()) {
+            return getMsDurationFromMetadata(recordedFile);
+        }
         try {
-            MediaPlayer mediaPlayer = new MediaPlayer();
-            mediaPlayer.setDataSource(recordedFilePath);
-            mediaPlayer.prepare();
-            return mediaPlayer.getDuration();
-        } catch (Exception ignore) {
+            AdtsParser.Info info = AdtsParser.scan(recordedFile);
+            return info.getFrameCount() > 0 ? (int) info.getDurationMs() : -1;
+        } catch (IOException ignore) {
             return -1;
         }
     }
 
+    private static int getMsDurationFromMetadata(File recordedFile) {
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(recordedFile.getAbsolutePath());
+            String duration = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return duration != null ? Integer.parseInt(duration) : -1;
+        } catch (RuntimeException ignore) {
+            return -1;
+        } finally {
+            try {
+                retriever.release();
+            } catch (IOException | RuntimeException ignore) {
+                // nothing left to clean up
+            }
+        }
+    }
+
+    /**
+     * Android has no query for the native capture rate, so the output mixer rate stands in for it;
+     * on virtually every device both run at the same rate.
+     */
+    private int getNativeSampleRate() {
+        AudioManager audioManager = (AudioManager) this.getContext().getSystemService(Context.AUDIO_SERVICE);
+        String rate = audioManager != null ? audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE) : null;
+        if (rate == null) {
+            return FALLBACK_NATIVE_SAMPLE_RATE;
+        }
+        try {
+            return Integer.parseInt(rate);
+        } catch (NumberFormatException e) {
+            return FALLBACK_NATIVE_SAMPLE_RATE;
+        }
+    }
+
     private boolean isMicrophoneOccupied() {
         AudioManager audioManager = (AudioManager) this.getContext().getSystemService(Context.AUDIO_SERVICE);
         if (audioManager == null) return true;
@@ -0,0 +1,201 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Archives the PCM of an {@link AudioStreamer} to a WAV file.
+ * <p>
+ * The capture thread only copies into a ring; a writer thread appends to the file in batches of at
+ * least {@link #BATCH_BYTES} or every {@link #FLUSH_INTERVAL_MS}, whichever comes first, and the
+ * RIFF sizes are filled in on {@link #stop()}. PCM the writer could not save before the ring
+ * wrapped is counted in {@link #getDroppedBytes()}.
+ */
+public class WavFileSink implements AudioSink {
+
+    static final int HEADER_LENGTH = 44;
+    static final int BATCH_BYTES = 64 * 1024;
+    static final long FLUSH_INTERVAL_MS = 250;
+    private static final int RING_SECONDS = 4;
+    private static final short FORMAT_PCM = 1;
+    private static final short FORMAT_IEEE_FLOAT = 3;
+
+    private final File file;
+    private final Object lock = new Object();
+    private RandomAccessFile output;
+    private FileChannel channel;
+    private PcmRingStore ring;
+    private byte[] batch;
+    private Thread thread;
+    private int sampleRate;
+    private int frameBytes;
+    private long readPosition;
+    private long dataLength;
+    private volatile boolean stopping;
+    private volatile long droppedBytes;
+    private volatile IOException error;
+
+    public WavFileSink(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public void start(AudioStreamer.AudioStreamFormat format) throws IOException {
+        PcmConverter.SampleFormat sampleFormat = PcmConverter.SampleFormat.fromEncoding(format.encoding);
+        sampleRate = format.sampleRate;
+        frameBytes = sampleFormat.bytesPerSample * format.channelCount;
+        ring = new PcmRingStore(Math.max(BATCH_BYTES * 2, sampleRate * frameBytes * RING_SECONDS));
+        batch = new byte[BATCH_BYTES * 2];
+        readPosition = 0;
+        dataLength = 0;
+        droppedBytes = 0;
+        error = null;
+        stopping = false;
+
+        output = new RandomAccessFile(file, "rw");
+        output.setLength(0);
+        channel = output.getChannel();
+        channel.write(header(format, sampleFormat, 0), 0);
+        thread = new Thread(this::writeLoop, "WavFileSink");
+        thread.start();
+    }
+
+    @Override
+    public void write(byte[] data, int length, long framePosition) {
+        long end = ring.write(data, 0, length) + length;
+        if (end - readPosition >= BATCH_BYTES) {
+            synchronized (lock) {
+                lock.notify();
+            }
+        }
+    }
+
+    /**
+     * Writes what is still buffered, completes the header and closes the file.
+     */
+    @Override
+    public void stop() {
+        if (thread == null) {
+            return;
+        }
+        stopping = true;
+        synchronized (lock) {
+            lock.notify();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+        try {
+            ByteBuffer sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            sizes.putInt(0, (int) Math.min(0xffffffffL, HEADER_LENGTH - 8 + dataLength));
+            channel.write(sizes, 4);
+            sizes.clear();
+            sizes.putInt(0, (int) Math.min(0xffffffffL, dataLength));
+            channel.write(sizes, HEADER_LENGTH - 4);
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        } finally {
+            try {
+                output.close();
+            } catch (IOException ignored) {
+                // the data is on disk already
+            }
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getDurationMs() {
+        return frameBytes > 0 ? dataLength / frameBytes * 1000 / sampleRate : 0;
+    }
+
+    public long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * The error that stopped writing early, or {@code null}.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                boolean last = stopping;
+                synchronized (lock) {
+                    if (!last && ring.getWritePosition() - readPosition < BATCH_BYTES) {
+                        lock.wait(FLUSH_INTERVAL_MS);
+                    }
+                }
+                drain();
+                if (last) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() throws IOException {
+        while (true) {
+            long available = ring.getWritePosition() - readPosition;
+            int count = (int) Math.min(available - available % frameBytes, batch.length);
+            if (count <= 0) {
+                return;
+            }
+            int read = ring.read(readPosition, batch, 0, count);
+            if (read < 0) {
+                long oldest = ring.getOldestPosition();
+                long resume = oldest + (frameBytes - oldest % frameBytes) % frameBytes;
+                droppedBytes += resume - readPosition;
+                readPosition = resume;
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(batch, 0, read);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, HEADER_LENGTH + dataLength + buffer.position());
+            }
+            readPosition += read;
+            dataLength += read;
+        }
+    }
+
+    private static ByteBuffer header(
+        AudioStreamer.AudioStreamFormat format,
+        PcmConverter.SampleFormat sampleFormat,
+        int dataLength
+    ) {
+        int blockAlign = sampleFormat.bytesPerSample * format.channelCount;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] { 'R', 'I', 'F', 'F' });
+        header.putInt(HEADER_LENGTH - 8 + dataLength);
+        header.put(new byte[] { 'W', 'A', 'V', 'E', 'f', 'm', 't', ' ' });
+        header.putInt(16);
+        header.putShort(sampleFormat == PcmConverter.SampleFormat.FLOAT32 ? FORMAT_IEEE_FLOAT : FORMAT_PCM);
+        header.putShort((short) format.channelCount);
+        header.putInt(format.sampleRate);
+        header.putInt(format.sampleRate * blockAlign);
+        header.putShort((short) blockAlign);
+        header.putShort((short) (sampleFormat.bytesPerSample * 8));
+        header.put(new byte[] { 'd', 'a', 't', 'a' });
+        header.putInt(dataLength);
+        header.flip();
+        return header;
+    }
+}
@@ -0,0 +1,182 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Multi-resolution min/max peaks of a recording, built incrementally as PCM arrives.
+ * <p>
+ * Level 0 holds one min/max pair per {@code samplesPerPeak} frames over all channels; every level
+ * above folds {@link #LEVEL_FACTOR} pairs of the one below into one. Peaks are kept in the PCM16
+ * range. Each level grows by doubling, so adding PCM allocates only once in a long while, and a
+ * renderer can pick the level closest to its pixel density without touching the audio.
+ * <p>
+ * {@link #writeTo} stores the pyramid little-endian: the magic {@code WPK1}, the sample rate and
+ * level count as int32, then per level its samples per peak and peak count as int32 followed by
+ * that many int16 min/max pairs.
+ */
+public class WaveformPyramid {
+
+    public static final int DEFAULT_SAMPLES_PER_PEAK = 256;
+    public static final int LEVEL_FACTOR = 4;
+    static final int LEVEL_COUNT = 8;
+    private static final byte[] MAGIC = { 'W', 'P', 'K', '1' };
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int sampleRate;
+    private final int channelCount;
+    private final PcmConverter.SampleFormat format;
+    private final int samplesPerPeak;
+    private final short[][] peaks = new short[LEVEL_COUNT][];
+    private final int[] counts = new int[LEVEL_COUNT];
+    private final int[] pendingMin = new int[LEVEL_COUNT];
+    private final int[] pendingMax = new int[LEVEL_COUNT];
+    private final int[] pendingFill = new int[LEVEL_COUNT];
+    private boolean finished = false;
+
+    public WaveformPyramid(int sampleRate, int channelCount, PcmConverter.SampleFormat format, int samplesPerPeak) {
+        if (samplesPerPeak <= 0) {
+            throw new IllegalArgumentException("samplesPerPeak must be positive");
+        }
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.format = format;
+        this.samplesPerPeak = samplesPerPeak;
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            peaks[level] = new short[2 * Math.max(16, INITIAL_CAPACITY >> (2 * level))];
+            resetPending(level);
+        }
+    }
+
+    /**
+     * Adds {@code frameCount} interleaved frames.
+     */
+    public void add(byte[] data, int offset, int frameCount) {
+        if (finished) {
+            throw new IllegalStateException("Waveform already finished");
+        }
+        int index = offset;
+        for (int i = 0; i < frameCount; i++) {
+            int min = pendingMin[0];
+            int max = pendingMax[0];
+            for (int channel = 0; channel < channelCount; channel++, index += format.bytesPerSample) {
+                int sample = toPcm16(PcmConverter.sampleAt(format, data, index));
+                if (sample < min) {
+                    min = sample;
+                }
+                if (sample > max) {
+                    max = sample;
+                }
+            }
+            pendingMin[0] = min;
+            pendingMax[0] = max;
+            if (++pendingFill[0] == samplesPerPeak) {
+                push(0);
+            }
+        }
+    }
+
+    /**
+     * Closes the partial peak of every level. No PCM can be added afterwards.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (pendingFill[level] > 0) {
+                push(level);
+            }
+        }
+        finished = true;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getLevelCount() {
+        return LEVEL_COUNT;
+    }
+
+    public int getSamplesPerPeak(int level) {
+        return samplesPerPeak * (1 << (2 * level));
+    }
+
+    public int getPeakCount(int level) {
+        return counts[level];
+    }
+
+    /**
+     * Min/max pairs of {@code level}, interleaved; only the first {@code 2 * getPeakCount(level)}
+     * values are valid.
+     */
+    public short[] getPeaks(int level) {
+        return peaks[level];
+    }
+
+    /**
+     * Returns the finest level with at most {@code maxPeaks} peaks, or the coarsest level.
+     */
+    public int chooseLevel(int maxPeaks) {
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            if (counts[level] <= maxPeaks) {
+                return level;
+            }
+        }
+        return LEVEL_COUNT - 1;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(sampleRate).putInt(LEVEL_COUNT);
+        output.write(header.array());
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            ByteBuffer buffer = ByteBuffer.allocate(8 + counts[level] * 4).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(getSamplesPerPeak(level)).putInt(counts[level]);
+            buffer.asShortBuffer().put(peaks[level], 0, counts[level] * 2);
+            output.write(buffer.array());
+        }
+    }
+
+    /**
+     * Appends the pending pair of {@code level} and folds it into the level above.
+     */
+    private void push(int level) {
+        int min = pendingMin[level];
+        int max = pendingMax[level];
+        resetPending(level);
+        short[] target = peaks[level];
+        int count = counts[level];
+        if (2 * count == target.length) {
+            target = Arrays.copyOf(target, target.length * 2);
+            peaks[level] = target;
+        }
+        target[2 * count] = (short) min;
+        target[2 * count + 1] = (short) max;
+        counts[level] = count + 1;
+
+        int up = level + 1;
+        if (up < LEVEL_COUNT) {
+            pendingMin[up] = Math.min(pendingMin[up], min);
+            pendingMax[up] = Math.max(pendingMax[up], max);
+            if (++pendingFill[up] == LEVEL_FACTOR) {
+                push(up);
+            }
+        }
+    }
+
+    private void resetPending(int level) {
+        pendingMin[level] = Short.MAX_VALUE;
+        pendingMax[level] = Short.MIN_VALUE;
+        pendingFill[level] = 0;
+    }
+
+    private static int toPcm16(float sample) {
+        int value = Math.round(sample * 32767f);
+        return value < Short.MIN_VALUE ? Short.MIN_VALUE : Math.min(value, Short.MAX_VALUE);
+    }
+}
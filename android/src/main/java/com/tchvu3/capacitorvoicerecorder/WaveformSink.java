@@ -0,0 +1,52 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+/**
+ * Builds the {@link WaveformPyramid} of a recording on the capture thread.
+ * <p>
+ * PCM written while paused is skipped, so the peaks line up with the encoded file. The pyramid is
+ * complete once {@link #stop()} has returned.
+ */
+public class WaveformSink implements AudioSink {
+
+    private final int samplesPerPeak;
+    private WaveformPyramid pyramid;
+    private int frameBytes;
+    private volatile boolean paused = false;
+
+    public WaveformSink(int samplesPerPeak) {
+        this.samplesPerPeak = samplesPerPeak;
+    }
+
+    @Override
+    public void start(AudioStreamer.AudioStreamFormat format) {
+        PcmConverter.SampleFormat sampleFormat = PcmConverter.SampleFormat.fromEncoding(format.encoding);
+        frameBytes = sampleFormat.bytesPerSample * format.channelCount;
+        pyramid = new WaveformPyramid(format.sampleRate, format.channelCount, sampleFormat, samplesPerPeak);
+        paused = false;
+    }
+
+    @Override
+    public void write(byte[] data, int length, long framePosition) {
+        if (!paused) {
+            pyramid.add(data, 0, length / frameBytes);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (pyramid != null) {
+            pyramid.finish();
+        }
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    /**
+     * The pyramid of the last recording, or {@code null} if it never started.
+     */
+    public WaveformPyramid getPyramid() {
+        return pyramid;
+    }
+}
@@ -0,0 +1,61 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AdtsFileWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesFramesTheParserReadsBack() throws IOException {
+        File file = folder.newFile("out.aac");
+        AdtsFileWriter writer = new AdtsFileWriter(file);
+        writer.start("audio/mp4a-latm", 44100, 2, AdtsHeader.AOT_AAC_LC);
+        byte[] payload = new byte[400];
+        for (int i = 0; i < 100; i++) {
+            payload[0] = (byte) i;
+            writer.write(payload, 0, 150 + i * 2, i * 23_219L);
+        }
+        writer.stop();
+
+        AdtsParser.Index index = AdtsParser.index(file);
+        assertEquals(100, index.getFrameCount());
+        assertEquals(44100, index.getSampleRate());
+        assertEquals(2, index.getChannelCount());
+        assertEquals(100 * 1024, index.getSampleStart(100));
+        assertEquals(file.length(), index.getOffset(100));
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        long fifth = index.getOffset(5);
+        assertEquals(5, bytes[(int) fifth + AdtsParser.HEADER_LENGTH]);
+        // profile field is the object type minus one
+        assertEquals(1, (bytes[2] >> 6) & 0x03);
+    }
+
+    @Test
+    public void describesHeAacByItsCore() throws IOException {
+        File file = folder.newFile("he.aac");
+        AdtsFileWriter writer = new AdtsFileWriter(file);
+        writer.start("audio/mp4a-latm", 48000, 1, AdtsHeader.AOT_HE_AAC);
+        writer.write(new byte[200], 0, 200, 0);
+        writer.stop();
+
+        AdtsParser.Info info = AdtsParser.scan(file);
+        assertEquals(24000, info.getSampleRate());
+        assertEquals(1, info.getChannelCount());
+        assertEquals(1024 * 1000 / 24000, info.getDurationMs());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsRatesWithoutSamplingIndex() throws IOException {
+        new AdtsFileWriter(folder.newFile("bad.aac")).start("audio/mp4a-latm", 44000, 1, AdtsHeader.AOT_AAC_LC);
+    }
+}
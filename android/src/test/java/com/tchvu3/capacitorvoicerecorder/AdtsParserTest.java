@@ -0,0 +1,87 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AdtsParserTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void derivesDurationFromFrameCountAndSampleRate() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        // 44100 Hz is sampling frequency index 4; 431 frames of 1024 samples ~ 10 s
+        for (int i = 0; i < 431; i++) {
+            stream.write(frame(4, 2, 200 + i % 50, 0));
+        }
+        AdtsParser.Info info = AdtsParser.scan(write(stream.toByteArray()));
+
+        assertEquals(431, info.getFrameCount());
+        assertEquals(44100, info.getSampleRate());
+        assertEquals(2, info.getChannelCount());
+        assertEquals(431 * 1024, info.getSampleCount());
+        assertEquals(431L * 1024 * 1000 / 44100, info.getDurationMs());
+    }
+
+    @Test
+    public void countsEveryRawDataBlock() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(frame(8, 1, 300, 3));
+        stream.write(frame(8, 1, 300, 0));
+        AdtsParser.Info info = AdtsParser.scan(write(stream.toByteArray()));
+
+        assertEquals(2, info.getFrameCount());
+        assertEquals(5 * 1024, info.getSampleCount());
+        assertEquals(16000, info.getSampleRate());
+    }
+
+    @Test
+    public void ignoresTruncatedTrailingFrame() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(frame(3, 1, 256, 0));
+        stream.write(frame(3, 1, 256, 0));
+        byte[] partial = frame(3, 1, 256, 0);
+        stream.write(partial, 0, 100);
+        AdtsParser.Info info = AdtsParser.scan(write(stream.toByteArray()));
+
+        assertEquals(2, info.getFrameCount());
+    }
+
+    @Test
+    public void returnsNoFramesForNonAdtsData() throws IOException {
+        AdtsParser.Info empty = AdtsParser.scan(write(new byte[0]));
+        assertEquals(0, empty.getFrameCount());
+        assertEquals(0, empty.getDurationMs());
+
+        AdtsParser.Info garbage = AdtsParser.scan(write(new byte[] { 'I', 'D', '3', 4, 0, 0, 0, 0, 0, 0 }));
+        assertEquals(0, garbage.getFrameCount());
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] frame(int rateIndex, int channelConfig, int length, int extraBlocks) {
+        byte[] frame = new byte[length];
+        frame[0] = (byte) 0xff;
+        frame[1] = (byte) 0xf1; // MPEG-4, layer 0, no CRC
+        frame[2] = (byte) ((1 << 6) | (rateIndex << 2) | (channelConfig >> 2)); // AAC LC
+        frame[3] = (byte) (((channelConfig & 0x03) << 6) | ((length >> 11) & 0x03));
+        frame[4] = (byte) (length >> 3);
+        frame[5] = (byte) (((length & 0x07) << 5) | 0x1f);
+        frame[6] = (byte) (0xfc | extraBlocks);
+        return frame;
+    }
+}
@@ -0,0 +1,204 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ChunkHandoffQueueTest {
+
+    private final ChunkBufferPool pool = new ChunkBufferPool(8, 4);
+
+    @Test
+    public void blockedOfferResumesOnceAChunkIsTaken() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.BLOCK);
+        queue.offer(chunk(0, -1, -1));
+        boolean[] queued = new boolean[1];
+        Thread producer = new Thread(() -> queued[0] = queue.offer(chunk(20, -1, -1)));
+        producer.start();
+        waitUntilBlocked(producer);
+
+        assertEquals(0, queue.take().getTimestamp());
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertTrue(queued[0]);
+        assertEquals(20, queue.take().getTimestamp());
+        assertTrue(queue.getBlockedNanos() > 0);
+    }
+
+    @Test
+    public void closeReleasesABlockedOffer() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.BLOCK);
+        queue.offer(chunk(0, -1, -1));
+        boolean[] queued = { true };
+        Thread producer = new Thread(() -> queued[0] = queue.offer(chunk(20, -1, -1)));
+        producer.start();
+        waitUntilBlocked(producer);
+
+        queue.close();
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertFalse(queued[0]);
+        assertEquals(1, queue.getDroppedNewest());
+        assertEquals(7, pool.getAvailable());
+        // what was queued before closing is still delivered
+        assertEquals(0, queue.take().getTimestamp());
+        assertNull(queue.take());
+    }
+
+    @Test
+    public void closeWakesAWaitingTake() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.BLOCK);
+        ChunkBufferPool.Chunk[] taken = { chunk(0, -1, -1) };
+        Thread consumer = new Thread(() -> {
+            try {
+                taken[0] = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        waitUntilBlocked(consumer);
+
+        queue.close();
+        consumer.join(1000);
+        assertFalse(consumer.isAlive());
+        assertNull(taken[0]);
+    }
+
+    @Test
+    public void dropOldestReturnsTheOldestChunkToThePool() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(2, ChunkHandoffQueue.Policy.DROP_OLDEST);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.offer(chunk(i * 20, -1, -1)));
+        }
+
+        assertEquals(3, queue.getDroppedOldest());
+        assertEquals(2, queue.getDepth());
+        assertEquals(2, queue.getHighWaterMark());
+        assertEquals(6, pool.getAvailable());
+        assertEquals(60, queue.take().getTimestamp());
+        assertEquals(80, queue.take().getTimestamp());
+    }
+
+    @Test
+    public void dropNewestReturnsTheIncomingChunkToThePool() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(2, ChunkHandoffQueue.Policy.DROP_NEWEST);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i < 2, queue.offer(chunk(i * 20, -1, -1)));
+        }
+
+        assertEquals(3, queue.getDroppedNewest());
+        assertEquals(0, queue.getDroppedOldest());
+        assertEquals(6, pool.getAvailable());
+        assertEquals(0, queue.take().getTimestamp());
+        assertEquals(20, queue.take().getTimestamp());
+    }
+
+    @Test
+    public void coalesceChainsOntoTheNewestChunk() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.COALESCE);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.offer(chunk(i * 20, -1, -1)));
+        }
+        assertEquals(2, queue.getCoalesced());
+        assertEquals(1, queue.getDepth());
+
+        ChunkBufferPool.Chunk chunk = queue.take();
+        assertEquals(0, chunk.getTimestamp());
+        assertEquals(20, chunk.getNext().getTimestamp());
+        assertEquals(40, chunk.getNext().getNext().getTimestamp());
+        assertNull(chunk.getNext().getNext().getNext());
+        assertEquals(5, pool.getAvailable());
+
+        // releasing the head returns the whole chain
+        chunk.release();
+        assertEquals(8, pool.getAvailable());
+        assertNull(chunk.getNext());
+    }
+
+    @Test
+    public void exhaustedPoolHandsOutNothingUntilAChunkComesBack() {
+        ChunkBufferPool small = new ChunkBufferPool(2, 4);
+        ChunkBufferPool.Chunk first = small.acquire();
+        assertNotNull(small.acquire());
+        assertNull(small.acquire());
+        assertEquals(0, small.getAvailable());
+
+        first.release();
+        // a second release of the same chunk is ignored
+        first.release();
+        assertEquals(1, small.getAvailable());
+        assertSame(first, small.acquire());
+        assertNull(small.acquire());
+    }
+
+    @Test
+    public void droppedOldestHandsItsBoundariesOn() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(2, ChunkHandoffQueue.Policy.DROP_OLDEST);
+        queue.offer(chunk(0, 0, -1));
+        queue.offer(chunk(20, -1, -1));
+        queue.offer(chunk(40, -1, 60));
+
+        ChunkBufferPool.Chunk first = queue.take();
+        assertEquals(20, first.getTimestamp());
+        assertEquals(0, first.getSpeechStartMs());
+        assertEquals(-1, first.getSpeechEndMs());
+        assertEquals(60, queue.take().getSpeechEndMs());
+    }
+
+    @Test
+    public void droppedNewestHandsItsBoundariesOn() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.DROP_NEWEST);
+        queue.offer(chunk(0, -1, -1));
+        assertFalse(queue.offer(chunk(20, 20, -1)));
+        queue.take().release();
+        queue.offer(chunk(40, -1, -1));
+
+        assertEquals(20, queue.take().getSpeechStartMs());
+    }
+
+    @Test
+    public void boundariesWithoutAChunkWaitForTheNextOne() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.DROP_NEWEST);
+        queue.offer(chunk(0, -1, -1));
+        // the pool ran dry for an utterance, then for the start of the next one
+        queue.carrySpeechBoundaries(20, -1);
+        queue.carrySpeechBoundaries(-1, 60);
+        assertFalse(queue.offer(chunk(80, 80, -1)));
+        queue.take().release();
+        queue.offer(chunk(100, -1, -1));
+
+        ChunkBufferPool.Chunk chunk = queue.take();
+        // the end and the start that followed it cancel out: speech goes on
+        assertEquals(20, chunk.getSpeechStartMs());
+        assertEquals(-1, chunk.getSpeechEndMs());
+    }
+
+    @Test
+    public void droppedUtteranceIsReportedWhole() throws InterruptedException {
+        ChunkHandoffQueue queue = new ChunkHandoffQueue(1, ChunkHandoffQueue.Policy.DROP_OLDEST);
+        queue.offer(chunk(0, 0, -1));
+        queue.offer(chunk(20, -1, 40));
+        queue.offer(chunk(40, -1, -1));
+
+        ChunkBufferPool.Chunk chunk = queue.take();
+        assertEquals(40, chunk.getTimestamp());
+        assertEquals(0, chunk.getSpeechStartMs());
+        assertEquals(40, chunk.getSpeechEndMs());
+    }
+
+    private static void waitUntilBlocked(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+
+    private ChunkBufferPool.Chunk chunk(long timestamp, long speechStartMs, long speechEndMs) {
+        ChunkBufferPool.Chunk chunk = pool.acquire();
+        chunk.set(4, timestamp, 20, 0);
+        chunk.setSpeechBoundaries(speechStartMs, speechEndMs);
+        return chunk;
+    }
+}
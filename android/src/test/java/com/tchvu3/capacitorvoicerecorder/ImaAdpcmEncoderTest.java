@@ -0,0 +1,92 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ImaAdpcmEncoderTest {
+
+    @Test
+    public void chunksDecodeIndependentlyAndTrackTheSignal() {
+        int rate = 16000;
+        int frames = 1600;
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder(1);
+        byte[] target = new byte[encoder.getMaxEncodedLength(frames)];
+        double errorEnergy = 0;
+        double signalEnergy = 0;
+        for (int chunk = 0; chunk < 5; chunk++) {
+            short[] samples = new short[frames];
+            for (int i = 0; i < frames; i++) {
+                samples[i] = (short) (12000 * Math.sin(2 * Math.PI * 440 * (chunk * frames + i) / rate));
+            }
+            int length = encoder.encode(toBytes(samples), 0, frames, target);
+            assertEquals(4 + frames / 2, length);
+
+            short[] decoded = decode(target, length, 1)[0];
+            for (int i = 0; i < frames; i++) {
+                errorEnergy += Math.pow(decoded[i] - samples[i], 2);
+                signalEnergy += Math.pow(samples[i], 2);
+            }
+        }
+        double snr = 10 * Math.log10(signalEnergy / errorEnergy);
+        assertTrue("SNR " + snr, snr > 20);
+    }
+
+    @Test
+    public void interleavesChannelsAndPadsOddSampleCounts() {
+        ImaAdpcmEncoder encoder = new ImaAdpcmEncoder(2);
+        short[] samples = { 1000, -1000, 2000, -2000, 3000, -3000 };
+        byte[] target = new byte[encoder.getMaxEncodedLength(4)];
+        int length = encoder.encode(toBytes(samples), 0, 3, target);
+        assertEquals(8 + 3, length);
+
+        short[][] decoded = decode(target, length, 2);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(decoded[0][i] > 0);
+            assertTrue(decoded[1][i] < 0);
+        }
+
+        // the next chunk's header carries the state the previous chunk ended in
+        short[] silence = new short[8];
+        length = encoder.encode(toBytes(silence), 0, 4, target);
+        assertEquals(8 + 4, length);
+        assertNotEquals(0, target[2]);
+
+        ImaAdpcmEncoder mono = new ImaAdpcmEncoder(1);
+        assertEquals(4 + 2, mono.encode(toBytes(samples), 0, 3, new byte[mono.getMaxEncodedLength(3)]));
+    }
+
+    private static byte[] toBytes(short[] samples) {
+        byte[] bytes = new byte[samples.length * 2];
+        for (int i = 0; i < samples.length; i++) {
+            bytes[2 * i] = (byte) samples[i];
+            bytes[2 * i + 1] = (byte) (samples[i] >> 8);
+        }
+        return bytes;
+    }
+
+    private static short[][] decode(byte[] data, int length, int channels) {
+        int[] predictor = new int[channels];
+        int[] index = new int[channels];
+        for (int c = 0; c < channels; c++) {
+            predictor[c] = (short) ((data[4 * c] & 0xff) | (data[4 * c + 1] << 8));
+            index[c] = data[4 * c + 2];
+        }
+        int nibbles = (length - 4 * channels) * 2;
+        short[][] out = new short[channels][nibbles / channels];
+        for (int n = 0; n < nibbles / channels * channels; n++) {
+            int c = n % channels;
+            int b = data[4 * channels + n / 2] & 0xff;
+            int code = (n & 1) == 0 ? b & 0x0f : b >> 4;
+            int step = ImaAdpcmEncoder.STEP_TABLE[index[c]];
+            int delta = step >> 3;
+            if ((code & 4) != 0) delta += step;
+            if ((code & 2) != 0) delta += step >> 1;
+            if ((code & 1) != 0) delta += step >> 2;
+            predictor[c] = Math.max(-32768, Math.min(32767, predictor[c] + ((code & 8) != 0 ? -delta : delta)));
+            index[c] = Math.max(0, Math.min(88, index[c] + ImaAdpcmEncoder.INDEX_TABLE[code]));
+            out[c][n / channels] = (short) predictor[c];
+        }
+        return out;
+    }
+}
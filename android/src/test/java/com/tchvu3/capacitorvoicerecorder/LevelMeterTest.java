@@ -0,0 +1,57 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LevelMeterTest {
+
+    private static final int RATE = 16000;
+
+    @Test
+    public void measuresSineRmsAndPeak() {
+        LevelMeter meter = new LevelMeter(RATE, 1, PcmConverter.SampleFormat.PCM16, 50);
+        // 800 frames per window; 1 kHz completes whole periods
+        assertTrue(meter.process(sine(0.5, 1000, 800), 0, 800));
+
+        assertEquals(20 * Math.log10(0.5 / Math.sqrt(2)), meter.getRmsDb(), 0.05);
+        assertEquals(20 * Math.log10(0.5), meter.getPeakDb(), 0.05);
+        assertEquals(800, meter.getWindowEndFrame());
+    }
+
+    @Test
+    public void windowsSpanReadsAndKeepTheHighestPeak() {
+        LevelMeter meter = new LevelMeter(RATE, 1, PcmConverter.SampleFormat.PCM16, 50);
+        assertFalse(meter.process(sine(0.1, 1000, 500), 0, 500));
+        assertEquals(-1, meter.getWindowEndFrame());
+
+        // completes the first window and a second, louder one in a single read
+        byte[] data = new byte[1100 * 2];
+        System.arraycopy(sine(0.1, 1000, 300), 0, data, 0, 600);
+        System.arraycopy(sine(0.8, 1000, 800), 0, data, 600, 1600);
+        assertTrue(meter.process(data, 0, 1100));
+
+        assertEquals(1600, meter.getWindowEndFrame());
+        assertEquals(20 * Math.log10(0.8), meter.getPeakDb(), 0.05);
+        assertEquals(20 * Math.log10(0.8 / Math.sqrt(2)), meter.getRmsDb(), 0.1);
+    }
+
+    @Test
+    public void reportsSilenceFloor() {
+        LevelMeter meter = new LevelMeter(RATE, 2, PcmConverter.SampleFormat.PCM16, 10);
+        assertTrue(meter.process(new byte[160 * 4], 0, 160));
+
+        assertEquals(LevelMeter.SILENCE_DB, meter.getRmsDb(), 0);
+        assertEquals(LevelMeter.SILENCE_DB, meter.getPeakDb(), 0);
+    }
+
+    private static byte[] sine(double amplitude, double frequency, int frames) {
+        byte[] data = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short sample = (short) Math.round(amplitude * 32767 * Math.sin(2 * Math.PI * frequency * i / RATE));
+            data[2 * i] = (byte) sample;
+            data[2 * i + 1] = (byte) (sample >> 8);
+        }
+        return data;
+    }
+}
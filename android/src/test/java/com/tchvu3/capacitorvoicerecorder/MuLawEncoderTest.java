@@ -0,0 +1,40 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MuLawEncoderTest {
+
+    @Test
+    public void matchesG711ReferenceValues() {
+        assertEquals((byte) 0xff, MuLawEncoder.encode((short) 0));
+        assertEquals((byte) 0x80, MuLawEncoder.encode(Short.MAX_VALUE));
+        assertEquals((byte) 0x00, MuLawEncoder.encode(Short.MIN_VALUE));
+        assertEquals(0, MuLawEncoder.decode((byte) 0xff));
+        assertEquals(32124, MuLawEncoder.decode((byte) 0x80));
+        assertEquals(-32124, MuLawEncoder.decode((byte) 0x00));
+    }
+
+    @Test
+    public void roundTripErrorStaysWithinTheSegmentStep() {
+        for (int sample = -32768; sample <= 32767; sample += 7) {
+            int decoded = MuLawEncoder.decode(MuLawEncoder.encode((short) sample));
+            int magnitude = Math.min(Math.abs(sample), 32635);
+            // each segment doubles the quantization step, starting at 8 for the smallest values
+            int step = Math.max(8, Integer.highestOneBit(magnitude + 0x84) >> 4);
+            int clipped = Math.max(-32635, Math.min(32635, sample));
+            assertTrue(sample + " -> " + decoded, Math.abs(clipped - decoded) <= step);
+        }
+    }
+
+    @Test
+    public void encodesOneBytePerSample() {
+        MuLawEncoder encoder = new MuLawEncoder(2);
+        byte[] pcm = { 0, 0, (byte) 0xff, 0x7f, 0, (byte) 0x80, 0, 0 };
+        byte[] target = new byte[encoder.getMaxEncodedLength(2)];
+
+        assertEquals(4, encoder.encode(pcm, 0, 2, target));
+        assertArrayEquals(new byte[] { (byte) 0xff, (byte) 0x80, 0x00, (byte) 0xff }, target);
+    }
+}
@@ -0,0 +1,80 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import com.tchvu3.capacitorvoicerecorder.PcmConverter.SampleFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+
+public class PcmConverterTest {
+
+    private static final float DELTA = 1e-6f;
+
+    @Test
+    public void pcm16RoundTripIsLossless() {
+        byte[] source = new byte[65536 * 2];
+        for (int i = 0; i < 65536; i++) {
+            short value = (short) (i - 32768);
+            source[i * 2] = (byte) value;
+            source[i * 2 + 1] = (byte) (value >> 8);
+        }
+        float[] floats = new float[65536];
+        byte[] target = new byte[source.length];
+
+        PcmConverter.toFloat(SampleFormat.PCM16, source, 0, 65536, floats, 0);
+        PcmConverter.fromFloat(SampleFormat.PCM16, floats, 0, 65536, target, 0);
+
+        assertEquals(-1f, floats[0], DELTA);
+        assertEquals(0f, floats[32768], DELTA);
+        assertArrayEquals(source, target);
+    }
+
+    @Test
+    public void decodesEveryFormat() {
+        float[] out = new float[2];
+
+        PcmConverter.toFloat(SampleFormat.PCM8, new byte[] { (byte) 0x80, (byte) 0xc0 }, 0, 2, out, 0);
+        assertArrayEquals(new float[] { 0f, 0.5f }, out, DELTA);
+
+        PcmConverter.toFloat(SampleFormat.PCM24, new byte[] { 0, 0, (byte) 0xc0, 0, 0, 0x40 }, 0, 2, out, 0);
+        assertArrayEquals(new float[] { -0.5f, 0.5f }, out, DELTA);
+
+        byte[] float32 = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putFloat(0.25f).putFloat(-0.75f).array();
+        PcmConverter.toFloat(SampleFormat.FLOAT32, float32, 0, 2, out, 0);
+        assertArrayEquals(new float[] { 0.25f, -0.75f }, out, DELTA);
+    }
+
+    @Test
+    public void encodingClipsOutOfRangeSamples() {
+        byte[] pcm16 = new byte[4];
+        PcmConverter.fromFloat(SampleFormat.PCM16, new float[] { 1.5f, -2f }, 0, 2, pcm16, 0);
+        ByteBuffer buffer = ByteBuffer.wrap(pcm16).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(Short.MAX_VALUE, buffer.getShort());
+        assertEquals(Short.MIN_VALUE, buffer.getShort());
+
+        byte[] pcm8 = new byte[2];
+        PcmConverter.fromFloat(SampleFormat.PCM8, new float[] { 1f, -1f }, 0, 2, pcm8, 0);
+        assertEquals(255, pcm8[0] & 0xff);
+        assertEquals(0, pcm8[1] & 0xff);
+    }
+
+    @Test
+    public void convertMatchesTwoStepConversion() {
+        byte[] pcm16 = new byte[] { 0x00, 0x40, 0x00, (byte) 0xc0, 0x01, 0x00 };
+        byte[] direct = new byte[12];
+        byte[] viaPcm24 = new byte[9];
+        byte[] back = new byte[6];
+        float[] scratch = new float[3];
+
+        int written = PcmConverter.convert(SampleFormat.PCM16, pcm16, 0, 3, SampleFormat.FLOAT32, direct, 0, scratch);
+        assertEquals(12, written);
+        ByteBuffer floats = ByteBuffer.wrap(direct).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(0.5f, floats.getFloat(), DELTA);
+        assertEquals(-0.5f, floats.getFloat(), DELTA);
+
+        PcmConverter.convert(SampleFormat.PCM16, pcm16, 0, 3, SampleFormat.PCM24, viaPcm24, 0, scratch);
+        PcmConverter.convert(SampleFormat.PCM24, viaPcm24, 0, 3, SampleFormat.PCM16, back, 0, scratch);
+        assertArrayEquals(pcm16, back);
+    }
+}
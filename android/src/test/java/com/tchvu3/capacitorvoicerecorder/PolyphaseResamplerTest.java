@@ -0,0 +1,96 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PolyphaseResamplerTest {
+
+    @Test
+    public void producesOutputAtTheRequestedRatio() {
+        PolyphaseResampler resampler = new PolyphaseResampler(44100, 48000, 1, PolyphaseResampler.Quality.MEDIUM, 4410);
+        float[] output = new float[resampler.getMaxOutputFrames()];
+        int produced = 0;
+        for (int i = 0; i < 10; i++) {
+            produced += resampler.process(new float[4410], 0, 4410, output, 0);
+        }
+        assertEquals(48000, produced, 1);
+    }
+
+    @Test
+    public void chunkBoundariesDoNotChangeTheOutput() {
+        float[] input = sine(48000, 440, 4800, 1);
+        float[] whole = new float[4800];
+        float[] pieces = new float[4800];
+
+        PolyphaseResampler single = new PolyphaseResampler(48000, 16000, 1, PolyphaseResampler.Quality.HIGH, 4800);
+        int wholeCount = single.process(input, 0, 4800, whole, 0);
+
+        PolyphaseResampler chunked = new PolyphaseResampler(48000, 16000, 1, PolyphaseResampler.Quality.HIGH, 4800);
+        float[] scratch = new float[chunked.getMaxOutputFrames()];
+        int pieceCount = 0;
+        int[] sizes = { 7, 480, 1, 1000, 3312 };
+        int offset = 0;
+        for (int size : sizes) {
+            int produced = chunked.process(input, offset, size, scratch, 0);
+            System.arraycopy(scratch, 0, pieces, pieceCount, produced);
+            pieceCount += produced;
+            offset += size;
+        }
+
+        assertEquals(wholeCount, pieceCount);
+        for (int i = 0; i < wholeCount; i++) {
+            assertEquals(whole[i], pieces[i], 1e-6f);
+        }
+    }
+
+    @Test
+    public void keepsPassbandAndRejectsAliases() {
+        // 1 kHz passes a 48k -> 16k conversion, 12 kHz would alias to 4 kHz and must be suppressed
+        assertEquals(0.5, resampledAmplitude(1000), 0.01);
+        assertTrue(resampledAmplitude(12000) < 0.005);
+    }
+
+    @Test
+    public void interleavedChannelsStaySeparate() {
+        float[] input = new float[960 * 2];
+        for (int i = 0; i < 960; i++) {
+            input[i * 2] = 0.25f;
+            input[i * 2 + 1] = -0.5f;
+        }
+        PolyphaseResampler resampler = new PolyphaseResampler(48000, 16000, 2, PolyphaseResampler.Quality.LOW, 960);
+        float[] output = new float[resampler.getMaxOutputFrames() * 2];
+        int produced = resampler.process(input, 0, 960, output, 0);
+
+        // past the filter warm-up the DC level of each channel is preserved
+        int frame = produced - 1;
+        assertEquals(0.25f, output[frame * 2], 1e-3f);
+        assertEquals(-0.5f, output[frame * 2 + 1], 1e-3f);
+    }
+
+    private static double resampledAmplitude(double frequency) {
+        float[] input = sine(48000, frequency, 48000, 0.5f);
+        PolyphaseResampler resampler = new PolyphaseResampler(
+            48000,
+            16000,
+            1,
+            PolyphaseResampler.Quality.MEDIUM,
+            48000
+        );
+        float[] output = new float[resampler.getMaxOutputFrames()];
+        int produced = resampler.process(input, 0, 48000, output, 0);
+        double peak = 0;
+        for (int i = produced / 2; i < produced; i++) {
+            peak = Math.max(peak, Math.abs(output[i]));
+        }
+        return peak;
+    }
+
+    private static float[] sine(int rate, double frequency, int frames, float amplitude) {
+        float[] samples = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / rate));
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class PreRollBufferTest {
+
+    @Test
+    public void keepsTheNewestFramesAcrossWraps() {
+        PreRollBuffer buffer = new PreRollBuffer(5, 2);
+        for (int frame = 0; frame < 12; frame++) {
+            buffer.write(new byte[] { (byte) frame, (byte) frame }, 0, 2);
+        }
+        assertEquals(5, buffer.getAvailableFrames());
+
+        byte[] target = new byte[10];
+        assertEquals(5, buffer.read(5, target, 0, 5));
+        assertArrayEquals(new byte[] { 7, 7, 8, 8, 9, 9, 10, 10, 11, 11 }, target);
+    }
+
+    @Test
+    public void readsTheTailInPieces() {
+        PreRollBuffer buffer = new PreRollBuffer(8, 1);
+        buffer.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 }, 0, 10);
+
+        byte[] target = new byte[3];
+        assertEquals(3, buffer.read(4, target, 0, 3));
+        assertArrayEquals(new byte[] { 7, 8, 9 }, target);
+        assertEquals(1, buffer.read(1, target, 0, 3));
+        assertEquals(10, target[0]);
+    }
+
+    @Test
+    public void clampsToWhatWasCaptured() {
+        PreRollBuffer buffer = new PreRollBuffer(100, 2);
+        buffer.write(new byte[] { 1, 2, 3, 4 }, 0, 4);
+
+        byte[] target = new byte[200];
+        assertEquals(2, buffer.read(50, target, 0, 100));
+        assertEquals(1, target[0]);
+        assertEquals(4, target[3]);
+    }
+}
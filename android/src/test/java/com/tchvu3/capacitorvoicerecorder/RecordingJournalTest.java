@@ -0,0 +1,126 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingJournalTest {
+
+    // 16 kHz, one block per frame: every frame lasts 64 ms
+    private static final int FRAME_LENGTH = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void interruptedEntriesSurviveTheProcess() throws IOException {
+        File directory = new File(folder.getRoot(), "journal");
+        File first = folder.newFile("recording-1.aac");
+        File second = folder.newFile("recording-1-001.aac");
+        File finished = folder.newFile("recording-2.aac");
+        RecordingJournal journal = new RecordingJournal(directory, new HashSet<>());
+        String id = journal.begin(first, "AAC_LC", "DATA", "voice");
+        journal.addFile(id, second);
+        journal.end(journal.begin(finished, "AAC_LC", null, null));
+
+        // still recording in this process
+        assertTrue(journal.getInterrupted().isEmpty());
+        RecordingJournal relaunched = new RecordingJournal(directory, new HashSet<>());
+        List<RecordingJournal.Entry> entries = relaunched.getInterrupted();
+        assertEquals(1, entries.size());
+        RecordingJournal.Entry entry = entries.get(0);
+        assertEquals("AAC_LC", entry.codec);
+        assertEquals("DATA", entry.directory);
+        assertEquals("voice", entry.subDirectory);
+        assertEquals(2, entry.getFiles().size());
+        assertEquals(first.getAbsolutePath(), entry.getFiles().get(0).getPath());
+        assertEquals(second.getAbsolutePath(), entry.getFiles().get(1).getPath());
+        assertFalse(entry.isDelivered(0));
+
+        relaunched.remove(entry);
+        assertTrue(new RecordingJournal(directory, new HashSet<>()).getInterrupted().isEmpty());
+    }
+
+    @Test
+    public void deliveredSegmentsAreMarked() throws IOException {
+        File directory = folder.newFolder("journal");
+        File first = folder.newFile("recording-1.aac");
+        File second = folder.newFile("recording-1-001.aac");
+        RecordingJournal journal = new RecordingJournal(directory, new HashSet<>());
+        String id = journal.begin(first, "AAC_LC", null, null);
+        journal.addFile(id, second);
+        journal.markDelivered(id, first);
+
+        RecordingJournal.Entry entry = new RecordingJournal(directory, new HashSet<>()).getInterrupted().get(0);
+        assertTrue(entry.isDelivered(0));
+        assertFalse(entry.isDelivered(1));
+    }
+
+    @Test
+    public void openEntriesAreSharedAcrossJournals() throws IOException {
+        File directory = folder.newFolder("journal");
+        String id = new RecordingJournal(directory).begin(folder.newFile(), "AAC_LC", null, null);
+        try {
+            // a new plugin instance while the recording still runs
+            assertTrue(new RecordingJournal(directory).getInterrupted().isEmpty());
+        } finally {
+            new RecordingJournal(directory).end(id);
+        }
+    }
+
+    @Test
+    public void unreadableEntriesAreDropped() throws IOException {
+        File directory = folder.newFolder("journal");
+        File broken = new File(directory, "broken.journal");
+        try (FileOutputStream out = new FileOutputStream(broken)) {
+            out.write("file.0=/nowhere\n".getBytes("US-ASCII"));
+        }
+        assertTrue(new RecordingJournal(directory).getInterrupted().isEmpty());
+        assertFalse(broken.exists());
+    }
+
+    @Test
+    public void truncateCutsThePartialLastFrame() throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            for (int i = 0; i < 10; i++) {
+                out.write(frame());
+            }
+            // the process died halfway through the eleventh frame
+            out.write(frame(), 0, FRAME_LENGTH / 2);
+        }
+        AdtsParser.Info info = RecordingJournal.truncate(file);
+        assertEquals(10, info.getFrameCount());
+        assertEquals(640, info.getDurationMs());
+        assertEquals(10 * FRAME_LENGTH, file.length());
+    }
+
+    @Test
+    public void truncateEmptiesAFileWithoutCompleteFrames() throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(frame(), 0, 20);
+        }
+        assertEquals(0, RecordingJournal.truncate(file).getFrameCount());
+        assertEquals(0, file.length());
+    }
+
+    private static byte[] frame() {
+        byte[] frame = new byte[FRAME_LENGTH];
+        frame[0] = (byte) 0xff;
+        frame[1] = (byte) 0xf1;
+        frame[2] = (byte) 0x60; // 16000 Hz
+        frame[3] = (byte) 0x40; // mono
+        frame[4] = (byte) (FRAME_LENGTH >> 3);
+        frame[5] = (byte) (((FRAME_LENGTH & 0x07) << 5) | 0x1f);
+        frame[6] = (byte) 0xfc;
+        return frame;
+    }
+}
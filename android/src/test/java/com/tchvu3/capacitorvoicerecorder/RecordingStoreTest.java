@@ -0,0 +1,117 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RecordingStoreTest {
+
+    // 16 kHz, one block per frame: every frame lasts 64 ms
+    private static final int FRAME_LENGTH = 100;
+    private static final int FRAMES = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RecordingStore store = new RecordingStore();
+    private File file;
+    private String id;
+
+    @Before
+    public void setUp() throws IOException {
+        file = writeFrames(FRAMES);
+        id = store.retain(file, true, true);
+    }
+
+    @Test
+    public void byteRangesSnapToWholeFrames() throws IOException {
+        RecordingStore.Range range = store.readBytes(id, 150, 260);
+        // starts at the frame containing byte 150 and ends at the last boundary before 410
+        assertEquals(100, range.offset);
+        assertEquals(300, range.data.length);
+        assertEquals(1, range.data[7]);
+        assertEquals(FRAMES * FRAME_LENGTH, range.totalLength);
+        assertEquals(64, range.startMs);
+        assertEquals(256, range.endMs);
+        assertEquals(FRAMES * 64, range.durationMs);
+    }
+
+    @Test
+    public void byteRangesNeverExceedTheLimit() throws IOException {
+        String large = store.retain(writeFrames(RecordingStore.MAX_RANGE_BYTES / FRAME_LENGTH + 10), true, true);
+        // moving back to the frame start must not add to the limit
+        RecordingStore.Range range = store.readBytes(large, 199, RecordingStore.MAX_RANGE_BYTES);
+        assertEquals(100, range.offset);
+        assertTrue(range.data.length <= RecordingStore.MAX_RANGE_BYTES);
+    }
+
+    @Test
+    public void shortRangeStillReturnsOneFrame() throws IOException {
+        assertEquals(FRAME_LENGTH, store.readBytes(id, 0, 10).data.length);
+        assertEquals(0, store.readBytes(id, FRAMES * FRAME_LENGTH, 100).data.length);
+    }
+
+    @Test
+    public void timeRangesCoverTheRequestedSpan() throws IOException {
+        RecordingStore.Range range = store.readTime(id, 100, 200);
+        assertEquals(64, range.startMs);
+        assertEquals(256, range.endMs);
+        assertEquals(3 * FRAME_LENGTH, range.data.length);
+
+        RecordingStore.Range tail = store.readTime(id, 3000, Long.MAX_VALUE);
+        assertEquals(FRAMES * 64, tail.endMs);
+        assertEquals((FRAMES - 46) * FRAME_LENGTH, tail.data.length);
+    }
+
+    @Test
+    public void releaseDeletesTemporaryRecordings() throws IOException {
+        assertTrue(store.release(id));
+        assertFalse(file.exists());
+        assertFalse(store.release(id));
+        try {
+            store.readBytes(id, 0, 100);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // released recordings are unknown
+        }
+    }
+
+    @Test
+    public void companionsAreReleasedWithTheirRecording() throws IOException {
+        File peaks = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(peaks)) {
+            out.write(new byte[] { 'W', 'P', 'K', '1' });
+        }
+        String peaksId = store.retainCompanion(id, peaks);
+        assertEquals('K', store.readBytes(peaksId, 2, 1).data[0]);
+
+        assertTrue(store.release(id));
+        assertFalse(peaks.exists());
+        assertFalse(store.release(peaksId));
+    }
+
+    private File writeFrames(int count) throws IOException {
+        File output = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(output)) {
+            for (int i = 0; i < count; i++) {
+                byte[] frame = new byte[FRAME_LENGTH];
+                frame[0] = (byte) 0xff;
+                frame[1] = (byte) 0xf1;
+                frame[2] = (byte) 0x60; // 16000 Hz
+                frame[3] = (byte) 0x40; // mono
+                frame[4] = (byte) (FRAME_LENGTH >> 3);
+                frame[5] = (byte) (((FRAME_LENGTH & 0x07) << 5) | 0x1f);
+                frame[6] = (byte) 0xfc;
+                frame[7] = (byte) i;
+                out.write(frame);
+            }
+        }
+        return output;
+    }
+}
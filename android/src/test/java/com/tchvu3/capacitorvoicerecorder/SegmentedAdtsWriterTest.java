@@ -0,0 +1,121 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedAdtsWriterTest {
+
+    private static final long FRAME_US = 1024 * 1_000_000L / 44100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<SegmentedAdtsWriter.Segment> segments = new ArrayList<>();
+
+    @Test
+    public void rotatesByDurationWithoutLosingFrames() throws IOException {
+        SegmentedAdtsWriter writer = writer(1000, 0);
+        writeFrames(writer, 100);
+        writer.stop();
+
+        // 1 s holds 44 frames of 23.2 ms: segments of 44, 44 and 12 frames
+        assertEquals(3, segments.size());
+        assertEquals(3, writer.getSegmentCount());
+        assertFalse(segments.get(0).last);
+        assertTrue(segments.get(2).last);
+        assertEquals(44, AdtsParser.index(segments.get(0).file).getFrameCount());
+        assertEquals(12, AdtsParser.index(segments.get(2).file).getFrameCount());
+        assertEquals(segments.get(0).startUs + segments.get(0).durationUs, segments.get(1).startUs);
+        assertEquals(100 * FRAME_US, writer.getDurationUs(), 100);
+
+        File single = folder.newFile("single.aac");
+        AdtsFileWriter reference = new AdtsFileWriter(single);
+        reference.start("audio/mp4a-latm", 44100, 1, AdtsHeader.AOT_AAC_LC);
+        writeFrames(reference, 100);
+        reference.stop();
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        for (SegmentedAdtsWriter.Segment segment : segments) {
+            joined.write(Files.readAllBytes(segment.file.toPath()));
+        }
+        assertArrayEquals(Files.readAllBytes(single.toPath()), joined.toByteArray());
+    }
+
+    @Test
+    public void rotatesBySizeAtFrameBoundaries() throws IOException {
+        // frames are 7 + 100 bytes: three fit in 350
+        SegmentedAdtsWriter writer = writer(0, 350);
+        writeFrames(writer, 7);
+        writer.stop();
+
+        assertEquals(3, segments.size());
+        assertEquals(321, segments.get(0).bytes);
+        assertEquals(321, segments.get(0).file.length());
+        assertEquals(107, segments.get(2).bytes);
+        assertEquals(2, segments.get(2).index);
+    }
+
+    @Test
+    public void deletesAnEmptyRecording() throws IOException {
+        SegmentedAdtsWriter writer = writer(1000, 0);
+        writer.stop();
+
+        assertTrue(segments.isEmpty());
+        assertEquals(0, writer.getSegmentCount());
+        assertFalse(new File(folder.getRoot(), "part-0.aac").exists());
+    }
+
+    @Test
+    public void failedSegmentIsNeverReported() throws IOException {
+        SegmentedAdtsWriter writer = new SegmentedAdtsWriter(
+            index -> {
+                if (index > 0) {
+                    throw new IOException("disk full");
+                }
+                return folder.newFile("part-" + index + ".aac");
+            },
+            0,
+            350
+        );
+        writer.setListener(segments::add);
+        writer.start("audio/mp4a-latm", 44100, 1, AdtsHeader.AOT_AAC_LC);
+        try {
+            writeFrames(writer, 7);
+            fail("the second segment cannot be opened");
+        } catch (IOException expected) {
+            // the encoder records this and stops writing
+        }
+        writer.stop();
+
+        assertEquals(1, segments.size());
+        assertFalse(segments.get(0).last);
+        assertEquals("disk full", writer.getError().getMessage());
+    }
+
+    private SegmentedAdtsWriter writer(long maxDurationMs, long maxBytes) throws IOException {
+        SegmentedAdtsWriter writer = new SegmentedAdtsWriter(
+            index -> folder.newFile("part-" + index + ".aac"),
+            maxDurationMs,
+            maxBytes
+        );
+        writer.setListener(segments::add);
+        writer.start("audio/mp4a-latm", 44100, 1, AdtsHeader.AOT_AAC_LC);
+        return writer;
+    }
+
+    private static void writeFrames(EncodedAudioSink sink, int count) throws IOException {
+        byte[] payload = new byte[100];
+        for (int i = 0; i < count; i++) {
+            payload[0] = (byte) i;
+            sink.write(payload, 0, payload.length, i * FRAME_US);
+        }
+    }
+}
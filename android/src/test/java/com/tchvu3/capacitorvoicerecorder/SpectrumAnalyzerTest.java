@@ -0,0 +1,87 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class SpectrumAnalyzerTest {
+
+    private static final int RATE = 16000;
+
+    @Test
+    public void realFftMatchesDirectDft() {
+        int size = 64;
+        float[] input = new float[size];
+        Random random = new Random(3);
+        for (int i = 0; i < size; i++) {
+            input[i] = random.nextFloat() * 2 - 1;
+        }
+        float[] power = new float[size / 2 + 1];
+        new RealFft(size).powerSpectrum(input, power);
+
+        for (int k = 0; k <= size / 2; k++) {
+            double re = 0;
+            double im = 0;
+            for (int n = 0; n < size; n++) {
+                re += input[n] * Math.cos(2 * Math.PI * k * n / size);
+                im -= input[n] * Math.sin(2 * Math.PI * k * n / size);
+            }
+            assertEquals("bin " + k, re * re + im * im, power[k], 1e-3 * (1 + re * re + im * im));
+        }
+    }
+
+    @Test
+    public void fullScaleToneLandsInItsBandNearZeroDb() {
+        SpectrumAnalyzer analyzer = analyzer(SpectrumAnalyzer.Scale.LOG);
+        assertTrue(analyzer.process(tone(1.0, 1000, 1600), 0, 1600));
+
+        float[] bands = analyzer.getBands();
+        float[] centers = analyzer.getCenterFrequencies();
+        int loudest = 0;
+        for (int band = 1; band < bands.length; band++) {
+            if (bands[band] > bands[loudest]) {
+                loudest = band;
+            }
+        }
+        int expected = 0;
+        for (int band = 1; band < centers.length; band++) {
+            if (Math.abs(Math.log(centers[band] / 1000)) < Math.abs(Math.log(centers[expected] / 1000))) {
+                expected = band;
+            }
+        }
+        assertEquals(expected, loudest);
+        assertEquals(0, bands[loudest], 0.5);
+        assertTrue(bands[0] < -40);
+        assertEquals(1600, analyzer.getAnalysisEndFrame());
+    }
+
+    @Test
+    public void melBandsRiseInFrequencyAndRunOncePerHop() {
+        SpectrumAnalyzer analyzer = analyzer(SpectrumAnalyzer.Scale.MEL);
+        float[] centers = analyzer.getCenterFrequencies();
+        for (int band = 1; band < centers.length; band++) {
+            assertTrue(centers[band] > centers[band - 1]);
+        }
+        assertTrue(centers[centers.length - 1] < RATE / 2);
+
+        // 800-frame hop: a 700-frame read completes none, the next one completes exactly one
+        assertFalse(analyzer.process(tone(0.5, 440, 700), 0, 700));
+        assertTrue(analyzer.process(tone(0.5, 440, 700), 0, 700));
+        assertEquals(800, analyzer.getAnalysisEndFrame());
+    }
+
+    private static SpectrumAnalyzer analyzer(SpectrumAnalyzer.Scale scale) {
+        return new SpectrumAnalyzer(RATE, 1, PcmConverter.SampleFormat.PCM16, 512, 16, scale, 800);
+    }
+
+    private static byte[] tone(double amplitude, double frequency, int frames) {
+        float[] samples = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / RATE));
+        }
+        byte[] bytes = new byte[frames * 2];
+        PcmConverter.fromFloat(PcmConverter.SampleFormat.PCM16, samples, 0, frames, bytes, 0);
+        return bytes;
+    }
+}
@@ -0,0 +1,90 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamingBase64Test {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesReferenceEncoderAcrossReadBuffers() throws IOException {
+        int[] sizes = {
+            0,
+            1,
+            2,
+            3,
+            StreamingBase64.READ_BUFFER_SIZE - 1,
+            StreamingBase64.READ_BUFFER_SIZE + 1,
+            200_003
+        };
+        for (int size : sizes) {
+            byte[] data = randomBytes(size);
+            String expected = Base64.getEncoder().encodeToString(data);
+            assertEquals("size " + size, expected, StreamingBase64.encodeFile(write(data)));
+        }
+    }
+
+    @Test
+    public void chunksConcatenateToTheFullEncoding() throws IOException {
+        byte[] data = randomBytes(10_001);
+        List<String> chunks = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        boolean[] lastSeen = new boolean[1];
+        StreamingBase64.encodeFile(
+            write(data),
+            1000,
+            (base64, byteOffset, last) -> {
+                assertFalse(lastSeen[0]);
+                chunks.add(base64);
+                offsets.add(byteOffset);
+                lastSeen[0] = last;
+            }
+        );
+
+        assertTrue(lastSeen[0]);
+        // 1000 rounds down to 999 bytes per chunk
+        assertEquals(11, chunks.size());
+        assertEquals(Long.valueOf(999), offsets.get(1));
+        assertEquals(Base64.getEncoder().encodeToString(data), String.join("", chunks));
+        for (String chunk : chunks) {
+            Base64.getDecoder().decode(chunk);
+        }
+    }
+
+    @Test
+    public void exactMultipleOfChunkSizeEndsOnLastFullChunk() throws IOException {
+        List<Boolean> last = new ArrayList<>();
+        StreamingBase64.encodeFile(write(randomBytes(30)), 15, (base64, byteOffset, isLast) -> last.add(isLast));
+        assertEquals(List.of(false, true), last);
+
+        last.clear();
+        StreamingBase64.encodeFile(write(new byte[0]), 15, (base64, byteOffset, isLast) -> last.add(isLast));
+        assertEquals(List.of(true), last);
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+}
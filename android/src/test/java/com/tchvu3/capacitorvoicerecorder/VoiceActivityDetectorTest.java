@@ -0,0 +1,94 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class VoiceActivityDetectorTest {
+
+    private static final int RATE = 16000;
+    private static final int CHUNK = 1600; // 100 ms
+
+    private final Random random = new Random(7);
+
+    @Test
+    public void detectsToneOverQuietNoiseWithHangover() {
+        VoiceActivityDetector vad = detector();
+        for (int i = 0; i < 10; i++) {
+            assertFalse(vad.process(noise(0.001), 0, CHUNK));
+        }
+
+        assertTrue(vad.process(tone(0.2, 220), 0, CHUNK));
+        assertEquals(VoiceActivityDetector.Transition.SPEECH_START, vad.getTransition());
+        assertTrue(vad.process(tone(0.2, 220), 0, CHUNK));
+        assertEquals(VoiceActivityDetector.Transition.NONE, vad.getTransition());
+
+        // 300 ms hangover: two quiet chunks stay in speech, the third ends it
+        assertTrue(vad.process(noise(0.001), 0, CHUNK));
+        assertTrue(vad.process(noise(0.001), 0, CHUNK));
+        assertFalse(vad.process(noise(0.001), 0, CHUNK));
+        assertEquals(VoiceActivityDetector.Transition.SPEECH_END, vad.getTransition());
+    }
+
+    @Test
+    public void ignoresLoudBroadbandNoise() {
+        VoiceActivityDetector vad = detector();
+        for (int i = 0; i < 5; i++) {
+            vad.process(noise(0.001), 0, CHUNK);
+        }
+        assertFalse(vad.process(noise(0.3), 0, CHUNK));
+        assertTrue(vad.getZeroCrossingRate() > VoiceActivityDetector.MAX_SPEECH_ZERO_CROSSING_RATE);
+    }
+
+    @Test
+    public void noiseFloorFollowsAStepInBackgroundLevel() {
+        VoiceActivityDetector vad = detector();
+        for (int i = 0; i < 5; i++) {
+            vad.process(lowHum(0.001), 0, CHUNK);
+        }
+        float quietFloor = vad.getNoiseFloorDb();
+        // a louder steady hum first reads as speech, then the floor catches up
+        for (int i = 0; i < 600; i++) {
+            vad.process(lowHum(0.02), 0, CHUNK);
+        }
+        assertTrue(vad.getNoiseFloorDb() > quietFloor + 20);
+        assertFalse(vad.isSpeaking());
+    }
+
+    private static VoiceActivityDetector detector() {
+        return new VoiceActivityDetector(
+            RATE,
+            1,
+            PcmConverter.SampleFormat.PCM16,
+            VoiceActivityDetector.DEFAULT_THRESHOLD_DB,
+            VoiceActivityDetector.DEFAULT_HANGOVER_MS
+        );
+    }
+
+    private byte[] noise(double amplitude) {
+        float[] samples = new float[CHUNK];
+        for (int i = 0; i < CHUNK; i++) {
+            samples[i] = (float) (amplitude * random.nextGaussian());
+        }
+        return pcm16(samples);
+    }
+
+    private static byte[] tone(double amplitude, double frequency) {
+        float[] samples = new float[CHUNK];
+        for (int i = 0; i < CHUNK; i++) {
+            samples[i] = (float) (amplitude * Math.sin(2 * Math.PI * frequency * i / RATE));
+        }
+        return pcm16(samples);
+    }
+
+    private static byte[] lowHum(double amplitude) {
+        return tone(amplitude, 100);
+    }
+
+    private static byte[] pcm16(float[] samples) {
+        byte[] bytes = new byte[samples.length * 2];
+        PcmConverter.fromFloat(PcmConverter.SampleFormat.PCM16, samples, 0, samples.length, bytes, 0);
+        return bytes;
+    }
+}
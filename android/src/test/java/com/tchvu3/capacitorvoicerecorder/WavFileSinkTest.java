@@ -0,0 +1,65 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WavFileSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesEveryChunkBehindACompleteHeader() throws IOException {
+        File file = folder.newFile("tee.wav");
+        WavFileSink sink = new WavFileSink(file);
+        sink.start(new AudioStreamer.AudioStreamFormat(16000, 1, "pcm16"));
+        byte[] chunk = new byte[3200];
+        for (int i = 0; i < 20; i++) {
+            Arrays.fill(chunk, (byte) i);
+            sink.write(chunk, chunk.length, i * 1600L);
+        }
+        sink.stop();
+
+        assertNull(sink.getError());
+        assertEquals(2000, sink.getDurationMs());
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(WavFileSink.HEADER_LENGTH + 20 * 3200, bytes.length);
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", new String(bytes, 0, 4, "US-ASCII"));
+        assertEquals(bytes.length - 8, header.getInt(4));
+        assertEquals(1, header.getShort(20));
+        assertEquals(1, header.getShort(22));
+        assertEquals(16000, header.getInt(24));
+        assertEquals(32000, header.getInt(28));
+        assertEquals(16, header.getShort(34));
+        assertEquals(20 * 3200, header.getInt(40));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, bytes[WavFileSink.HEADER_LENGTH + i * 3200]);
+            assertEquals(i, bytes[WavFileSink.HEADER_LENGTH + i * 3200 + 3199]);
+        }
+    }
+
+    @Test
+    public void marksFloatStreamsAsIeeeFloat() throws IOException {
+        File file = folder.newFile("float.wav");
+        WavFileSink sink = new WavFileSink(file);
+        sink.start(new AudioStreamer.AudioStreamFormat(48000, 2, "float32"));
+        sink.write(new byte[48000 * 8 / 10], 48000 * 8 / 10, 0);
+        sink.stop();
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, header.getShort(20));
+        assertEquals(2, header.getShort(22));
+        assertEquals(32, header.getShort(34));
+        assertEquals(100, sink.getDurationMs());
+    }
+}
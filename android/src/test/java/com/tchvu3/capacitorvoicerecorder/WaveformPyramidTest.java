@@ -0,0 +1,88 @@
+package com.tchvu3.capacitorvoicerecorder;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class WaveformPyramidTest {
+
+    @Test
+    public void foldsPeaksIntoCoarserLevels() {
+        WaveformPyramid pyramid = new WaveformPyramid(16000, 1, PcmConverter.SampleFormat.PCM16, 4);
+        // 20 frames in uneven reads: ramp -10 .. 9
+        short[] samples = new short[20];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (i - 10);
+        }
+        byte[] pcm = pcm16(samples);
+        pyramid.add(pcm, 0, 7);
+        pyramid.add(pcm, 14, 13);
+        pyramid.finish();
+
+        assertEquals(5, pyramid.getPeakCount(0));
+        short[] level0 = pyramid.getPeaks(0);
+        assertEquals(-10, level0[0]);
+        assertEquals(-7, level0[1]);
+        assertEquals(6, level0[8]);
+        assertEquals(9, level0[9]);
+
+        // the partial fifth level-0 peak is folded on finish
+        assertEquals(2, pyramid.getPeakCount(1));
+        assertEquals(16, pyramid.getSamplesPerPeak(1));
+        short[] level1 = pyramid.getPeaks(1);
+        assertArrayEquals(new short[] { -10, 5, 6, 9 }, Arrays.copyOf(level1, 4));
+        assertEquals(1, pyramid.getPeakCount(2));
+        assertEquals(2, pyramid.chooseLevel(1));
+        assertEquals(0, pyramid.chooseLevel(5));
+    }
+
+    @Test
+    public void coversAllChannelsAndGrowsPastInitialCapacity() {
+        WaveformPyramid pyramid = new WaveformPyramid(16000, 2, PcmConverter.SampleFormat.PCM16, 1);
+        short[] frames = new short[2 * 5000];
+        for (int i = 0; i < 5000; i++) {
+            frames[2 * i] = (short) i;
+            frames[2 * i + 1] = (short) -i;
+        }
+        pyramid.add(pcm16(frames), 0, 5000);
+        pyramid.finish();
+
+        assertEquals(5000, pyramid.getPeakCount(0));
+        short[] peaks = pyramid.getPeaks(0);
+        assertEquals(-4999, peaks[2 * 4999]);
+        assertEquals(4999, peaks[2 * 4999 + 1]);
+    }
+
+    @Test
+    public void writesTheDocumentedLayout() throws Exception {
+        WaveformPyramid pyramid = new WaveformPyramid(8000, 1, PcmConverter.SampleFormat.PCM16, 2);
+        pyramid.add(pcm16(new short[] { 100, -200, 300 }), 0, 3);
+        pyramid.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        pyramid.writeTo(output);
+
+        ByteBuffer data = ByteBuffer.wrap(output.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals('W', data.get());
+        data.position(4);
+        assertEquals(8000, data.getInt());
+        assertEquals(WaveformPyramid.LEVEL_COUNT, data.getInt());
+        assertEquals(2, data.getInt());
+        assertEquals(2, data.getInt());
+        assertEquals(-200, data.getShort());
+        assertEquals(100, data.getShort());
+        assertEquals(300, data.getShort());
+        assertEquals(300, data.getShort());
+        assertEquals(8, data.getInt());
+        assertEquals(1, data.getInt());
+    }
+
+    private static byte[] pcm16(short[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(samples.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asShortBuffer().put(samples);
+        return buffer.array();
+    }
+}
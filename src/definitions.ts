@@ -9,27 +9,198 @@ export interface RecordingData {
     msDuration: number;
     mimeType: string;
     path?: string;
+    recordingId?: string; // Set when stopRecording was called with deferData (Android only)
+    waveform?: Waveform; // Set for AAC recordings (Android only)
+    segmentCount?: number; // Set for segmented recordings, whose audio was delivered by 'segmentReady' events (Android only)
   };
 }
 
+export interface SegmentReadyEvent {
+  index: number; // 0 for the first segment
+  startMs: number; // Position of the segment in the recording
+  msDuration: number;
+  size: number; // Bytes
+  mimeType: string;
+  last: boolean; // Set on the final segment, sent before stopRecording resolves
+  path?: string; // Set when recording to a directory
+  recordingId?: string; // Otherwise the segment is kept for readRecordingRange until releaseRecording
+}
+
+export interface RecoveredRecording {
+  msDuration: number; // Up to the last complete frame
+  mimeType: string;
+  size: number; // Bytes left after truncation
+  startedAt: number; // Epoch ms the recording started
+  segmentIndex?: number; // Set for the files of a segmented recording
+  path?: string; // Set when the recording went to a directory
+  recordingId?: string; // Otherwise the file is kept for readRecordingRange until releaseRecording
+}
+
+export interface RecoverRecordingsResponse {
+  recordings: RecoveredRecording[];
+}
+
+export interface Waveform {
+  sampleRate: number;
+  samplesPerPeak: number; // Frames covered by each min/max pair in peaks
+  peaks: number[]; // Interleaved min/max pairs in [-1, 1], at most 1000 pairs
+  path?: string; // Full peak pyramid ('.peaks' file) next to a recording saved to a directory
+  recordingId?: string; // Full peak pyramid of a recording kept in the cache, for readRecordingRange
+}
+
+export interface StopRecordingOptions {
+  base64ChunkSize?: number; // Deliver the data as 'recordingDataChunk' events of this many file bytes instead of recordDataBase64 (Android only)
+  deferData?: boolean; // Keep the recording and return a recordingId for readRecordingRange instead of the data (Android only)
+}
+
+export interface ReadRecordingRangeOptions {
+  recordingId: string;
+  offset?: number; // Byte range; snapped to whole ADTS frames
+  length?: number; // Default and maximum: 4 MiB
+  startMs?: number; // Time range; takes precedence over offset/length
+  endMs?: number; // Default: end of the recording
+}
+
+export interface RecordingRange {
+  data: Base64String; // Whole ADTS frames, decodable on their own
+  offset: number; // Byte offset of data; offset + length is where the next range starts
+  length: number;
+  totalLength: number;
+  startMs: number; // -1 for recordings that are not AAC
+  endMs: number;
+  msDuration: number;
+}
+
+export interface RecordingDataChunk {
+  data: Base64String; // Base64 of the file bytes starting at offset; chunks concatenate to the full encoding
+  offset: number; // Byte offset in the recording
+  last: boolean;
+}
+
+export interface EncoderOptions {
+  codec?: 'aac-lc' | 'he-aac' | 'opus' | 'amr-wb'; // Default: 'aac-lc'. 'opus' (Ogg) requires Android 10 (Android only)
+  bitRate?: number; // Default: 96000 (23850 for 'amr-wb')
+  sampleRate?: number; // Default: 44100 (48000 for 'opus', 16000 for 'amr-wb')
+  channelCount?: number; // Default: 1
+  preRollMs?: number; // prepareRecorder: keep capturing and hold this much audio (AAC only). startRecording: begin with up to this much of it (default: all) (Android only)
+  audioLevel?: AudioLevelOptions; // Enables 'audioLevel' events (Android only)
+  segmentDurationMs?: number; // Start a new file after this long, delivering each through 'segmentReady' (AAC only, Android only)
+  segmentMaxBytes?: number; // Start a new file before it grows beyond this size (AAC only, Android only)
+}
+
 export type RecordingOptions =
-  | never
-  | {
+  | EncoderOptions
+  | (EncoderOptions & {
       directory: Directory;
       subDirectory?: string;
-    };
+    });
 
 export interface StreamingOptions {
   sampleRate?: number; // Default: 16000 for WhisperKit compatibility
   channelCount?: number; // Default: 1 (mono)
-  encoding?: 'pcm16' | 'pcm8' | 'float32'; // Default: 'pcm16'
+  encoding?: 'pcm16' | 'pcm8' | 'float32' | 'mulaw' | 'ima-adpcm' | 'aac' | 'opus'; // Default: 'pcm16'. Compressed encodings are Android only ('opus' needs Android 10+)
+  bitRate?: number; // Bit rate for 'aac' (default: 64000) and 'opus' (default: 32000) streaming
   chunkDurationMs?: number; // Default: 100ms chunks
+  transport?: 'base64' | 'binary'; // Default: 'base64'. 'binary' serves raw PCM over a loopback URL (Android only)
+  binaryBufferMs?: number; // Default: 10000ms of audio kept available for 'binary' transport
+  batchSize?: number; // Default: 1. Values above 1 deliver chunks through 'audioChunkBatch' events (Android only)
+  batchMaxDelayMs?: number; // Default: 250ms. Longest time a chunk waits for its batch to fill
+  backpressure?: 'block' | 'drop-oldest' | 'drop-newest' | 'coalesce'; // Default: 'drop-oldest' (Android only)
+  queueCapacity?: number; // Default: 16 chunks queued between capture and delivery
+  resampleQuality?: 'none' | 'low' | 'medium' | 'high'; // Default: 'medium'. Used only when the device cannot capture at sampleRate; 'none' never resamples (Android only)
+  recordToFile?: StreamRecordingOptions; // Also archive the stream to a file, returned by stopStreaming (Android only)
+  voiceActivity?: VoiceActivityOptions; // Enables 'speechStart'/'speechEnd' events (Android only)
+  preRollMs?: number; // prepareRecorder: keep capturing and hold this much audio. startStreaming: begin with up to this much of it (default: all) (Android only)
+  audioLevel?: AudioLevelOptions; // Enables 'audioLevel' events (Android only)
+  spectrum?: SpectrumOptions; // Enables 'audioSpectrum' events (Android only)
+}
+
+export interface SpectrumOptions {
+  fftSize?: number; // Default: 512. Power of two between 64 and 8192
+  bands?: number; // Default: 16
+  scale?: 'log' | 'mel'; // Default: 'log'. Log-spaced bands or triangular mel filters, from 50 Hz to Nyquist
+  intervalMs?: number; // Default: 50. One analysis and event per interval
+}
+
+export interface SpectrumEvent {
+  bands: number[]; // Level per band in dB relative to a full-scale sine, low to high; -100 for silence
+  timestamp: number; // Milliseconds of audio at the end of the analysed window
+}
+
+export interface AudioLevelOptions {
+  windowMs?: number; // Default: 50. Window the RMS is measured over
+  intervalMs?: number; // Default: 100. Shortest time between events
+}
+
+export interface AudioLevelEvent {
+  rms?: number; // dBFS of the latest window; absent for recordings that are not AAC
+  peak: number; // Highest dBFS since the previous event; -100 for silence
+  timestamp: number; // Milliseconds of audio (wall time for recordings that are not AAC)
+}
+
+export interface VoiceActivityOptions {
+  suppressSilence?: boolean; // Default: false. Withhold chunks outside speech; recordToFile still gets everything
+  thresholdDb?: number; // Default: 9. Energy above the adaptive noise floor that counts as speech
+  hangoverMs?: number; // Default: 300. Speech continues this long after the last speech chunk
+  paddingMs?: number; // Default: 200. Silence delivered before each utterance when suppressing
+}
+
+export interface VoiceActivityEvent {
+  timestamp: number; // Chunk timestamp (ms) where the utterance starts, or where its last chunk ends
+}
+
+export interface StreamRecordingOptions {
+  format?: 'wav' | 'aac'; // Default: 'wav', in the stream's PCM encoding (pcm16 for compressed encodings)
+  bitRate?: number; // Default: 96000, for 'aac'
+  directory?: Directory; // Without a directory the file is kept for readRecordingRange and a recordingId is returned
+  subDirectory?: string;
+}
+
+export interface StopStreamingResponse extends GenericResponse {
+  recording?: RecordingData['value'] & { error?: string }; // Set when streaming was started with recordToFile
+}
+
+export interface StreamingQueueStatus {
+  policy: 'block' | 'drop-oldest' | 'drop-newest' | 'coalesce';
+  capacity: number;
+  depth: number;
+  droppedOldest: number;
+  droppedNewest: number;
+  droppedNoBuffer: number;
+  coalesced: number;
+  blockedMs: number;
+}
+
+export interface StartResponse extends GenericResponse {
+  warmStart?: boolean; // Whether a recorder prepared by prepareRecorder was used (Android only)
+  startLatencyMs?: number; // Time spent in the native start call (Android only)
+  preRollMs?: number; // Audio from before the start call that the recording or stream begins with (Android only)
+}
+
+export interface StartStreamingResponse extends StartResponse {
+  binaryUrl?: string; // Set when transport is 'binary'
+  spectrumFrequencies?: number[]; // Center frequency (Hz) of each spectrum band, when spectrum is set
+}
+
+export type PrepareRecorderOptions =
+  | ({ mode?: 'recording' } & Partial<RecordingOptions>)
+  | ({ mode: 'streaming' } & StreamingOptions);
+
+export interface PrepareRecorderResponse extends GenericResponse {
+  prepareLatencyMs: number;
+  armed?: boolean; // Whether the microphone is capturing pre-roll until start or release (Android only)
 }
 
 export interface AudioChunk {
-  data: Base64String; // Base64 encoded audio data
-  timestamp: number; // Timestamp in milliseconds
-  duration: number; // Duration of chunk in milliseconds
+  data?: Base64String; // Base64 encoded audio data ('base64' transport)
+  offset?: number; // Byte offset of the chunk in the binary stream ('binary' transport)
+  length?: number; // Byte length of the chunk in the binary stream ('binary' transport)
+  timestamp: number; // Milliseconds since the first captured frame, derived from the audio clock
+  duration: number; // Duration of the audio actually read, in milliseconds
+  frameCount?: number; // Sample frames (samples per channel) in the chunk (Android only)
+  framePosition?: number; // Position of the first frame since the stream started (Android only)
+  monotonicTimeNs?: number; // CLOCK_MONOTONIC capture time of the first frame in nanoseconds (Android only; not set for 'aac' and 'opus')
+  packetSizes?: number[]; // Byte length of each Opus packet in the chunk, in order ('opus' only)
   format: {
     sampleRate: number;
     channelCount: number;
@@ -37,6 +208,34 @@ export interface AudioChunk {
   };
 }
 
+export interface AudioChunkBatch {
+  chunks: AudioChunk[];
+}
+
+export interface StreamingStats {
+  streaming: boolean; // false when reporting the last finished stream
+  hardwareTimestamps: boolean; // chunk times come from AudioRecord.getTimestamp
+  elapsedMs: number;
+  chunksRead: number;
+  bytesRead: number;
+  bytesPerSecond: number;
+  shortReads: number; // reads that returned less than a full chunk
+  readErrors: { [code: string]: number }; // AudioRecord.read() error codes
+  droppedChunks: number;
+  queueDepth?: number;
+  queueCapacity?: number;
+  queueHighWaterMark?: number;
+  chunksDelivered: number;
+  latencyAvgMs: number; // capture to delivery
+  latencyMaxMs: number;
+  latencyHistogram: { upToMs?: number; count: number }[];
+  encodeAvgMs: number; // payload encoding time per chunk
+  encodeMaxMs: number;
+  speechSegments?: number; // With voiceActivity
+  suppressedChunks?: number; // With voiceActivity.suppressSilence
+  suppressedRatio?: number; // Fraction of captured audio that was suppressed
+}
+
 export interface GenericResponse {
   value: boolean;
 }
@@ -59,9 +258,19 @@ export interface VoiceRecorderPlugin {
 
   hasAudioRecordingPermission(): Promise<GenericResponse>;
 
-  startRecording(options?: RecordingOptions): Promise<GenericResponse>;
+  prepareRecorder(options?: PrepareRecorderOptions): Promise<PrepareRecorderResponse>;
+
+  releasePreparedRecorder(): Promise<GenericResponse>;
+
+  startRecording(options?: RecordingOptions): Promise<StartResponse>;
+
+  stopRecording(options?: StopRecordingOptions): Promise<RecordingData>;
 
-  stopRecording(): Promise<RecordingData>;
+  readRecordingRange(options: ReadRecordingRangeOptions): Promise<RecordingRange>;
+
+  releaseRecording(options: { recordingId: string }): Promise<GenericResponse>;
+
+  recoverRecordings(): Promise<RecoverRecordingsResponse>;
 
   pauseRecording(): Promise<GenericResponse>;
 
@@ -70,15 +279,49 @@ export interface VoiceRecorderPlugin {
   getCurrentStatus(): Promise<CurrentRecordingStatus>;
 
   // New streaming methods
-  startStreaming(options?: StreamingOptions): Promise<GenericResponse>;
+  startStreaming(options?: StreamingOptions): Promise<StartStreamingResponse>;
+
+  stopStreaming(): Promise<StopStreamingResponse>;
+
+  getStreamingQueueStatus(): Promise<StreamingQueueStatus>;
 
-  stopStreaming(): Promise<GenericResponse>;
+  getStreamingStats(): Promise<StreamingStats>;
 
   addListener(
     eventName: 'audioChunk',
     listenerFunc: (chunk: AudioChunk) => void
   ): Promise<PluginListenerHandle>;
 
+  addListener(
+    eventName: 'audioChunkBatch',
+    listenerFunc: (batch: AudioChunkBatch) => void
+  ): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'recordingDataChunk',
+    listenerFunc: (chunk: RecordingDataChunk) => void
+  ): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'speechStart' | 'speechEnd',
+    listenerFunc: (event: VoiceActivityEvent) => void
+  ): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'audioLevel',
+    listenerFunc: (level: AudioLevelEvent) => void
+  ): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'audioSpectrum',
+    listenerFunc: (spectrum: SpectrumEvent) => void
+  ): Promise<PluginListenerHandle>;
+
+  addListener(
+    eventName: 'segmentReady',
+    listenerFunc: (segment: SegmentReadyEvent) => void
+  ): Promise<PluginListenerHandle>;
+
   addListener(
     eventName: 'streamError',
     listenerFunc: (error: { message: string; code: string }) => void
@@ -6,8 +6,19 @@ import type {
   GenericResponse,
   RecordingData,
   RecordingOptions,
+  PrepareRecorderOptions,
+  PrepareRecorderResponse,
+  StartResponse,
+  ReadRecordingRangeOptions,
+  RecordingRange,
+  RecoverRecordingsResponse,
   VoiceRecorderPlugin,
+  StopRecordingOptions,
+  StopStreamingResponse,
+  StartStreamingResponse,
   StreamingOptions,
+  StreamingQueueStatus,
+  StreamingStats,
 } from './definitions';
 
 export class VoiceRecorderWeb extends WebPlugin implements VoiceRecorderPlugin {
@@ -25,14 +36,34 @@ export class VoiceRecorderWeb extends WebPlugin implements VoiceRecorderPlugin {
     return VoiceRecorderImpl.requestAudioRecordingPermission();
   }
 
-  public startRecording(options?: RecordingOptions): Promise<GenericResponse> {
+  public async prepareRecorder(_options?: PrepareRecorderOptions): Promise<PrepareRecorderResponse> {
+    return { value: false, prepareLatencyMs: 0 };
+  }
+
+  public async releasePreparedRecorder(): Promise<GenericResponse> {
+    return { value: false };
+  }
+
+  public startRecording(options?: RecordingOptions): Promise<StartResponse> {
     return this.voiceRecorderInstance.startRecording(options);
   }
 
-  public stopRecording(): Promise<RecordingData> {
+  public stopRecording(_options?: StopRecordingOptions): Promise<RecordingData> {
     return this.voiceRecorderInstance.stopRecording();
   }
 
+  public async readRecordingRange(_options: ReadRecordingRangeOptions): Promise<RecordingRange> {
+    throw this.unimplemented('Reading recording ranges is not implemented for web.');
+  }
+
+  public async releaseRecording(_options: { recordingId: string }): Promise<GenericResponse> {
+    throw this.unimplemented('Releasing recordings is not implemented for web.');
+  }
+
+  public async recoverRecordings(): Promise<RecoverRecordingsResponse> {
+    throw this.unimplemented('Recovering recordings is not implemented for web.');
+  }
+
   public pauseRecording(): Promise<GenericResponse> {
     return this.voiceRecorderInstance.pauseRecording();
   }
@@ -45,16 +76,24 @@ export class VoiceRecorderWeb extends WebPlugin implements VoiceRecorderPlugin {
     return this.voiceRecorderInstance.getCurrentStatus();
   }
 
-  public async startStreaming(_options?: StreamingOptions): Promise<GenericResponse> {
+  public async startStreaming(_options?: StreamingOptions): Promise<StartStreamingResponse> {
     console.warn('Audio streaming is not implemented for web.');
     return { value: false };
   }
 
-  public async stopStreaming(): Promise<GenericResponse> {
+  public async stopStreaming(): Promise<StopStreamingResponse> {
     console.warn('Audio streaming is not implemented for web.');
     return { value: false };
   }
 
+  public async getStreamingQueueStatus(): Promise<StreamingQueueStatus> {
+    throw this.unimplemented('Audio streaming is not implemented for web.');
+  }
+
+  public async getStreamingStats(): Promise<StreamingStats> {
+    throw this.unimplemented('Audio streaming is not implemented for web.');
+  }
+
   public async removeAllListeners(): Promise<void> {
     await super.removeAllListeners();
   }